@@ -1,13 +1,167 @@
 package com.oyiersan.completableintro;
 
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import com.oyiersan.completableintro.executor.AsyncExecutors;
+import com.oyiersan.completableintro.executor.BlockingTaskExecutor;
+import com.oyiersan.completableintro.journal.Journal;
+import com.oyiersan.completableintro.loadgen.LoadGeneratorProperties;
+import com.oyiersan.completableintro.limit.RateLimiter;
+import com.oyiersan.completableintro.loadgen.LoadGeneratorRunner;
+import com.oyiersan.completableintro.metrics.ExecutorMetrics;
+import com.oyiersan.completableintro.metrics.StageMetrics;
+import com.oyiersan.completableintro.metrics.StageMetricsEndpoint;
+import com.oyiersan.completableintro.priority.Priority;
+import com.oyiersan.completableintro.priority.PriorityExecutor;
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import com.oyiersan.completableintro.watchdog.BlockingWatchdog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 @SpringBootApplication
+@EnableConfigurationProperties({AsyncExecutorProperties.class, LoadGeneratorProperties.class})
 public class CompletableIntroApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(CompletableIntroApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(CompletableIntroApplication.class, args);
+        // 压测是一次性任务，跑完后关闭线程池并退出
+        if (context.getEnvironment().acceptsProfiles(Profiles.of(LoadGeneratorRunner.PROFILE))) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    // 全局共享的有界线程池，所有 supplyAsync/thenApplyAsync 默认使用它，避免每次调用新建线程池
+    @Bean(name = AsyncExecutors.ASYNC_EXECUTOR)
+    public ThreadPoolTaskExecutor asyncExecutor(AsyncExecutorProperties properties) {
+        return AsyncExecutors.boundedExecutor(properties);
+    }
+
+    // 阻塞型 stage 专用，按 async.executor.mode 选择虚拟线程或回退到共享线程池
+    @Bean(name = AsyncExecutors.BLOCKING_EXECUTOR)
+    public BlockingTaskExecutor blockingExecutor(AsyncExecutorProperties properties,
+                                                 @Qualifier(AsyncExecutors.ASYNC_EXECUTOR) ThreadPoolTaskExecutor asyncExecutor) {
+        return new BlockingTaskExecutor(properties.getMode(), asyncExecutor);
+    }
+
+    // 超时、截止时间共用的时间轮
+    @Bean(destroyMethod = "stop")
+    public HashedWheelTimer asyncTimer(@Value("${async.timer.tick-millis:10}") long tickMillis,
+                                       @Value("${async.timer.wheel-size:512}") int wheelSize) {
+        return new HashedWheelTimer("async-timer", tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+    }
+
+    // 监控 commonPool 上运行过久的任务和线程池饥饿；开启 redirect 后经看门狗提交的阻塞 stage 改交给 blockingExecutor
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public BlockingWatchdog blockingWatchdog(HashedWheelTimer asyncTimer,
+                                             @Qualifier(AsyncExecutors.BLOCKING_EXECUTOR) BlockingTaskExecutor blockingExecutor,
+                                             @Value("${async.watchdog.threshold-millis:1000}") long thresholdMillis,
+                                             @Value("${async.watchdog.sample-millis:200}") long sampleMillis,
+                                             @Value("${async.watchdog.redirect:false}") boolean redirect) {
+        BlockingWatchdog.Builder builder = BlockingWatchdog.builder(asyncTimer)
+                .threshold(thresholdMillis, TimeUnit.MILLISECONDS)
+                .sampleInterval(sampleMillis, TimeUnit.MILLISECONDS);
+        if (redirect) {
+            builder.redirectTo(blockingExecutor);
+        }
+        return builder.build();
+    }
+
+    // 共享线程池的线程数、队列深度、拒绝次数，由 Actuator 绑定到 MeterRegistry
+    @Bean
+    public ExecutorMetrics asyncExecutorMetrics(@Qualifier(AsyncExecutors.ASYNC_EXECUTOR) ThreadPoolTaskExecutor asyncExecutor) {
+        return new ExecutorMetrics(AsyncExecutors.ASYNC_EXECUTOR, asyncExecutor);
+    }
+
+    @Bean
+    public StageMetrics stageMetrics(MeterRegistry meterRegistry) {
+        return new StageMetrics(meterRegistry);
+    }
+
+    @Bean
+    public StageMetricsEndpoint stageMetricsEndpoint(MeterRegistry meterRegistry) {
+        return new StageMetricsEndpoint(meterRegistry);
+    }
+
+    // 按优先级类别排队后再交给 blockingExecutor，后台任务积压时用户等待的 stage 仍然优先
+    @Bean
+    public PriorityExecutor priorityExecutor(@Qualifier(AsyncExecutors.BLOCKING_EXECUTOR) BlockingTaskExecutor blockingExecutor,
+                                             @Value("${async.priority.max-concurrency:8}") int maxConcurrency,
+                                             @Value("${async.priority.policy:WEIGHTED}") PriorityExecutor.Policy policy,
+                                             @Value("${async.priority.max-starvation-millis:1000}") long maxStarvationMillis,
+                                             MeterRegistry meterRegistry) {
+        return PriorityExecutor.builder(blockingExecutor)
+                .name("priority")
+                .maxConcurrency(maxConcurrency)
+                .policy(policy)
+                .maxStarvation(maxStarvationMillis, TimeUnit.MILLISECONDS)
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    // 邮件服务商的配额：超出速率的 notifyByEmail 在时间轮上异步等待，等待队列满时直接失败
+    @Bean
+    public RateLimiter emailRateLimiter(HashedWheelTimer asyncTimer,
+                                        @Value("${account.pipeline.email.permits-per-second:50}") double permitsPerSecond,
+                                        @Value("${account.pipeline.email.burst:10}") int burst,
+                                        @Value("${account.pipeline.email.max-waiting:1000}") int maxWaiting) {
+        return RateLimiter.builder(asyncTimer)
+                .name("email")
+                .permitsPerSecond(permitsPerSecond)
+                .burst(burst)
+                .maxWaiting(maxWaiting)
+                .build();
+    }
+
+    // 余额变更日志：配置了 account.pipeline.journal.dir 才启用，打开时恢复已有的段，并发追加共用一次 fsync
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty("account.pipeline.journal.dir")
+    public Journal balanceJournal(@Value("${account.pipeline.journal.dir}") String dir,
+                                  @Value("${account.pipeline.journal.segment-bytes:67108864}") long segmentBytes,
+                                  @Value("${account.pipeline.journal.compact-threshold:4}") int compactThreshold) throws IOException {
+        return Journal.builder(Paths.get(dir))
+                .segmentBytes(segmentBytes)
+                .compactThreshold(compactThreshold)
+                .open();
+    }
+
+    @Bean
+    public AccountPipeline accountPipeline(PriorityExecutor priorityExecutor,
+                                           @Value("${account.pipeline.stage-latency-millis:50}") long stageLatencyMillis,
+                                           StageMetrics stageMetrics,
+                                           RateLimiter emailRateLimiter,
+                                           ObjectProvider<Journal> balanceJournal) {
+        return AccountPipeline.builder(priorityExecutor.executor(Priority.CRITICAL))
+                .backgroundExecutor(priorityExecutor.executor(Priority.BACKGROUND))
+                .stageLatency(stageLatencyMillis, TimeUnit.MILLISECONDS)
+                .metrics(stageMetrics)
+                .emailLimiter(emailRateLimiter)
+                .journal(balanceJournal.getIfAvailable())
+                .build();
+    }
+
+    // 仅在 loadgen profile 下启动：按 loadgen.* 对账户流水线压测，结果写入文件
+    @Bean
+    @Profile(LoadGeneratorRunner.PROFILE)
+    public LoadGeneratorRunner loadGeneratorRunner(LoadGeneratorProperties properties,
+                                                   AccountPipeline accountPipeline,
+                                                   AsyncExecutorProperties executorProperties,
+                                                   @Value("${account.pipeline.stage-latency-millis:50}") long stageLatencyMillis) {
+        return new LoadGeneratorRunner(properties, accountPipeline, executorProperties, stageLatencyMillis);
     }
 
 }
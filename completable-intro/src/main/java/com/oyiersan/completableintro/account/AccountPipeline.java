@@ -0,0 +1,206 @@
+package com.oyiersan.completableintro.account;
+
+import com.oyiersan.completableintro.journal.Journal;
+import com.oyiersan.completableintro.limit.RateLimiter;
+import com.oyiersan.completableintro.metrics.StageMetrics;
+import com.oyiersan.completableintro.timer.Deadline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 账户处理流水线：findAccountNumber -> calculateBalance -> notifyBalance -> notifyByEmail。
+ * <p>
+ * 每个 stage 都模拟一次阻塞的远程调用（耗时 stageLatency），
+ * 因此应该交给阻塞型执行器而不是 ForkJoinPool.commonPool()。
+ * 每个 stage 的排队时间、执行时间通过 {@link StageMetrics} 记录。
+ * <p>
+ * notifyByEmail 可以交给单独的 backgroundExecutor（例如
+ * {@link com.oyiersan.completableintro.priority.PriorityExecutor} 的 BACKGROUND 类别），
+ * 大量邮件积压时不拖慢用户等待的 calculateBalance、notifyBalance。
+ * 邮件服务商有配额时传入 emailLimiter，notifyByEmail 先异步等待许可，等待期间不占用线程。
+ * <p>
+ * 传入 journal 时，notifyBalance 的结果（账户 -> 余额）追加到日志，落盘后才继续 notifyByEmail；
+ * 并发的请求共用一次 fsync，不会每个请求同步写一次盘。
+ */
+public class AccountPipeline {
+
+    private final Executor executor;
+
+    private final Executor backgroundExecutor;
+
+    private final long stageLatencyNanos;
+
+    private final StageMetrics metrics;
+
+    private final RateLimiter emailLimiter;
+
+    private final Journal journal;
+
+    private AccountPipeline(Builder builder) {
+        this.executor = builder.executor;
+        this.backgroundExecutor = builder.backgroundExecutor == null ? builder.executor : builder.backgroundExecutor;
+        this.stageLatencyNanos = builder.stageLatencyNanos;
+        this.metrics = builder.metrics;
+        this.emailLimiter = builder.emailLimiter;
+        this.journal = builder.journal;
+    }
+
+    /**
+     * @param executor 执行各个阻塞 stage 的执行器
+     */
+    public static Builder builder(Executor executor) {
+        return new Builder(executor);
+    }
+
+    public CompletableFuture<Double> process() {
+        CompletableFuture<Double> accountNumber = metrics.supplyAsync("findAccountNumber", this::findAccountNumber, executor);
+        CompletableFuture<Double> balance = metrics.thenApplyAsync(accountNumber, "calculateBalance", this::calculateBalance, executor);
+        CompletableFuture<Double> notified = metrics.thenApplyAsync(balance, "notifyBalance", this::notifyBalance, executor);
+        CompletableFuture<Double> persisted = journal == null ? notified
+                : notified.thenCompose(value -> persistBalance(accountNumber.getNow(null), value));
+        CompletableFuture<Double> permitted = emailLimiter == null ? persisted : persisted.thenCompose(this::awaitEmailPermit);
+        return metrics.thenApplyAsync(permitted, "notifyByEmail", value -> {
+            notifyByEmail();
+            return value;
+        }, backgroundExecutor);
+    }
+
+    /**
+     * 带端到端截止时间的流水线：超时后整体以 TimeoutException 失败，尚未开始的 stage 不再执行。
+     * 各 stage 同样记录到 {@link StageMetrics}，截止时间已过才开始的 stage 记为失败
+     */
+    public CompletableFuture<Double> process(Deadline deadline) {
+        CompletableFuture<Double> accountNumber = metrics.supplyAsync("findAccountNumber", this::findAccountNumber, executor);
+        CompletableFuture<Double> balance = metrics.thenApplyAsync(accountNumber, "calculateBalance",
+                deadline.guard(this::calculateBalance), executor);
+        CompletableFuture<Double> notified = metrics.thenApplyAsync(balance, "notifyBalance",
+                deadline.guard(this::notifyBalance), executor);
+        CompletableFuture<Double> persisted = journal == null ? notified
+                : notified.thenCompose(deadline.compose(value -> persistBalance(accountNumber.getNow(null), value)));
+        CompletableFuture<Double> permitted = emailLimiter == null ? persisted
+                : persisted.thenCompose(value -> awaitEmailPermit(value, deadline));
+        return deadline.bound(metrics.thenApplyAsync(permitted, "notifyByEmail", deadline.guard(value -> {
+            notifyByEmail();
+            return value;
+        }), backgroundExecutor));
+    }
+
+    /**
+     * 余额写入日志，落盘后以原余额完成
+     */
+    private CompletableFuture<Double> persistBalance(Double accountNumber, Double balance) {
+        return journal.append("account-" + accountNumber, String.valueOf(balance)).thenApply(sequence -> balance);
+    }
+
+    private CompletableFuture<Double> awaitEmailPermit(Double balance) {
+        return emailLimiter.acquire().thenApply(ignored -> balance);
+    }
+
+    /**
+     * 需要等待超过剩余时间的请求直接拒绝；截止时间先到时 compose 取消等待，归还预约和等待名额，
+     * 超时的请求不占用邮件配额
+     */
+    private CompletableFuture<Double> awaitEmailPermit(Double balance, Deadline deadline) {
+        Function<Double, CompletableFuture<Void>> acquire = deadline.compose(ignored ->
+                emailLimiter.acquire(1, deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+        return acquire.apply(balance).thenApply(ignored -> balance);
+    }
+
+    public Double findAccountNumber() {
+        simulateRemoteCall();
+        // business code
+        return 1D;
+    }
+
+    public Double calculateBalance(Double accountNumber) {
+        simulateRemoteCall();
+        // business code
+        return 1D + accountNumber;
+    }
+
+    public Double notifyBalance(Double balance) {
+        simulateRemoteCall();
+        // business code
+        return balance;
+    }
+
+    public void notifyByEmail() {
+        simulateRemoteCall();
+        // business code
+    }
+
+    private void simulateRemoteCall() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(stageLatencyNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for remote call", e);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Executor executor;
+
+        private Executor backgroundExecutor;
+
+        private long stageLatencyNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+        private StageMetrics metrics = StageMetrics.NOOP;
+
+        private RateLimiter emailLimiter;
+
+        private Journal journal;
+
+        private Builder(Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * notifyByEmail 使用的执行器，默认与其他 stage 相同
+         */
+        public Builder backgroundExecutor(Executor backgroundExecutor) {
+            this.backgroundExecutor = backgroundExecutor;
+            return this;
+        }
+
+        /**
+         * 每个 stage 模拟的远程调用耗时
+         */
+        public Builder stageLatency(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("stageLatency must not be negative: " + duration);
+            }
+            this.stageLatencyNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder metrics(StageMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * notifyByEmail 的速率限制，默认不限制
+         */
+        public Builder emailLimiter(RateLimiter emailLimiter) {
+            this.emailLimiter = emailLimiter;
+            return this;
+        }
+
+        /**
+         * 余额变更的持久化日志，默认不记录
+         */
+        public Builder journal(Journal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        public AccountPipeline build() {
+            return new AccountPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.oyiersan.completableintro.breaker;
+
+/**
+ * 熔断器处于 OPEN（或 HALF_OPEN 且试探名额已用完）时拒绝调用
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    public CallNotPermittedException(String name, CircuitBreaker.State state) {
+        super("CircuitBreaker '" + name + "' is " + state + " and does not permit further calls");
+    }
+}
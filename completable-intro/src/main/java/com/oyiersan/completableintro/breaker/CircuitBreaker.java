@@ -0,0 +1,337 @@
+package com.oyiersan.completableintro.breaker;
+
+import com.oyiersan.completableintro.future.Futures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 异步 stage 的熔断器。
+ * <p>
+ * CLOSED 时记录最近 windowSize 次调用，失败率或慢调用率达到阈值后转为 OPEN；
+ * OPEN 时直接返回 fallback（或以 {@link CallNotPermittedException} 失败），不提交任务、不占用执行器线程；
+ * 等待 waitDurationInOpen 后的第一次调用转为 HALF_OPEN，放行 permittedCallsInHalfOpen 次试探调用，
+ * 根据试探结果回到 CLOSED 或重新 OPEN。试探调用超过 maxWaitInHalfOpen 仍没有全部结束（例如下游挂起又没有超时）时
+ * 重新 OPEN，不会因为一个永不完成的 future 一直拒绝调用。
+ * <p>
+ * 每个状态对应一个不可变的 Phase 对象，状态变化通过 CAS 替换 Phase 完成，不加锁；
+ * 旧 Phase 中开始的调用结束后不再影响新状态。
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final float failureRateThreshold;
+
+    private final float slowCallRateThreshold;
+
+    private final long slowCallDurationNanos;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final long waitDurationInOpenNanos;
+
+    private final int permittedCallsInHalfOpen;
+
+    private final long maxWaitInHalfOpenNanos;
+
+    private final Predicate<Throwable> recordFailure;
+
+    private final LongSupplier clock;
+
+    private final List<Consumer<StateTransition>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicReference<Phase> phase;
+
+    private CircuitBreaker(Builder builder) {
+        this.name = builder.name;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallDurationNanos = builder.slowCallDurationNanos;
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.waitDurationInOpenNanos = builder.waitDurationInOpenNanos;
+        this.permittedCallsInHalfOpen = builder.permittedCallsInHalfOpen;
+        this.maxWaitInHalfOpenNanos = builder.maxWaitInHalfOpenNanos;
+        this.recordFailure = builder.recordFailure;
+        this.clock = builder.clock;
+        this.phase = new AtomicReference<>(new Phase(State.CLOSED, 0, new OutcomeWindow(windowSize), 0));
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 受熔断保护的 supplyAsync，熔断时在调用线程上直接计算 fallback
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor,
+                                                Function<Throwable, ? extends T> fallback) {
+        return call(() -> CompletableFuture.supplyAsync(supplier, executor), fallback);
+    }
+
+    /**
+     * 受熔断保护的异步调用，调用本身失败时同样使用 fallback
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> call,
+                                         Function<Throwable, ? extends T> fallback) {
+        return call(call).handle((value, ex) -> ex == null ? value : fallback.apply(Futures.unwrap(ex)));
+    }
+
+    /**
+     * 受熔断保护的异步调用，熔断时以 {@link CallNotPermittedException} 失败
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> call) {
+        Phase permitted = acquirePermission();
+        if (permitted == null) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new CallNotPermittedException(name, getState()));
+            return rejected;
+        }
+        long start = clock.getAsLong();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (Throwable ex) {
+            onResult(permitted, clock.getAsLong() - start, ex);
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+        return future.whenComplete((value, ex) -> onResult(permitted, clock.getAsLong() - start, ex));
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getFailureRate() {
+        return phase.get().window.failureRate();
+    }
+
+    public float getSlowCallRate() {
+        return phase.get().window.slowCallRate();
+    }
+
+    public void addListener(Consumer<StateTransition> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 手动重置为 CLOSED
+     */
+    public void reset() {
+        Phase current = phase.get();
+        transition(current, new Phase(State.CLOSED, 0, new OutcomeWindow(windowSize), 0));
+    }
+
+    /**
+     * @return 允许调用时返回当前 Phase，否则返回 null
+     */
+    private Phase acquirePermission() {
+        for (; ; ) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (clock.getAsLong() - current.enteredAt < waitDurationInOpenNanos) {
+                        return null;
+                    }
+                    // 只有一个线程能 CAS 成功，失败的线程重新读取状态
+                    transition(current, new Phase(State.HALF_OPEN, clock.getAsLong(),
+                            new OutcomeWindow(permittedCallsInHalfOpen), permittedCallsInHalfOpen));
+                    break;
+                case HALF_OPEN:
+                default:
+                    if (current.halfOpenPermits.getAndDecrement() > 0) {
+                        return current;
+                    }
+                    if (clock.getAsLong() - current.enteredAt < maxWaitInHalfOpenNanos) {
+                        return null;
+                    }
+                    // 试探调用迟迟没有结束，按失败处理重新 OPEN；之后才结束的试探调用属于旧 Phase，不再计入
+                    transition(current, open(current.window));
+                    break;
+            }
+        }
+    }
+
+    private void onResult(Phase permitted, long durationNanos, Throwable ex) {
+        if (phase.get() != permitted) {
+            return;
+        }
+        boolean failed = ex != null && recordFailure.test(Futures.unwrap(ex));
+        permitted.window.record(failed, durationNanos >= slowCallDurationNanos);
+        OutcomeWindow window = permitted.window;
+        boolean exceeded = window.failureRate() >= failureRateThreshold
+                || window.slowCallRate() >= slowCallRateThreshold;
+        if (permitted.state == State.CLOSED) {
+            if (window.total() >= minimumCalls && exceeded) {
+                transition(permitted, open(window));
+            }
+        } else if (permitted.state == State.HALF_OPEN && window.total() >= permittedCallsInHalfOpen) {
+            transition(permitted, exceeded ? open(window) : new Phase(State.CLOSED, 0, new OutcomeWindow(windowSize), 0));
+        }
+    }
+
+    /**
+     * OPEN 期间保留触发熔断的窗口，便于查看熔断时的失败率；过期 Phase 的结果不会再写入它
+     */
+    private Phase open(OutcomeWindow trippedWindow) {
+        return new Phase(State.OPEN, clock.getAsLong(), trippedWindow, 0);
+    }
+
+    private void transition(Phase from, Phase to) {
+        if (!phase.compareAndSet(from, to)) {
+            return;
+        }
+        StateTransition event = new StateTransition(name, from.state, to.state,
+                from.window.failureRate(), from.window.slowCallRate());
+        log.info("{}", event);
+        for (Consumer<StateTransition> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Throwable t) {
+                log.warn("CircuitBreaker listener failed", t);
+            }
+        }
+    }
+
+    private static final class Phase {
+
+        final State state;
+
+        /** 进入 OPEN、HALF_OPEN 的时刻，CLOSED 为 0 */
+        final long enteredAt;
+
+        final OutcomeWindow window;
+
+        final AtomicInteger halfOpenPermits;
+
+        Phase(State state, long enteredAt, OutcomeWindow window, int halfOpenPermits) {
+            this.state = state;
+            this.enteredAt = enteredAt;
+            this.window = window;
+            this.halfOpenPermits = new AtomicInteger(halfOpenPermits);
+        }
+    }
+
+    public static final class Builder {
+
+        private final String name;
+
+        private float failureRateThreshold = 50;
+
+        private float slowCallRateThreshold = 100;
+
+        private long slowCallDurationNanos = TimeUnit.SECONDS.toNanos(60);
+
+        private int windowSize = 100;
+
+        private int minimumCalls = 10;
+
+        private long waitDurationInOpenNanos = TimeUnit.SECONDS.toNanos(60);
+
+        private int permittedCallsInHalfOpen = 5;
+
+        private long maxWaitInHalfOpenNanos = TimeUnit.SECONDS.toNanos(60);
+
+        private Predicate<Throwable> recordFailure = ex -> true;
+
+        private LongSupplier clock = System::nanoTime;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /** 失败率阈值（百分比） */
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /** 慢调用率阈值（百分比） */
+        public Builder slowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        public Builder slowCallDuration(long duration, TimeUnit unit) {
+            this.slowCallDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /** 窗口内至少有这么多次调用才计算失败率 */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public Builder waitDurationInOpen(long duration, TimeUnit unit) {
+            this.waitDurationInOpenNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder permittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+            this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+            return this;
+        }
+
+        /** HALF_OPEN 等待试探调用结束的最长时间，超过后重新 OPEN */
+        public Builder maxWaitInHalfOpen(long duration, TimeUnit unit) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("maxWaitInHalfOpen must be positive: " + duration);
+            }
+            this.maxWaitInHalfOpenNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /** 哪些异常计为失败，默认全部 */
+        public Builder recordFailure(Predicate<Throwable> recordFailure) {
+            this.recordFailure = recordFailure;
+            return this;
+        }
+
+        public Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            if (windowSize <= 0 || minimumCalls <= 0 || permittedCallsInHalfOpen <= 0) {
+                throw new IllegalArgumentException("windowSize, minimumCalls and permittedCallsInHalfOpen must be positive");
+            }
+            return new CircuitBreaker(this);
+        }
+    }
+}
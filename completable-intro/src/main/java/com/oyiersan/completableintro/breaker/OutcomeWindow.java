@@ -0,0 +1,58 @@
+package com.oyiersan.completableintro.breaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于次数的滑动窗口，无锁地记录最近 size 次调用的结果
+ */
+final class OutcomeWindow {
+
+    private static final int EMPTY = 0;
+
+    private static final int FAILED = 1;
+
+    private static final int SLOW = 2;
+
+    /** 非 EMPTY 的槽位都带这个标记，成功且不慢的调用只有这一位 */
+    private static final int RECORDED = 4;
+
+    private final AtomicIntegerArray slots;
+
+    private final AtomicLong recorded = new AtomicLong();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    OutcomeWindow(int size) {
+        this.slots = new AtomicIntegerArray(size);
+    }
+
+    void record(boolean failed, boolean slow) {
+        int outcome = RECORDED | (failed ? FAILED : EMPTY) | (slow ? SLOW : EMPTY);
+        int index = (int) (recorded.getAndIncrement() % slots.length());
+        int previous = slots.getAndSet(index, outcome);
+        failures.addAndGet(bit(outcome, FAILED) - bit(previous, FAILED));
+        slowCalls.addAndGet(bit(outcome, SLOW) - bit(previous, SLOW));
+    }
+
+    int total() {
+        return (int) Math.min(recorded.get(), slots.length());
+    }
+
+    float failureRate() {
+        int total = total();
+        return total == 0 ? 0 : failures.get() * 100f / total;
+    }
+
+    float slowCallRate() {
+        int total = total();
+        return total == 0 ? 0 : slowCalls.get() * 100f / total;
+    }
+
+    private static int bit(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+}
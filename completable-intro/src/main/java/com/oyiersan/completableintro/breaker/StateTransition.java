@@ -0,0 +1,53 @@
+package com.oyiersan.completableintro.breaker;
+
+/**
+ * 熔断器状态变化事件
+ */
+public final class StateTransition {
+
+    private final String name;
+
+    private final CircuitBreaker.State from;
+
+    private final CircuitBreaker.State to;
+
+    private final float failureRate;
+
+    private final float slowCallRate;
+
+    StateTransition(String name, CircuitBreaker.State from, CircuitBreaker.State to, float failureRate, float slowCallRate) {
+        this.name = name;
+        this.from = from;
+        this.to = to;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getFrom() {
+        return from;
+    }
+
+    public CircuitBreaker.State getTo() {
+        return to;
+    }
+
+    /** 触发变化时窗口内的失败率（百分比） */
+    public float getFailureRate() {
+        return failureRate;
+    }
+
+    /** 触发变化时窗口内的慢调用率（百分比） */
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker '" + name + "' " + from + " -> " + to
+                + " (failureRate=" + failureRate + "%, slowCallRate=" + slowCallRate + "%)";
+    }
+}
@@ -0,0 +1,130 @@
+package com.oyiersan.completableintro.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * 按参数缓存异步计算结果，返回值都是 CompletableFuture，可以直接放进 thenCompose 链。
+ * <p>
+ * 基于 Caffeine 的 AsyncLoadingCache：
+ * <ul>
+ *     <li>同一个 key 的并发调用共享同一个进行中的 future（single-flight），loader 只执行一次</li>
+ *     <li>maximumSize 按 W-TinyLFU 淘汰，expireAfterWrite 按写入时间过期</li>
+ *     <li>refreshAfterWrite 到期后仍返回旧值，同时在后台重新加载</li>
+ *     <li>加载失败的 future 不会被缓存，下次调用重新加载</li>
+ * </ul>
+ */
+public class AsyncValueCache<K, V> {
+
+    private final AsyncLoadingCache<K, V> cache;
+
+    private AsyncValueCache(AsyncLoadingCache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param executor 执行缓存维护和刷新回调的执行器，通常是共享的异步线程池；
+     *                 不默认使用 commonPool，loader 里的阻塞调用不应占用它
+     */
+    public static <K, V> Builder<K, V> builder(Function<? super K, ? extends CompletableFuture<V>> loader,
+                                               Executor executor) {
+        return new Builder<>(loader, executor);
+    }
+
+    public CompletableFuture<V> get(K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * 只查询已有的值（包括进行中的加载），不触发加载
+     */
+    public CompletableFuture<V> getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void invalidate(K key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * 命中、未命中、加载成功/失败次数及加载总耗时
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * 触发 Caffeine 的维护任务（淘汰、过期清理），主要用于测试
+     */
+    public void cleanUp() {
+        cache.synchronous().cleanUp();
+    }
+
+    public static final class Builder<K, V> {
+
+        private final Function<? super K, ? extends CompletableFuture<V>> loader;
+
+        private long maximumSize = -1;
+
+        private Duration expireAfterWrite;
+
+        private Duration refreshAfterWrite;
+
+        private final Executor executor;
+
+        private Ticker ticker = Ticker.systemTicker();
+
+        private Builder(Function<? super K, ? extends CompletableFuture<V>> loader, Executor executor) {
+            this.loader = loader;
+            this.executor = executor;
+        }
+
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        public Builder<K, V> refreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+            return this;
+        }
+
+        public Builder<K, V> ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public AsyncValueCache<K, V> build() {
+            Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                    .executor(executor)
+                    .ticker(ticker)
+                    .recordStats();
+            if (maximumSize >= 0) {
+                caffeine.maximumSize(maximumSize);
+            }
+            if (expireAfterWrite != null) {
+                caffeine.expireAfterWrite(expireAfterWrite);
+            }
+            if (refreshAfterWrite != null) {
+                caffeine.refreshAfterWrite(refreshAfterWrite);
+            }
+            return new AsyncValueCache<>(caffeine.buildAsync((key, ignored) -> loader.apply(key)));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.oyiersan.completableintro.cancel;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 真正可以取消的 CompletableFuture。
+ * <p>
+ * {@link CompletableFuture#cancel} 只改变 future 的状态，底层任务继续执行、继续占用线程。这里：
+ * <ul>
+ *     <li>cancel(true) 会中断正在执行该 stage 的线程；尚未开始的任务不再执行</li>
+ *     <li>向上游传播：通过 thenApply/thenApplyAsync/thenCompose/thenCombine 派生的 stage 被取消时，
+ *     若上游的所有派生 stage 都已取消，上游也被取消（只有这一个消费者依赖的上游才会被取消）</li>
+ *     <li>thenCompose 中正在进行的内层 future 一并取消</li>
+ *     <li>向下游传播沿用 CompletableFuture 的行为：依赖它的 stage 以 CancellationException 结束</li>
+ * </ul>
+ * 只覆盖了上述几个组合方法，其他方法（thenAccept、handle 等）返回普通 CompletableFuture，不参与向上游传播。
+ * 项目以 Java 8 编译，没有 newIncompleteFuture 可以统一覆盖。
+ */
+public class CancellableFuture<T> extends CompletableFuture<T> {
+
+    private static final Object DONE = new Object();
+
+    private static final Object INTERRUPTING = new Object();
+
+    /** 依赖的上游，取消时释放 */
+    private final CancellableFuture<?>[] sources;
+
+    /** 派生出的、尚未取消的下游数量 */
+    private final AtomicInteger dependents = new AtomicInteger();
+
+    /** null: 未开始；Thread: 正在执行；INTERRUPTING: 正在被中断；DONE: 已结束 */
+    private final AtomicReference<Object> runner = new AtomicReference<>();
+
+    /** thenCompose 的内层 future */
+    private volatile Future<?> inner;
+
+    public CancellableFuture() {
+        this.sources = new CancellableFuture<?>[0];
+    }
+
+    private CancellableFuture(CancellableFuture<?>... sources) {
+        this.sources = sources;
+        for (CancellableFuture<?> source : sources) {
+            source.dependents.incrementAndGet();
+        }
+    }
+
+    public static <U> CancellableFuture<U> supplyAsync(Supplier<U> supplier, Executor executor) {
+        CancellableFuture<U> future = new CancellableFuture<>();
+        future.runOn(executor, supplier);
+        return future;
+    }
+
+    public static CancellableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        }, executor);
+    }
+
+    @Override
+    public <U> CancellableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        CancellableFuture<U> dependent = new CancellableFuture<>(this);
+        whenComplete((value, ex) -> {
+            if (ex != null) {
+                dependent.completeExceptionally(wrap(ex));
+                return;
+            }
+            try {
+                dependent.complete(fn.apply(value));
+            } catch (Throwable t) {
+                dependent.completeExceptionally(wrap(t));
+            }
+        });
+        return dependent;
+    }
+
+    @Override
+    public <U> CancellableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        CancellableFuture<U> dependent = new CancellableFuture<>(this);
+        whenComplete((value, ex) -> {
+            if (ex != null) {
+                dependent.completeExceptionally(wrap(ex));
+            } else {
+                dependent.runOn(executor, () -> fn.apply(value));
+            }
+        });
+        return dependent;
+    }
+
+    @Override
+    public <U> CancellableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        CancellableFuture<U> dependent = new CancellableFuture<>(this);
+        whenComplete((value, ex) -> {
+            if (ex != null) {
+                dependent.completeExceptionally(wrap(ex));
+                return;
+            }
+            CompletableFuture<U> stage;
+            try {
+                stage = fn.apply(value).toCompletableFuture();
+            } catch (Throwable t) {
+                dependent.completeExceptionally(wrap(t));
+                return;
+            }
+            dependent.inner = stage;
+            if (dependent.isCancelled()) {
+                stage.cancel(true);
+                return;
+            }
+            stage.whenComplete((result, innerEx) -> {
+                if (innerEx != null) {
+                    dependent.completeExceptionally(wrap(innerEx));
+                } else {
+                    dependent.complete(result);
+                }
+            });
+        });
+        return dependent;
+    }
+
+    /**
+     * other 也是 CancellableFuture 时同样作为上游参与取消传播
+     */
+    @Override
+    public <U, V> CancellableFuture<V> thenCombine(CompletionStage<? extends U> other,
+                                                   BiFunction<? super T, ? super U, ? extends V> fn) {
+        CancellableFuture<V> dependent = other instanceof CancellableFuture
+                ? new CancellableFuture<>(this, (CancellableFuture<?>) other)
+                : new CancellableFuture<>(this);
+        CompletableFuture<? extends U> otherFuture = other.toCompletableFuture();
+        CompletableFuture.allOf(this, otherFuture).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                dependent.completeExceptionally(wrap(ex));
+                return;
+            }
+            try {
+                dependent.complete(fn.apply(join(), otherFuture.join()));
+            } catch (Throwable t) {
+                dependent.completeExceptionally(wrap(t));
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * 取消该 stage：中断正在执行它的线程、取消 thenCompose 的内层 future，
+     * 并释放上游；上游的派生 stage 全部取消时上游也被取消。
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (!cancelled) {
+            return false;
+        }
+        if (mayInterruptIfRunning) {
+            interruptRunner();
+        }
+        Future<?> innerFuture = inner;
+        if (innerFuture != null) {
+            innerFuture.cancel(mayInterruptIfRunning);
+        }
+        for (CancellableFuture<?> source : sources) {
+            source.releaseDependent(mayInterruptIfRunning);
+        }
+        return true;
+    }
+
+    /**
+     * 声明一个不通过本类方法派生的使用者，防止上游因为派生 stage 全部取消而被取消
+     */
+    public CancellableFuture<T> retain() {
+        dependents.incrementAndGet();
+        return this;
+    }
+
+    private void releaseDependent(boolean mayInterruptIfRunning) {
+        if (dependents.decrementAndGet() == 0 && !isDone()) {
+            cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private void runOn(Executor executor, Supplier<? extends T> task) {
+        try {
+            executor.execute(() -> run(task));
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        }
+    }
+
+    private void run(Supplier<? extends T> task) {
+        Thread current = Thread.currentThread();
+        // 已取消（或被其他方式完成）的任务不再执行
+        if (isDone() || !runner.compareAndSet(null, current)) {
+            return;
+        }
+        // 在登记 runner 之前被取消的情况，cancel 看不到本线程，这里再检查一次
+        if (isDone()) {
+            runner.set(DONE);
+            return;
+        }
+        try {
+            T value = task.get();
+            complete(value);
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        } finally {
+            if (!runner.compareAndSet(current, DONE)) {
+                // cancel 正在中断本线程，等它结束后清除中断标记，避免污染线程池中的线程
+                while (runner.get() == INTERRUPTING) {
+                    Thread.yield();
+                }
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void interruptRunner() {
+        Object current = runner.get();
+        if (current instanceof Thread && runner.compareAndSet(current, INTERRUPTING)) {
+            try {
+                ((Thread) current).interrupt();
+            } finally {
+                runner.set(DONE);
+            }
+        }
+    }
+
+    private static Throwable wrap(Throwable ex) {
+        if (ex instanceof CompletionException || ex instanceof CancellationException) {
+            return ex;
+        }
+        return new CompletionException(ex);
+    }
+}
@@ -0,0 +1,205 @@
+package com.oyiersan.completableintro.context;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 不可变的上下文快照（traceId、租户等），在异步跳转线程时随任务一起传递。
+ * <p>
+ * 内部是一条不可变链表：{@link #with} 只新建一个节点，捕获快照只是读取一个 ThreadLocal 引用，
+ * 切换线程时也只是替换这个引用，不复制任何 Map。只有包含 {@link ContextKey#mdc} 键的快照才会触碰 MDC。
+ */
+public final class Context {
+
+    public static final Context ROOT = new Context(null, null, null);
+
+    private static final ThreadLocal<Context> CURRENT = ThreadLocal.withInitial(() -> ROOT);
+
+    private final ContextKey<?> key;
+
+    private final Object value;
+
+    private final Context parent;
+
+    /** 链上是否有 MDC 键，没有时切换完全跳过 MDC */
+    private final boolean hasMdc;
+
+    private Context(ContextKey<?> key, Object value, Context parent) {
+        this.key = key;
+        this.value = value;
+        this.parent = parent;
+        this.hasMdc = key != null && (key.isMdc() || parent.hasMdc);
+    }
+
+    public static Context current() {
+        return CURRENT.get();
+    }
+
+    public <T> Context with(ContextKey<T> key, T value) {
+        return new Context(key, value, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        for (Context node = this; node.key != null; node = node.parent) {
+            if (node.key == key) {
+                return (T) node.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 让该快照在当前线程生效，关闭返回的 Scope 恢复之前的快照：
+     * <pre>{@code
+     * try (Context.Scope ignored = Context.current().with(TRACE_ID, "t-1").attach()) {
+     *     ...
+     * }
+     * }</pre>
+     */
+    public Scope attach() {
+        Context previous = swap(this);
+        return () -> swap(previous);
+    }
+
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            Context previous = swap(this);
+            try {
+                task.run();
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    public <T> Supplier<T> wrap(Supplier<T> supplier) {
+        return () -> {
+            Context previous = swap(this);
+            try {
+                return supplier.get();
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    public <T> Callable<T> wrap(Callable<T> callable) {
+        return () -> {
+            Context previous = swap(this);
+            try {
+                return callable.call();
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    public <T, R> Function<T, R> wrap(Function<T, R> fn) {
+        return value -> {
+            Context previous = swap(this);
+            try {
+                return fn.apply(value);
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    /**
+     * 用于 whenComplete；与 {@link #wrapFunction} 分开命名，隐式类型的 lambda 不会产生重载歧义
+     */
+    public <T, U> BiConsumer<T, U> wrapConsumer(BiConsumer<T, U> action) {
+        return (t, u) -> {
+            Context previous = swap(this);
+            try {
+                action.accept(t, u);
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    /**
+     * 用于 handle、thenCombine
+     */
+    public <T, U, R> BiFunction<T, U, R> wrapFunction(BiFunction<T, U, R> fn) {
+        return (t, u) -> {
+            Context previous = swap(this);
+            try {
+                return fn.apply(t, u);
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    /**
+     * 切换当前线程的快照，返回之前的快照
+     */
+    static Context swap(Context next) {
+        Context previous = CURRENT.get();
+        if (previous == next) {
+            return previous;
+        }
+        CURRENT.set(next);
+        if (previous.hasMdc || next.hasMdc) {
+            previous.clearMdc();
+            next.applyMdc();
+        }
+        return previous;
+    }
+
+    private void clearMdc() {
+        for (Context node = this; node.key != null; node = node.parent) {
+            if (node.key.isMdc()) {
+                MDC.remove(node.key.getName());
+            }
+        }
+    }
+
+    private void applyMdc() {
+        for (Context node = this; node.key != null; node = node.parent) {
+            // 同一个键被覆盖过时，只有最新的节点生效
+            if (node.key.isMdc() && !shadowed(node)) {
+                MDC.put(node.key.getName(), String.valueOf(node.value));
+            }
+        }
+    }
+
+    private boolean shadowed(Context target) {
+        for (Context node = this; node != target; node = node.parent) {
+            if (node.key == target.key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Context{");
+        for (Context node = this; node.key != null; node = node.parent) {
+            builder.append(node.key).append('=').append(node.value);
+            if (node.parent.key != null) {
+                builder.append(", ");
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * 不抛受检异常的 AutoCloseable
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
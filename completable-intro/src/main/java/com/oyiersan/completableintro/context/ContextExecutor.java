@@ -0,0 +1,27 @@
+package com.oyiersan.completableintro.context;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 执行器装饰：提交任务时捕获当前 {@link Context}，在工作线程上执行期间恢复它，结束后还原。
+ * <p>
+ * CompletableFuture 的 xxxAsync 在上一个 stage 完成的线程上调用 execute，
+ * 因此只要整条链都用这个执行器，上下文就会一跳一跳地传下去。
+ */
+public class ContextExecutor implements Executor {
+
+    private final Executor delegate;
+
+    private ContextExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    public static Executor wrap(Executor delegate) {
+        return delegate instanceof ContextExecutor ? delegate : new ContextExecutor(delegate);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(Context.current().wrap(command));
+    }
+}
@@ -0,0 +1,237 @@
+package com.oyiersan.completableintro.context;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 在注册回调时捕获 {@link Context}、在执行回调时恢复它的 CompletableFuture。
+ * <p>
+ * 与 {@link ContextExecutor} 不同，它不依赖执行器：同步的 thenApply 在完成上游的线程上执行时，
+ * 看到的也是注册时的上下文，而不是那个线程碰巧带着的上下文。
+ * 覆盖了 thenApply/thenAccept/thenRun/thenCompose/whenComplete/handle/exceptionally 及其 Async 版本，
+ * 其他方法（thenCombine 等）返回普通 CompletableFuture；项目以 Java 8 编译，没有 newIncompleteFuture 可以统一覆盖。
+ */
+public class ContextFuture<T> extends CompletableFuture<T> {
+
+    private static final Executor ASYNC_POOL = ForkJoinPool.commonPool();
+
+    public static <U> ContextFuture<U> supplyAsync(Supplier<U> supplier, Executor executor) {
+        ContextFuture<U> future = new ContextFuture<>();
+        Context context = Context.current();
+        try {
+            executor.execute(() -> {
+                Context previous = Context.swap(context);
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(wrap(ex));
+                } finally {
+                    Context.swap(previous);
+                }
+            });
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public static ContextFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * 把普通 CompletionStage 转为 ContextFuture，之后派生的 stage 都会传递上下文
+     */
+    public static <U> ContextFuture<U> from(CompletionStage<U> stage) {
+        if (stage instanceof ContextFuture) {
+            return (ContextFuture<U>) stage;
+        }
+        ContextFuture<U> future = new ContextFuture<>();
+        stage.whenComplete((value, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return then(null, false, (value, ex, dependent) -> dependent.complete(fn.apply(value)));
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return thenApplyAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return then(executor, false, (value, ex, dependent) -> dependent.complete(fn.apply(value)));
+    }
+
+    @Override
+    public ContextFuture<Void> thenAccept(Consumer<? super T> action) {
+        return thenAcceptAsync(action, null);
+    }
+
+    @Override
+    public ContextFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return thenAcceptAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public ContextFuture<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return then(executor, false, (value, ex, dependent) -> {
+            action.accept(value);
+            dependent.complete(null);
+        });
+    }
+
+    @Override
+    public ContextFuture<Void> thenRun(Runnable action) {
+        return thenRunAsync(action, null);
+    }
+
+    @Override
+    public ContextFuture<Void> thenRunAsync(Runnable action) {
+        return thenRunAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public ContextFuture<Void> thenRunAsync(Runnable action, Executor executor) {
+        return then(executor, false, (value, ex, dependent) -> {
+            action.run();
+            dependent.complete(null);
+        });
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenComposeAsync(fn, null);
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenComposeAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> ContextFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        return then(executor, false, (value, ex, dependent) ->
+                fn.apply(value).whenComplete((result, innerEx) -> {
+                    if (innerEx != null) {
+                        dependent.completeExceptionally(wrap(innerEx));
+                    } else {
+                        dependent.complete(result);
+                    }
+                }));
+    }
+
+    @Override
+    public ContextFuture<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteAsync(action, null);
+    }
+
+    @Override
+    public ContextFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public ContextFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        return then(executor, true, (value, ex, dependent) -> {
+            action.accept(value, ex);
+            if (ex != null) {
+                dependent.completeExceptionally(wrap(ex));
+            } else {
+                dependent.complete(value);
+            }
+        });
+    }
+
+    @Override
+    public <U> ContextFuture<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleAsync(fn, null);
+    }
+
+    @Override
+    public <U> ContextFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> ContextFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return then(executor, true, (value, ex, dependent) -> dependent.complete(fn.apply(value, ex)));
+    }
+
+    @Override
+    public ContextFuture<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return then(null, true, (value, ex, dependent) ->
+                dependent.complete(ex != null ? fn.apply(ex) : value));
+    }
+
+    /**
+     * 派生一个 stage：注册时捕获上下文，回调执行期间恢复它
+     *
+     * @param executor    为 null 时在完成上游的线程上同步执行
+     * @param handlesError 为 false 时上游异常直接传给下游，不执行回调
+     */
+    private <U> ContextFuture<U> then(Executor executor, boolean handlesError, Stage<T, U> stage) {
+        ContextFuture<U> dependent = new ContextFuture<>();
+        Context context = Context.current();
+        super.whenComplete((value, ex) -> {
+            if (ex != null && !handlesError) {
+                dependent.completeExceptionally(wrap(ex));
+                return;
+            }
+            Runnable task = () -> {
+                Context previous = Context.swap(context);
+                try {
+                    stage.run(value, ex, dependent);
+                } catch (Throwable t) {
+                    dependent.completeExceptionally(wrap(t));
+                } finally {
+                    Context.swap(previous);
+                }
+            };
+            if (executor == null) {
+                task.run();
+                return;
+            }
+            try {
+                executor.execute(task);
+            } catch (Throwable t) {
+                dependent.completeExceptionally(wrap(t));
+            }
+        });
+        return dependent;
+    }
+
+    private static Throwable wrap(Throwable ex) {
+        if (ex instanceof CompletionException || ex instanceof CancellationException) {
+            return ex;
+        }
+        return new CompletionException(ex);
+    }
+
+    @FunctionalInterface
+    private interface Stage<T, U> {
+
+        void run(T value, Throwable ex, ContextFuture<U> dependent) throws Throwable;
+    }
+}
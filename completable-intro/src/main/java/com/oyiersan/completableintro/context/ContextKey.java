@@ -0,0 +1,42 @@
+package com.oyiersan.completableintro.context;
+
+/**
+ * {@link Context} 中的键，按引用比较。
+ * <p>
+ * 通过 {@link #mdc(String)} 创建的键会在 Context 生效时同步写入 SLF4J MDC，使日志能按 traceId 等字段关联。
+ */
+public final class ContextKey<T> {
+
+    private final String name;
+
+    private final boolean mdc;
+
+    private ContextKey(String name, boolean mdc) {
+        this.name = name;
+        this.mdc = mdc;
+    }
+
+    public static <T> ContextKey<T> of(String name) {
+        return new ContextKey<>(name, false);
+    }
+
+    /**
+     * 同步到 MDC 的键，MDC 中同名字段由 Context 管理，不要再直接 MDC.put
+     */
+    public static ContextKey<String> mdc(String name) {
+        return new ContextKey<>(name, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    boolean isMdc() {
+        return mdc;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
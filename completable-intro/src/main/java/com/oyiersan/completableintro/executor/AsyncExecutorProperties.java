@@ -0,0 +1,121 @@
+package com.oyiersan.completableintro.executor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 共享异步线程池配置，对应 application.properties 中的 {@code async.executor.*}。
+ */
+@ConfigurationProperties(prefix = "async.executor")
+public class AsyncExecutorProperties {
+
+    private int corePoolSize = 8;
+
+    private int maxPoolSize = 16;
+
+    private int queueCapacity = 200;
+
+    private int keepAliveSeconds = 60;
+
+    private String threadNamePrefix = "async-";
+
+    private int awaitTerminationSeconds = 30;
+
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public void setCorePoolSize(int corePoolSize) {
+        this.corePoolSize = corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    public int getAwaitTerminationSeconds() {
+        return awaitTerminationSeconds;
+    }
+
+    public void setAwaitTerminationSeconds(int awaitTerminationSeconds) {
+        this.awaitTerminationSeconds = awaitTerminationSeconds;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ExecutionMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * 队列满且线程数达到上限时的拒绝策略
+     */
+    public enum RejectionPolicy {
+        /** 抛出 RejectedExecutionException，由调用方的 future 感知失败 */
+        ABORT,
+        /** 由提交线程自己执行，天然形成背压 */
+        CALLER_RUNS,
+        /** 静默丢弃新任务 */
+        DISCARD,
+        /** 丢弃队列中最老的任务 */
+        DISCARD_OLDEST;
+
+        public RejectedExecutionHandler toHandler() {
+            switch (this) {
+                case ABORT:
+                    return new ThreadPoolExecutor.AbortPolicy();
+                case DISCARD:
+                    return new ThreadPoolExecutor.DiscardPolicy();
+                case DISCARD_OLDEST:
+                    return new ThreadPoolExecutor.DiscardOldestPolicy();
+                case CALLER_RUNS:
+                default:
+                    return new ThreadPoolExecutor.CallerRunsPolicy();
+            }
+        }
+    }
+}
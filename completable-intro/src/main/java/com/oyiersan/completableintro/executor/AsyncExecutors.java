@@ -0,0 +1,36 @@
+package com.oyiersan.completableintro.executor;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 有界异步线程池的构建入口。
+ * <p>
+ * 作为 Spring Bean 使用时由容器负责 initialize/shutdown；在容器之外使用时，
+ * 调用方需要自己调用 {@link ThreadPoolTaskExecutor#initialize()} 和
+ * {@link ThreadPoolTaskExecutor#shutdown()}。
+ */
+public final class AsyncExecutors {
+
+    public static final String ASYNC_EXECUTOR = "asyncExecutor";
+
+    public static final String BLOCKING_EXECUTOR = "blockingExecutor";
+
+    private AsyncExecutors() {
+    }
+
+    public static ThreadPoolTaskExecutor boundedExecutor(AsyncExecutorProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        // 有界队列：超出后先扩容到 maxPoolSize，再交给拒绝策略
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setKeepAliveSeconds(properties.getKeepAliveSeconds());
+        executor.setThreadNamePrefix(properties.getThreadNamePrefix());
+        // 包一层计数，供监控读取拒绝次数
+        executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(properties.getRejectionPolicy().toHandler()));
+        // 关闭时等待已提交任务执行完，避免丢失进行中的异步结果
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(properties.getAwaitTerminationSeconds());
+        return executor;
+    }
+}
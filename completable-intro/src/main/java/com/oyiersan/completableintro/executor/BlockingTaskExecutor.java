@@ -0,0 +1,60 @@
+package com.oyiersan.completableintro.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 专门执行阻塞型 stage（远程调用、sleep 等）的执行器。
+ * <p>
+ * VIRTUAL 模式下每个任务一个虚拟线程，不占用 ForkJoinPool 或共享线程池的线程；
+ * PLATFORM 模式（或 JVM 不支持虚拟线程）下委托给传入的平台线程池，此时不负责关闭它。
+ */
+public class BlockingTaskExecutor implements Executor, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingTaskExecutor.class);
+
+    private final Executor delegate;
+
+    private final ExecutionMode mode;
+
+    private final boolean owned;
+
+    public BlockingTaskExecutor(ExecutionMode requestedMode, Executor platformExecutor) {
+        if (requestedMode == ExecutionMode.VIRTUAL && VirtualThreads.isSupported()) {
+            this.delegate = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            this.mode = ExecutionMode.VIRTUAL;
+            this.owned = true;
+        } else {
+            if (requestedMode == ExecutionMode.VIRTUAL) {
+                log.warn("Virtual threads are not available on Java {}, falling back to platform threads",
+                        System.getProperty("java.version"));
+            }
+            this.delegate = platformExecutor;
+            this.mode = ExecutionMode.PLATFORM;
+            this.owned = false;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(command);
+    }
+
+    /**
+     * @return 实际生效的模式
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void destroy() {
+        if (owned) {
+            ((ExecutorService) delegate).shutdown();
+        }
+    }
+}
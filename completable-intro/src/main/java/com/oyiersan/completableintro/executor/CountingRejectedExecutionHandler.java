@@ -0,0 +1,29 @@
+package com.oyiersan.completableintro.executor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计拒绝次数的拒绝策略装饰器，实际处理仍交给原策略（CALLER_RUNS 也计为一次拒绝）
+ */
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    private final RejectedExecutionHandler delegate;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        rejected.increment();
+        delegate.rejectedExecution(r, executor);
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
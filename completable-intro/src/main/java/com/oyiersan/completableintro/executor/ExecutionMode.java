@@ -0,0 +1,13 @@
+package com.oyiersan.completableintro.executor;
+
+/**
+ * 阻塞型任务的执行模式，对应 {@code async.executor.mode}
+ */
+public enum ExecutionMode {
+
+    /** 平台线程池（Java 8 可用），即共享的有界线程池 */
+    PLATFORM,
+
+    /** 每个任务一个虚拟线程，需要 JDK 21+，不支持时回退到 PLATFORM */
+    VIRTUAL
+}
@@ -0,0 +1,87 @@
+package com.oyiersan.completableintro.future;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * {@link Futures#iterate} 的实现：一个循环对象贯穿所有迭代。
+ * <p>
+ * 已完成的步骤在 for 循环里直接处理；未完成的步骤把循环对象自身注册为回调，回调里回到同一个循环。
+ * 回调在注册时就已完成而被同步执行的情况，由 wip 计数交回给正在运行的循环处理，而不是递归进入，
+ * 所以无论迭代多少次、同步还是异步完成，调用栈深度都是常量，也不会构建一条 future 链。
+ */
+final class AsyncLoop<S> implements BiConsumer<S, Throwable> {
+
+    private final Predicate<? super S> condition;
+
+    private final Function<? super S, ? extends CompletionStage<S>> step;
+
+    private final CompletableFuture<S> result = new CompletableFuture<>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** 由 wip 的原子操作发布给接手循环的线程 */
+    private S state;
+
+    private Throwable error;
+
+    AsyncLoop(S seed, Predicate<? super S> condition, Function<? super S, ? extends CompletionStage<S>> step) {
+        this.state = seed;
+        this.condition = condition;
+        this.step = step;
+    }
+
+    CompletableFuture<S> start() {
+        drive();
+        return result;
+    }
+
+    @Override
+    public void accept(S value, Throwable ex) {
+        state = value;
+        error = ex;
+        drive();
+    }
+
+    private void drive() {
+        if (wip.getAndIncrement() != 0) {
+            // 循环正在当前线程（或另一个线程）上运行，它会读取刚写入的 state
+            return;
+        }
+        for (; ; ) {
+            CompletableFuture<S> next;
+            try {
+                if (error != null) {
+                    result.completeExceptionally(Futures.unwrap(error));
+                    return;
+                }
+                if (!condition.test(state)) {
+                    result.complete(state);
+                    return;
+                }
+                next = step.apply(state).toCompletableFuture();
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            if (next.isDone()) {
+                try {
+                    state = next.join();
+                } catch (Throwable ex) {
+                    error = ex;
+                }
+                continue;
+            }
+            next.whenComplete(this);
+            if (wip.decrementAndGet() == 0) {
+                // 回调尚未执行，由它在完成时重新进入循环
+                return;
+            }
+            // 回调已经在注册时同步执行，state 已更新，继续由本线程循环
+        }
+    }
+}
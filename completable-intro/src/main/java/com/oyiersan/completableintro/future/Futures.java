@@ -0,0 +1,168 @@
+package com.oyiersan.completableintro.future;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * CompletableFuture 组合工具。
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * 异步循环：state 满足 condition 时执行 step 得到新的 state，直到不满足，结果为最后的 state。
+     * <p>
+     * 用于翻页、轮询这类需要迭代成千上万次的流程。与递归 thenCompose 不同，
+     * 调用栈深度恒定，也不为每次迭代构建新的 future 链；step 失败时整个循环以该异常失败。
+     */
+    public static <S> CompletableFuture<S> iterate(S seed, Predicate<? super S> condition,
+                                                   Function<? super S, ? extends CompletionStage<S>> step) {
+        return new AsyncLoop<S>(seed, condition, step).start();
+    }
+
+    /**
+     * 反复执行 body，直到它返回 false
+     */
+    public static CompletableFuture<Void> asyncWhile(Supplier<? extends CompletionStage<Boolean>> body) {
+        return iterate(Boolean.TRUE, Boolean::booleanValue, ignored -> body.get())
+                .thenApply(ignored -> null);
+    }
+
+    /**
+     * 类型安全的 allOf：直接得到按输入顺序排列的结果列表。
+     * <p>
+     * 与 {@link CompletableFuture#allOf} 构建的二叉树不同，这里每个输入只挂一个回调，
+     * 通过一个计数器判断是否全部完成，不需要数组拷贝，也不需要再 join 一遍。
+     * 任一输入失败时立即以该异常失败，不等待其余输入。
+     */
+    public static <T> CompletableFuture<List<T>> allAsList(List<? extends CompletableFuture<? extends T>> futures) {
+        int size = futures.size();
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        if (size == 0) {
+            result.complete(Collections.emptyList());
+            return result;
+        }
+        Object[] values = new Object[size];
+        AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            futures.get(i).whenComplete((value, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(unwrap(ex));
+                    return;
+                }
+                values[index] = value;
+                // decrementAndGet 保证所有 values 的写入对最后一个完成者可见
+                if (remaining.decrementAndGet() == 0) {
+                    @SuppressWarnings("unchecked")
+                    List<T> list = (List<T>) Arrays.asList(values);
+                    result.complete(list);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 按完成顺序把结果交给 consumer，先完成的结果不必等待最慢的那个。
+     * <p>
+     * consumer 的调用是串行的（不会并发调用），在完成输入的线程上执行。
+     * 返回的 future 在所有结果都交付后完成；任一输入失败或 consumer 抛出异常时立即失败，之后不再交付。
+     */
+    public static <T> CompletableFuture<Void> inCompletionOrder(List<? extends CompletableFuture<? extends T>> futures,
+                                                               Consumer<? super T> consumer) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (futures.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+        CompletionOrderDrain<T> drain = new CompletionOrderDrain<>(futures.size(), consumer, done);
+        for (CompletableFuture<? extends T> future : futures) {
+            future.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    done.completeExceptionally(unwrap(ex));
+                } else {
+                    drain.offer(value);
+                }
+            });
+        }
+        return done;
+    }
+
+    /**
+     * 去掉 CompletableFuture 在依赖链中附加的 CompletionException 包装
+     */
+    public static Throwable unwrap(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            return ex.getCause();
+        }
+        return ex;
+    }
+
+    /**
+     * 多个线程并发 offer，同一时刻只有一个线程负责 drain，保证 consumer 串行且按到达顺序调用
+     */
+    private static final class CompletionOrderDrain<T> {
+
+        private static final Object NULL = new Object();
+
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final Consumer<? super T> consumer;
+
+        private final CompletableFuture<Void> done;
+
+        private int remaining;
+
+        CompletionOrderDrain(int size, Consumer<? super T> consumer, CompletableFuture<Void> done) {
+            this.remaining = size;
+            this.consumer = consumer;
+            this.done = done;
+        }
+
+        void offer(T value) {
+            // ConcurrentLinkedQueue 不允许 null，用占位对象代替
+            @SuppressWarnings("unchecked")
+            T element = value == null ? (T) NULL : value;
+            queue.offer(element);
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                T next;
+                while ((next = queue.poll()) != null) {
+                    if (done.isDone()) {
+                        queue.clear();
+                        break;
+                    }
+                    try {
+                        consumer.accept(next == NULL ? null : next);
+                    } catch (Throwable ex) {
+                        done.completeExceptionally(ex);
+                        continue;
+                    }
+                    if (--remaining == 0) {
+                        done.complete(null);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
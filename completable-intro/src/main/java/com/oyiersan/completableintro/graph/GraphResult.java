@@ -0,0 +1,50 @@
+package com.oyiersan.completableintro.graph;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次任务图运行的结果：各节点的值、耗时以及关键路径。
+ */
+public final class GraphResult {
+
+    private final Map<String, Object> values;
+
+    private final Map<String, NodeTiming> timings;
+
+    private final List<NodeTiming> criticalPath;
+
+    private final long totalNanos;
+
+    GraphResult(Map<String, Object> values, Map<String, NodeTiming> timings,
+                List<NodeTiming> criticalPath, long totalNanos) {
+        this.values = Collections.unmodifiableMap(values);
+        this.timings = Collections.unmodifiableMap(timings);
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+        this.totalNanos = totalNanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        if (!values.containsKey(key)) {
+            throw new IllegalArgumentException("Unknown node '" + key + "'");
+        }
+        return (T) values.get(key);
+    }
+
+    public Map<String, NodeTiming> getTimings() {
+        return timings;
+    }
+
+    /**
+     * 决定整体耗时的那条依赖链，从入口节点到最后完成的节点
+     */
+    public List<NodeTiming> getCriticalPath() {
+        return criticalPath;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+}
@@ -0,0 +1,30 @@
+package com.oyiersan.completableintro.graph;
+
+import java.util.Map;
+
+/**
+ * 节点执行时可见的上游结果，只包含该节点声明的依赖。
+ */
+public final class NodeInputs {
+
+    private final String nodeKey;
+
+    private final Map<String, Object> values;
+
+    NodeInputs(String nodeKey, Map<String, Object> values) {
+        this.nodeKey = nodeKey;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        if (!values.containsKey(key)) {
+            throw new IllegalArgumentException("Node '" + nodeKey + "' does not declare input '" + key + "'");
+        }
+        return (T) values.get(key);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
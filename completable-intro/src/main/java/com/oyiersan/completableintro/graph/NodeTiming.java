@@ -0,0 +1,52 @@
+package com.oyiersan.completableintro.graph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个节点在一次运行中的时间点（相对于运行开始，单位纳秒）
+ */
+public final class NodeTiming {
+
+    private final String key;
+
+    private final long readyNanos;
+
+    private final long startNanos;
+
+    private final long endNanos;
+
+    NodeTiming(String key, long readyNanos, long startNanos, long endNanos) {
+        this.key = key;
+        this.readyNanos = readyNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /** 所有输入就绪的时间 */
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    /** 执行器真正开始执行的时间，与 ready 的差值即排队时间 */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getRunNanos() {
+        return endNanos - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return key + "[queue=" + TimeUnit.NANOSECONDS.toMicros(startNanos - readyNanos)
+                + "us, run=" + TimeUnit.NANOSECONDS.toMicros(getRunNanos()) + "us]";
+    }
+}
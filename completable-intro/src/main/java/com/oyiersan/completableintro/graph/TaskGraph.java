@@ -0,0 +1,308 @@
+package com.oyiersan.completableintro.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * 声明式异步任务图。
+ * <p>
+ * 节点通过 key 声明依赖，不需要手写 thenApply/thenCombine/allOf：
+ * <pre>
+ * TaskGraph graph = TaskGraph.builder(executor)
+ *         .node("cf1", in -> "result1")
+ *         .node("cf2", in -> "result2")
+ *         .node("cf3", Arrays.asList("cf1"), in -> "result3")
+ *         .node("cf4", Arrays.asList("cf1", "cf2"), in -> "result4")
+ *         .node("result", Arrays.asList("cf3", "cf4"), in -> in.get("cf3") + in.get("cf4"))
+ *         .build();
+ * GraphResult result = graph.execute().join();
+ * </pre>
+ * 每个节点在最后一个输入完成时立即提交到自己的执行器，上游结果直接传入，不再额外 join；
+ * 任一节点失败时整个运行以 {@link TaskGraphException} 失败，尚未开始的节点不再执行。
+ * TaskGraph 本身不可变，可以重复执行。
+ */
+public final class TaskGraph {
+
+    /** 按拓扑序排列的节点 */
+    private final TaskNode[] nodes;
+
+    private final int[][] inputIndexes;
+
+    private final int[][] dependents;
+
+    private final int[] roots;
+
+    private TaskGraph(TaskNode[] nodes, int[][] inputIndexes, int[][] dependents, int[] roots) {
+        this.nodes = nodes;
+        this.inputIndexes = inputIndexes;
+        this.dependents = dependents;
+        this.roots = roots;
+    }
+
+    public static Builder builder(Executor defaultExecutor) {
+        return new Builder(defaultExecutor);
+    }
+
+    public CompletableFuture<GraphResult> execute() {
+        return new Run().start();
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * 一次运行的可变状态
+     */
+    private final class Run {
+
+        private final CompletableFuture<GraphResult> result = new CompletableFuture<>();
+
+        private final AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(nodes.length);
+
+        private final AtomicIntegerArray pendingInputs = new AtomicIntegerArray(nodes.length);
+
+        private final AtomicInteger remaining = new AtomicInteger(nodes.length);
+
+        // 每个下标只由对应节点写入，通过 pendingInputs/remaining 的原子操作对读取方可见
+        private final long[] readyNanos = new long[nodes.length];
+
+        private final long[] startNanos = new long[nodes.length];
+
+        private final long[] endNanos = new long[nodes.length];
+
+        private final long origin = System.nanoTime();
+
+        CompletableFuture<GraphResult> start() {
+            if (nodes.length == 0) {
+                result.complete(new GraphResult(Collections.emptyMap(), Collections.emptyMap(),
+                        Collections.emptyList(), 0));
+                return result;
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                pendingInputs.set(i, inputIndexes[i].length);
+            }
+            for (int root : roots) {
+                schedule(root);
+            }
+            return result;
+        }
+
+        private void schedule(int index) {
+            readyNanos[index] = System.nanoTime() - origin;
+            TaskNode node = nodes[index];
+            Map<String, Object> inputs = new HashMap<>(inputIndexes[index].length * 2);
+            for (int input : inputIndexes[index]) {
+                inputs.put(nodes[input].key, values.get(input));
+            }
+            NodeInputs nodeInputs = new NodeInputs(node.key, inputs);
+            try {
+                node.executor.execute(() -> run(index, nodeInputs));
+            } catch (Throwable ex) {
+                fail(index, ex);
+            }
+        }
+
+        private void run(int index, NodeInputs nodeInputs) {
+            if (result.isDone()) {
+                // 已有节点失败，后续节点不再执行
+                return;
+            }
+            startNanos[index] = System.nanoTime() - origin;
+            TaskNode node = nodes[index];
+            try {
+                if (node.async) {
+                    CompletionStage<Object> stage = node.invokeAsync(nodeInputs);
+                    stage.whenComplete((value, ex) -> {
+                        if (ex != null) {
+                            fail(index, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                        } else {
+                            complete(index, value);
+                        }
+                    });
+                } else {
+                    complete(index, node.function.apply(nodeInputs));
+                }
+            } catch (Throwable ex) {
+                fail(index, ex);
+            }
+        }
+
+        private void complete(int index, Object value) {
+            endNanos[index] = System.nanoTime() - origin;
+            values.set(index, value);
+            for (int dependent : dependents[index]) {
+                if (pendingInputs.decrementAndGet(dependent) == 0) {
+                    schedule(dependent);
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private void fail(int index, Throwable ex) {
+            result.completeExceptionally(new TaskGraphException(nodes[index].key, ex));
+        }
+
+        private void finish() {
+            Map<String, Object> valueMap = new LinkedHashMap<>();
+            Map<String, NodeTiming> timingMap = new LinkedHashMap<>();
+            NodeTiming[] timings = new NodeTiming[nodes.length];
+            int last = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                timings[i] = new NodeTiming(nodes[i].key, readyNanos[i], startNanos[i], endNanos[i]);
+                valueMap.put(nodes[i].key, values.get(i));
+                timingMap.put(nodes[i].key, timings[i]);
+                if (endNanos[i] > endNanos[last]) {
+                    last = i;
+                }
+            }
+            result.complete(new GraphResult(valueMap, timingMap, criticalPath(timings, last), endNanos[last]));
+        }
+
+        /**
+         * 从最后完成的节点往回走，每一步选择最晚完成的输入，即让该节点就绪的那个依赖
+         */
+        private List<NodeTiming> criticalPath(NodeTiming[] timings, int last) {
+            Deque<NodeTiming> path = new ArrayDeque<>();
+            int current = last;
+            while (current >= 0) {
+                path.addFirst(timings[current]);
+                int next = -1;
+                for (int input : inputIndexes[current]) {
+                    if (next < 0 || endNanos[input] > endNanos[next]) {
+                        next = input;
+                    }
+                }
+                current = next;
+            }
+            return new ArrayList<>(path);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Executor defaultExecutor;
+
+        private final Map<String, TaskNode> nodes = new LinkedHashMap<>();
+
+        private Builder(Executor defaultExecutor) {
+            if (defaultExecutor == null) {
+                throw new IllegalArgumentException("defaultExecutor must not be null");
+            }
+            this.defaultExecutor = defaultExecutor;
+        }
+
+        /** 没有依赖的入口节点，使用默认执行器 */
+        public Builder node(String key, Function<NodeInputs, ?> function) {
+            return node(key, Collections.emptyList(), defaultExecutor, function);
+        }
+
+        public Builder node(String key, List<String> inputs, Function<NodeInputs, ?> function) {
+            return node(key, inputs, defaultExecutor, function);
+        }
+
+        public Builder node(String key, List<String> inputs, Executor executor, Function<NodeInputs, ?> function) {
+            return add(new TaskNode(key, inputs, executor, function, false));
+        }
+
+        /**
+         * 返回 CompletionStage 的节点（例如远程调用），在 executor 上发起调用，stage 完成时节点完成
+         */
+        public Builder asyncNode(String key, List<String> inputs, Executor executor,
+                                 Function<NodeInputs, ? extends CompletionStage<?>> function) {
+            return add(new TaskNode(key, inputs, executor, function, true));
+        }
+
+        public Builder asyncNode(String key, List<String> inputs,
+                                 Function<NodeInputs, ? extends CompletionStage<?>> function) {
+            return asyncNode(key, inputs, defaultExecutor, function);
+        }
+
+        private Builder add(TaskNode node) {
+            if (node.key == null || node.function == null || node.executor == null || node.inputs == null) {
+                throw new IllegalArgumentException("key, inputs, executor and function must not be null");
+            }
+            if (nodes.containsKey(node.key)) {
+                throw new IllegalArgumentException("Duplicate node '" + node.key + "'");
+            }
+            nodes.put(node.key, node);
+            return this;
+        }
+
+        /**
+         * 校验依赖并按拓扑序固化节点
+         *
+         * @throws IllegalArgumentException 依赖了不存在的节点
+         * @throws IllegalStateException    存在环
+         */
+        public TaskGraph build() {
+            Map<String, List<String>> dependentKeys = new HashMap<>();
+            Map<String, Integer> inDegree = new HashMap<>();
+            for (TaskNode node : nodes.values()) {
+                inDegree.put(node.key, node.inputs.size());
+                for (String input : node.inputs) {
+                    if (!nodes.containsKey(input)) {
+                        throw new IllegalArgumentException("Node '" + node.key + "' depends on unknown node '" + input + "'");
+                    }
+                    dependentKeys.computeIfAbsent(input, k -> new ArrayList<>()).add(node.key);
+                }
+            }
+
+            // Kahn 拓扑排序
+            List<TaskNode> ordered = new ArrayList<>(nodes.size());
+            Deque<String> ready = new ArrayDeque<>();
+            for (TaskNode node : nodes.values()) {
+                if (node.inputs.isEmpty()) {
+                    ready.add(node.key);
+                }
+            }
+            while (!ready.isEmpty()) {
+                String key = ready.poll();
+                ordered.add(nodes.get(key));
+                for (String dependent : dependentKeys.getOrDefault(key, Collections.emptyList())) {
+                    if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+            if (ordered.size() != nodes.size()) {
+                throw new IllegalStateException("Task graph contains a cycle");
+            }
+
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < ordered.size(); i++) {
+                indexes.put(ordered.get(i).key, i);
+            }
+            int[][] inputIndexes = new int[ordered.size()][];
+            int[][] dependents = new int[ordered.size()][];
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < ordered.size(); i++) {
+                TaskNode node = ordered.get(i);
+                inputIndexes[i] = node.inputs.stream().mapToInt(indexes::get).toArray();
+                dependents[i] = dependentKeys.getOrDefault(node.key, Collections.emptyList())
+                        .stream().mapToInt(indexes::get).toArray();
+                if (inputIndexes[i].length == 0) {
+                    roots.add(i);
+                }
+            }
+            return new TaskGraph(ordered.toArray(new TaskNode[0]), inputIndexes, dependents,
+                    roots.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
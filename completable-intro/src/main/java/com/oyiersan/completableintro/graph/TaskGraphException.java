@@ -0,0 +1,18 @@
+package com.oyiersan.completableintro.graph;
+
+/**
+ * 任务图中某个节点执行失败
+ */
+public class TaskGraphException extends RuntimeException {
+
+    private final String nodeKey;
+
+    public TaskGraphException(String nodeKey, Throwable cause) {
+        super("Node '" + nodeKey + "' failed: " + cause, cause);
+        this.nodeKey = nodeKey;
+    }
+
+    public String getNodeKey() {
+        return nodeKey;
+    }
+}
@@ -0,0 +1,36 @@
+package com.oyiersan.completableintro.graph;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * 任务图中的一个节点：key、依赖的 key、执行器和计算逻辑。
+ */
+final class TaskNode {
+
+    final String key;
+
+    final List<String> inputs;
+
+    final Executor executor;
+
+    /** 同步节点返回结果，异步节点返回 CompletionStage */
+    final Function<NodeInputs, ?> function;
+
+    final boolean async;
+
+    TaskNode(String key, List<String> inputs, Executor executor, Function<NodeInputs, ?> function, boolean async) {
+        this.key = key;
+        this.inputs = inputs;
+        this.executor = executor;
+        this.function = function;
+        this.async = async;
+    }
+
+    @SuppressWarnings("unchecked")
+    CompletionStage<Object> invokeAsync(NodeInputs nodeInputs) {
+        return (CompletionStage<Object>) function.apply(nodeInputs);
+    }
+}
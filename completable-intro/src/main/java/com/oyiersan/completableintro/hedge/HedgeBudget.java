@@ -0,0 +1,59 @@
+package com.oyiersan.completableintro.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求的额度：每个请求存入 ratio 个令牌，每次对冲消耗 1 个，令牌数有上限。
+ * <p>
+ * 因此长期来看对冲请求不超过总请求的 ratio，短时间的突发也受 maxTokens 限制，
+ * 后端整体变慢时不会把流量翻倍。
+ */
+public class HedgeBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+
+    private final long maxTokens;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    /**
+     * @param ratio     对冲请求占比上限，例如 0.05
+     * @param maxTokens 最多累积的对冲次数
+     */
+    public HedgeBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio must be in [0, 1]: " + ratio);
+        }
+        this.depositPerRequest = Math.round(ratio * SCALE);
+        this.maxTokens = (long) maxTokens * SCALE;
+    }
+
+    public void onRequest() {
+        if (depositPerRequest == 0) {
+            return;
+        }
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + depositPerRequest)));
+    }
+
+    /**
+     * @return 是否允许发起一次对冲
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - SCALE));
+        return true;
+    }
+}
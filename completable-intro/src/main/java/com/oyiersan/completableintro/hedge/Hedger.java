@@ -0,0 +1,177 @@
+package com.oyiersan.completableintro.hedge;
+
+import com.oyiersan.completableintro.timer.Timeout;
+import com.oyiersan.completableintro.timer.Timer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 对冲（推测）请求：主请求超过观测到的百分位耗时仍未返回时，再发起一次相同的请求，
+ * 取先成功的结果并取消另一个。
+ * <p>
+ * 对冲延迟取自 {@link LatencyTracker}，样本不足时使用 initialDelay；
+ * 是否真正发起对冲由 {@link HedgeBudget} 决定。每个 Hedger 对应一个依赖（例如 findName），
+ * 不同依赖的耗时分布不同，不应共用。
+ * <p>
+ * 时间轮只负责到期通知，对冲请求在 executor 上发起：supplier 里的同步工作不能拖慢同一个时间轮上的其他超时。
+ */
+public class Hedger {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final Timer timer;
+
+    private final LatencyTracker tracker;
+
+    private final HedgeBudget budget;
+
+    private final long initialDelayNanos;
+
+    private final Executor executor;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param executor 对冲请求在哪个执行器上发起，避免在时间轮线程上执行业务代码
+     */
+    public Hedger(Timer timer, LatencyTracker tracker, HedgeBudget budget, long initialDelay, TimeUnit unit,
+                  Executor executor) {
+        this.timer = timer;
+        this.tracker = tracker;
+        this.budget = budget;
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> attempt) {
+        requests.incrementAndGet();
+        budget.onRequest();
+        HedgedCall<T> call = new HedgedCall<>(attempt);
+        call.start();
+        return call.result;
+    }
+
+    public long hedgeDelayNanos() {
+        long observed = tracker.percentileNanos(MIN_SAMPLES);
+        return observed < 0 ? initialDelayNanos : observed;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /** 对冲请求先于主请求成功的次数 */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    private final class HedgedCall<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final Supplier<CompletableFuture<T>> attempt;
+
+        /** 已发起且尚未结束的请求数，归零且 result 未完成说明全部失败 */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile CompletableFuture<T> primary;
+
+        private volatile CompletableFuture<T> hedge;
+
+        private Timeout hedgeTimeout;
+
+        HedgedCall(Supplier<CompletableFuture<T>> attempt) {
+            this.attempt = attempt;
+        }
+
+        void start() {
+            primary = launch(false);
+            if (!result.isDone()) {
+                hedgeTimeout = timer.newTimeout(this::fireHedge, hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+                result.whenComplete((v, ex) -> hedgeTimeout.cancel());
+            }
+        }
+
+        /**
+         * 在时间轮线程上执行，只把发起对冲转交给 executor
+         */
+        private void fireHedge() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                executor.execute(this::launchHedge);
+            } catch (RejectedExecutionException ignored) {
+                // 执行器已满或已关闭：不对冲，继续等待主请求
+            }
+        }
+
+        private void launchHedge() {
+            if (result.isDone() || !budget.tryAcquire()) {
+                return;
+            }
+            hedges.incrementAndGet();
+            hedge = launch(true);
+            if (result.isDone() && !hedge.isDone()) {
+                // 发起对冲的同时主请求已经结束
+                hedge.cancel(true);
+            }
+        }
+
+        private CompletableFuture<T> launch(boolean isHedge) {
+            inFlight.incrementAndGet();
+            long start = timer.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = attempt.get();
+            } catch (Throwable ex) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+            }
+            future.whenComplete((value, ex) -> {
+                if (ex == null) {
+                    tracker.record(timer.nanoTime() - start);
+                    if (result.complete(value)) {
+                        if (isHedge) {
+                            hedgeWins.incrementAndGet();
+                        }
+                        cancelLoser(isHedge);
+                    }
+                } else if (ex instanceof CancellationException) {
+                    // 输给另一个请求而被取消：记录已经花费的时间作为下限，避免慢样本被系统性丢弃
+                    tracker.record(timer.nanoTime() - start);
+                    if (inFlight.decrementAndGet() == 0) {
+                        // 被外部取消且没有其他请求在进行：不能让 result 永远挂起
+                        result.completeExceptionally(ex);
+                    }
+                } else if (inFlight.decrementAndGet() == 0) {
+                    // 所有已发起的请求都失败；对冲尚未发起时不再等待，直接失败
+                    result.completeExceptionally(ex);
+                }
+            });
+            return future;
+        }
+
+        private void cancelLoser(boolean hedgeWon) {
+            CompletableFuture<T> loser = hedgeWon ? primary : hedge;
+            if (loser != null) {
+                loser.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.oyiersan.completableintro.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近 windowSize 次调用耗时的滑动窗口，用于估计百分位。
+ * <p>
+ * 记录是无锁的；百分位不是每次都排序，而是每新增 refreshInterval 个样本重新计算一次并缓存。
+ */
+public class LatencyTracker {
+
+    private final AtomicLongArray samples;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final int refreshInterval;
+
+    private final double percentile;
+
+    private volatile long cachedValue = -1;
+
+    private volatile long cachedAt;
+
+    /**
+     * @param percentile 需要估计的百分位，例如 0.95
+     */
+    public LatencyTracker(int windowSize, double percentile) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1]: " + percentile);
+        }
+        this.samples = new AtomicLongArray(windowSize);
+        this.refreshInterval = Math.max(1, windowSize / 8);
+        this.percentile = percentile;
+    }
+
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), nanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return 百分位耗时（纳秒），样本不足 minSamples 时返回 -1
+     */
+    public long percentileNanos(int minSamples) {
+        long current = count.get();
+        if (current < minSamples || current == 0) {
+            return -1;
+        }
+        if (cachedValue < 0 || current - cachedAt >= refreshInterval) {
+            int size = (int) Math.min(current, samples.length());
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = samples.get(i);
+            }
+            Arrays.sort(copy);
+            cachedValue = copy[(int) Math.min(size - 1, Math.ceil(percentile * size) - 1)];
+            cachedAt = current;
+        }
+        return cachedValue;
+    }
+}
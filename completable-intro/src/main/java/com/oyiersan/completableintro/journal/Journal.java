@@ -0,0 +1,681 @@
+package com.oyiersan.completableintro.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 异步追加日志（write-behind journal）：append 立即返回 future，记录落盘（fsync）后完成。
+ * <p>
+ * 单个写线程从队列里一次取出所有等待中的记录，写入同一个缓冲区，经 FileChannel 写入当前段文件后只 fsync 一次
+ * （group commit），然后完成这一批的 future。并发越高每批越大，吞吐随并发增长，而不是被单次 fsync 的延迟封顶。
+ * <p>
+ * 文件布局：目录下若干 {@code <首条 sequence>.log} 段文件，当前段超过 segmentBytes 后切换到新段。
+ * 每条记录为 {@code [body 长度][CRC32][sequence][key 长度][key][value]}，
+ * 启动时逐条校验，最后一段末尾写了一半的记录（进程崩溃）被截掉，其余段损坏则拒绝打开。
+ * <p>
+ * 压缩：已封存的段合并为一个段，每个 key 只保留最新的记录。replay 按顺序重放，后面的记录覆盖前面的，
+ * 因此压缩前后重放得到的每个 key 的最终值相同。压缩在写线程上执行，期间 append 排队等待。
+ */
+public class Journal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    /** 压缩的临时文件，替换成段文件之前崩溃时启动时删除 */
+    static final String COMPACT_TEMP = "segments" + COMPACT_SUFFIX;
+
+    /** body 长度 + CRC32 */
+    private static final int HEADER_BYTES = 8;
+
+    /** sequence + key 长度 */
+    private static final int BODY_PREFIX_BYTES = 12;
+
+    private final Path dir;
+
+    private final long segmentBytes;
+
+    private final int maxBatch;
+
+    private final int compactThreshold;
+
+    private final Executor completionExecutor;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    /** 封存的段加当前段，修改持有写锁，replay 持有读锁 */
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+    private final Thread writer;
+
+    private final AtomicLong appended = new AtomicLong();
+
+    private final AtomicLong commits = new AtomicLong();
+
+    private final AtomicLong compactions = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /** fsync 失败后文件状态未知，之后的 append 全部失败 */
+    private volatile IOException failure;
+
+    // 以下字段只由写线程访问（构造完成后）
+
+    private Segment active;
+
+    private FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private long nextSequence;
+
+    private Journal(Builder builder) throws IOException {
+        this.dir = builder.dir;
+        this.segmentBytes = builder.segmentBytes;
+        this.maxBatch = builder.maxBatch;
+        this.compactThreshold = builder.compactThreshold;
+        this.completionExecutor = builder.completionExecutor;
+        this.buffer = ByteBuffer.allocateDirect(builder.bufferBytes);
+        recover();
+        this.writer = new Thread(this::runWriter, "journal-writer-" + dir.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Builder builder(Path dir) {
+        return new Builder(dir);
+    }
+
+    /**
+     * 追加一条记录，返回的 future 在记录 fsync 后以它的 sequence 完成
+     */
+    public CompletableFuture<Long> append(String key, byte[] value) {
+        Append request = new Append(key.getBytes(StandardCharsets.UTF_8), value);
+        int size = HEADER_BYTES + BODY_PREFIX_BYTES + request.key.length + value.length;
+        if (size > segmentBytes) {
+            request.future.completeExceptionally(new IllegalArgumentException(
+                    "Record of " + size + " bytes exceeds segment size " + segmentBytes));
+            return request.future;
+        }
+        submit(request);
+        return request.future;
+    }
+
+    public CompletableFuture<Long> append(String key, String value) {
+        return append(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 合并所有已封存的段，每个 key 只保留最新的记录
+     */
+    public CompletableFuture<Void> compact() {
+        Compact request = new Compact();
+        submit(request);
+        return request.future;
+    }
+
+    /**
+     * 按 sequence 顺序重放所有已落盘的记录。通常在启动时、append 之前调用
+     */
+    public void replay(Consumer<? super JournalRecord> consumer) throws IOException {
+        segmentsLock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                scan(segment.path, segment.durableSize, consumer);
+            }
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * fsync 次数，appended / commits 即平均每批的记录数
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public int getSegmentCount() {
+        segmentsLock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 停止接收新记录，等待已提交的记录落盘后关闭文件
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Request request) {
+        if (!running) {
+            request.fail(new RejectedExecutionException("Journal " + dir + " is closed"));
+            return;
+        }
+        queue.add(request);
+        // 与 close 竞争：写线程可能已经退出，撤回请求
+        if (!running && queue.remove(request)) {
+            request.fail(new RejectedExecutionException("Journal " + dir + " is closed"));
+        }
+    }
+
+    // ---------------------------------------------------------------- 写线程
+
+    private void runWriter() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            Request first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                if (!running && queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            process(batch);
+            batch.clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment {}", active.path, e);
+        }
+    }
+
+    private void process(List<Request> batch) {
+        List<Append> written = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            if (failure != null) {
+                request.fail(failure);
+                continue;
+            }
+            if (request instanceof Compact) {
+                // 先让压缩之前的记录落盘；这里的 fsync 失败与 append 一样处理，不能当成压缩失败
+                try {
+                    commit(written);
+                } catch (IOException e) {
+                    fail(e, written);
+                    request.fail(e);
+                    written.clear();
+                    continue;
+                }
+                try {
+                    compactSealed();
+                    ((Compact) request).future.complete(null);
+                } catch (IOException e) {
+                    // 压缩失败不影响已有的段，原子替换之前的临时文件下次启动时删除
+                    log.warn("Journal compaction failed", e);
+                    request.fail(e);
+                }
+                continue;
+            }
+            try {
+                write((Append) request);
+                written.add((Append) request);
+            } catch (IOException e) {
+                fail(e, written);
+                request.fail(e);
+                written.clear();
+            }
+        }
+        if (failure == null) {
+            try {
+                commit(written);
+            } catch (IOException e) {
+                fail(e, written);
+            }
+        }
+    }
+
+    private void write(Append append) throws IOException {
+        int size = HEADER_BYTES + BODY_PREFIX_BYTES + append.key.length + append.value.length;
+        long segmentSize = channel.position() + buffer.position();
+        if (segmentSize > 0 && segmentSize + size > segmentBytes) {
+            roll();
+        }
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+        }
+        append.sequence = nextSequence++;
+        int bodyStart = buffer.position() + HEADER_BYTES;
+        buffer.position(bodyStart);
+        buffer.putLong(append.sequence).putInt(append.key.length).put(append.key).put(append.value);
+        int end = buffer.position();
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyStart).limit(end);
+        crc.update(body);
+        buffer.putInt(bodyStart - HEADER_BYTES, end - bodyStart);
+        buffer.putInt(bodyStart - 4, (int) crc.getValue());
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 写入缓冲区并 fsync，然后完成这一批记录的 future
+     */
+    private void commit(List<Append> written) throws IOException {
+        if (written.isEmpty() && buffer.position() == 0) {
+            return;
+        }
+        flush();
+        channel.force(false);
+        active.durableSize = channel.position();
+        commits.incrementAndGet();
+        appended.addAndGet(written.size());
+        for (Append append : written) {
+            complete(append);
+        }
+        written.clear();
+    }
+
+    private void complete(Append append) {
+        try {
+            completionExecutor.execute(() -> append.future.complete(append.sequence));
+        } catch (RejectedExecutionException ex) {
+            append.future.complete(append.sequence);
+        }
+    }
+
+    private void fail(IOException e, List<Append> written) {
+        log.error("Journal {} write failed, rejecting further appends", dir, e);
+        failure = e;
+        for (Append append : written) {
+            append.fail(e);
+        }
+    }
+
+    /**
+     * 当前段写满：fsync 后封存，打开新段。已写入旧段的记录在本批结束时随新段的 fsync 一起完成
+     */
+    private void roll() throws IOException {
+        flush();
+        channel.force(false);
+        active.durableSize = channel.position();
+        channel.close();
+        Segment next = new Segment(segmentPath(nextSequence), nextSequence);
+        channel = FileChannel.open(next.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        segmentsLock.writeLock().lock();
+        try {
+            segments.add(next);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        active = next;
+        if (compactThreshold > 0 && segments.size() - 1 >= compactThreshold) {
+            try {
+                compactSealed();
+            } catch (IOException e) {
+                // 与 compact() 一致：压缩失败不影响已写入的段，下次切换时再试
+                log.warn("Journal automatic compaction failed", e);
+            }
+        }
+    }
+
+    private void compactSealed() throws IOException {
+        List<Segment> sealed;
+        segmentsLock.readLock().lock();
+        try {
+            sealed = new ArrayList<>(segments.subList(0, segments.size() - 1));
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+        // 移除再放入，迭代顺序即每个 key 最后一次写入的顺序
+        Map<String, JournalRecord> latest = new LinkedHashMap<>();
+        for (Segment segment : sealed) {
+            scan(segment.path, segment.durableSize, record -> {
+                latest.remove(record.getKey());
+                latest.put(record.getKey(), record);
+            });
+        }
+        Segment last = sealed.get(sealed.size() - 1);
+        Path temp = dir.resolve(COMPACT_TEMP);
+        long size;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            for (JournalRecord record : latest.values()) {
+                ByteBuffer encoded = encode(record);
+                while (encoded.hasRemaining()) {
+                    out.write(encoded);
+                }
+            }
+            out.force(false);
+            size = out.position();
+        }
+        Segment compacted = new Segment(last.path, last.firstSequence);
+        compacted.durableSize = size;
+        segmentsLock.writeLock().lock();
+        try {
+            // 先原子替换最后一个封存段，再删除前面的段。中途崩溃时残留的段按文件名排在压缩结果之前，
+            // 重放时先放旧值、再被压缩结果覆盖，每个 key 的最终值仍然正确，只是多了重复记录
+            Files.move(temp, last.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (Segment segment : sealed.subList(0, sealed.size() - 1)) {
+                Files.deleteIfExists(segment.path);
+            }
+            segments.removeAll(sealed);
+            segments.add(0, compacted);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        syncDirectory();
+        compactions.incrementAndGet();
+        log.info("Compacted {} journal segments into {} ({} records)", sealed.size(), last.path, latest.size());
+    }
+
+    private static ByteBuffer encode(JournalRecord record) {
+        byte[] key = record.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = record.getValue();
+        int bodyLength = BODY_PREFIX_BYTES + key.length + value.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.position(HEADER_BYTES);
+        buffer.putLong(record.getSequence()).putInt(key.length).put(key).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyLength);
+        buffer.putInt(0, bodyLength).putInt(4, (int) crc.getValue());
+        buffer.rewind();
+        return buffer;
+    }
+
+    // ---------------------------------------------------------------- 启动恢复
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        List<Segment> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(COMPACT_SUFFIX)) {
+                    // 上次压缩未完成，原来的段仍然完整
+                    Files.delete(path);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    found.add(new Segment(path, Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+                }
+            }
+        }
+        Collections.sort(found, (a, b) -> Long.compare(a.firstSequence, b.firstSequence));
+        long lastSequence = 0;
+        for (int i = 0; i < found.size(); i++) {
+            Segment segment = found.get(i);
+            long fileSize = Files.size(segment.path);
+            long[] last = {lastSequence};
+            long valid = scan(segment.path, fileSize, record -> last[0] = Math.max(last[0], record.getSequence()));
+            lastSequence = last[0];
+            if (valid < fileSize) {
+                if (i != found.size() - 1) {
+                    throw new IOException("Journal segment " + segment.path + " is corrupted at offset " + valid);
+                }
+                log.warn("Truncating torn tail of journal segment {} from {} to {} bytes", segment.path, fileSize, valid);
+                try (FileChannel truncate = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                    truncate.truncate(valid);
+                    truncate.force(false);
+                }
+            }
+            segment.durableSize = valid;
+        }
+        nextSequence = lastSequence + 1;
+        segments.addAll(found);
+        Segment last = found.isEmpty() ? null : found.get(found.size() - 1);
+        if (last != null && last.durableSize < segmentBytes) {
+            active = last;
+            channel = FileChannel.open(last.path, StandardOpenOption.WRITE);
+            channel.position(last.durableSize);
+        } else {
+            active = new Segment(segmentPath(nextSequence), nextSequence);
+            channel = FileChannel.open(active.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            syncDirectory();
+            segments.add(active);
+        }
+    }
+
+    /**
+     * 顺序读取 path 的前 limit 字节，逐条交给 consumer
+     *
+     * @return 完整且校验通过的字节数，遇到写了一半或校验失败的记录时停在它之前
+     */
+    private static long scan(Path path, long limit, Consumer<? super JournalRecord> consumer) throws IOException {
+        long position = 0;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024))) {
+            CRC32 crc = new CRC32();
+            while (position + HEADER_BYTES <= limit) {
+                int bodyLength = in.readInt();
+                int checksum = in.readInt();
+                if (bodyLength < BODY_PREFIX_BYTES || position + HEADER_BYTES + bodyLength > limit) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                in.readFully(body);
+                crc.reset();
+                crc.update(body, 0, bodyLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                long sequence = buffer.getLong();
+                int keyLength = buffer.getInt();
+                if (keyLength < 0 || keyLength > buffer.remaining()) {
+                    break;
+                }
+                String key = new String(body, BODY_PREFIX_BYTES, keyLength, StandardCharsets.UTF_8);
+                byte[] value = new byte[bodyLength - BODY_PREFIX_BYTES - keyLength];
+                System.arraycopy(body, BODY_PREFIX_BYTES + keyLength, value, 0, value.length);
+                consumer.accept(new JournalRecord(sequence, key, value));
+                position += HEADER_BYTES + bodyLength;
+            }
+        } catch (EOFException e) {
+            // 末尾不完整的记录
+        }
+        return position;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return dir.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 新建、删除、改名文件后 fsync 目录，保证目录项落盘；不支持的平台（Windows）忽略
+     */
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported for {}", dir, e);
+        }
+    }
+
+    // ---------------------------------------------------------------- 内部类型
+
+    private static final class Segment {
+
+        final Path path;
+
+        final long firstSequence;
+
+        /** 已 fsync 的字节数，replay 只读到这里 */
+        volatile long durableSize;
+
+        Segment(Path path, long firstSequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+        }
+    }
+
+    private interface Request {
+
+        void fail(Throwable ex);
+    }
+
+    private static final class Append implements Request {
+
+        final byte[] key;
+
+        final byte[] value;
+
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        long sequence;
+
+        Append(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public void fail(Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+
+    private static final class Compact implements Request {
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        @Override
+        public void fail(Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Path dir;
+
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        private int bufferBytes = 1024 * 1024;
+
+        private int maxBatch = 4096;
+
+        private int compactThreshold = 0;
+
+        private Executor completionExecutor = Runnable::run;
+
+        private Builder(Path dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * 单个段文件的大小上限，超过后切换到新段
+         */
+        public Builder segmentBytes(long segmentBytes) {
+            if (segmentBytes <= HEADER_BYTES + BODY_PREFIX_BYTES) {
+                throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * 写缓冲区大小，一批记录超过它时分多次 write，仍只 fsync 一次
+         */
+        public Builder bufferBytes(int bufferBytes) {
+            this.bufferBytes = bufferBytes;
+            return this;
+        }
+
+        /**
+         * 一次 group commit 最多包含的记录数
+         */
+        public Builder maxBatch(int maxBatch) {
+            if (maxBatch <= 0) {
+                throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+            }
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * 封存的段达到该数量时自动压缩，小于等于 0 表示只通过 {@link #compact()} 手动压缩
+         */
+        public Builder compactThreshold(int compactThreshold) {
+            this.compactThreshold = compactThreshold;
+            return this;
+        }
+
+        /**
+         * 在哪个执行器上完成 append 的 future，默认在写线程上，后续 stage 应使用 *Async
+         */
+        public Builder completionExecutor(Executor completionExecutor) {
+            this.completionExecutor = completionExecutor;
+            return this;
+        }
+
+        /**
+         * 打开（或新建）日志目录，恢复已有的段
+         */
+        public Journal open() throws IOException {
+            return new Journal(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.oyiersan.completableintro.journal;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 日志中的一条记录，replay 时按 sequence 递增的顺序给出
+ */
+public class JournalRecord {
+
+    private final long sequence;
+
+    private final String key;
+
+    private final byte[] value;
+
+    JournalRecord(long sequence, String key, byte[] value) {
+        this.sequence = sequence;
+        this.key = key;
+        this.value = value;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public String getValueAsString() {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" + sequence + ", " + key + ", " + value.length + " bytes}";
+    }
+}
@@ -0,0 +1,112 @@
+package com.oyiersan.completableintro.limit;
+
+import com.oyiersan.completableintro.future.Futures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 自适应并发隔离（bulkhead），每个下游依赖一个实例。
+ * <p>
+ * 提交前检查正在执行的调用数，超过 {@link LimitAlgorithm} 给出的上限时直接返回以
+ * {@link LimitExceededException} 失败的 future，而不是进入线程池的队列无限排队；
+ * 每次调用结束后把耗时和结果反馈给算法调整上限。
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+
+    private final LimitAlgorithm algorithm;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConcurrencyLimiter(String name, LimitAlgorithm algorithm) {
+        this.name = name;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * 受限的 supplyAsync
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return call(() -> CompletableFuture.supplyAsync(supplier, executor));
+    }
+
+    /**
+     * 受限的异步调用，适用于 thenCompose：{@code .thenCompose(v -> limiter.call(() -> remote(v)))}
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> call) {
+        int current = tryAcquire();
+        if (current < 0) {
+            rejected.incrementAndGet();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new LimitExceededException(name, algorithm.getLimit()));
+            return failed;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+            if (future == null) {
+                throw new NullPointerException("Call of " + name + " returned null instead of a future");
+            }
+        } catch (Throwable ex) {
+            release(start, current, isOverload(ex));
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+        return future.whenComplete((v, ex) -> release(start, current, isOverload(ex)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return algorithm.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return 获取后的并发数，超过上限时返回 -1
+     */
+    private int tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= algorithm.getLimit()) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * 只有超时和被拒绝视为过载信号，业务异常（例如参数错误）不应该压低上限
+     */
+    private static boolean isOverload(Throwable ex) {
+        Throwable cause = ex == null ? null : Futures.unwrap(ex);
+        return cause instanceof TimeoutException || cause instanceof RejectedExecutionException;
+    }
+
+    private void release(long start, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        algorithm.onSample(System.nanoTime() - start, inFlightAtStart, dropped);
+    }
+}
@@ -0,0 +1,64 @@
+package com.oyiersan.completableintro.limit;
+
+/**
+ * 基于耗时梯度的上限：长期平均耗时与本次耗时之比小于 1 说明出现排队，按比例收缩上限。
+ * <p>
+ * newLimit = limit * clamp(longRtt / rtt, 0.5, 1) + queueSize，再与旧值按 smoothing 平滑。
+ * queueSize 允许少量排队以便在耗时稳定时继续探测更高的上限。
+ */
+public class GradientLimit implements LimitAlgorithm {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    /** 长期耗时的指数平均系数 */
+    private final double longWindowFactor;
+
+    private double estimatedLimit;
+
+    private double longRttNanos;
+
+    private volatile int limit;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int longWindow) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Require 0 < minLimit <= initialLimit <= maxLimit");
+        }
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]: " + smoothing);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.longWindowFactor = 2.0 / (longWindow + 1);
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos = longRttNanos * (1 - longWindowFactor) + rttNanos * longWindowFactor;
+        }
+        // 空闲时不根据样本放大上限
+        if (!dropped && inFlight * 2 < estimatedLimit) {
+            return;
+        }
+        double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, longRttNanos / Math.max(1, rttNanos)));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+        limit = (int) estimatedLimit;
+    }
+}
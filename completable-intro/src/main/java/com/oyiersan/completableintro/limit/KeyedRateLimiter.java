@@ -0,0 +1,52 @@
+package com.oyiersan.completableintro.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 按 key（租户、下游服务商等）分别限速，每个 key 一个 {@link RateLimiter}，由 factory 按 key 创建，
+ * 因此不同 key 可以有不同的速率：
+ * <pre>
+ * new KeyedRateLimiter&lt;String&gt;(provider -> RateLimiter.builder(timer)
+ *         .name("email-" + provider).permitsPerSecond(quotas.get(provider)).build(), Duration.ofMinutes(10))
+ * </pre>
+ * 超过 idleExpiry 没有使用的 key 被移除，key 再多也不会无限增长；
+ * idleExpiry 应大于最长等待时间，否则移除后重新创建的限速器会重新获得一次突发。
+ */
+public class KeyedRateLimiter<K> {
+
+    private final Function<? super K, RateLimiter> factory;
+
+    private final Cache<K, RateLimiter> limiters;
+
+    public KeyedRateLimiter(Function<? super K, RateLimiter> factory, Duration idleExpiry) {
+        this.factory = factory;
+        this.limiters = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    public CompletableFuture<Void> acquire(K key) {
+        return limiter(key).acquire();
+    }
+
+    public CompletableFuture<Void> acquire(K key, int permits) {
+        return limiter(key).acquire(permits);
+    }
+
+    public boolean tryAcquire(K key) {
+        return limiter(key).tryAcquire();
+    }
+
+    public RateLimiter limiter(K key) {
+        return limiters.get(key, factory);
+    }
+
+    public long estimatedSize() {
+        return limiters.estimatedSize();
+    }
+}
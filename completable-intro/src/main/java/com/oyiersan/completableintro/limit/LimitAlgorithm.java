@@ -0,0 +1,16 @@
+package com.oyiersan.completableintro.limit;
+
+/**
+ * 根据每次调用的耗时和结果调整并发上限
+ */
+public interface LimitAlgorithm {
+
+    int getLimit();
+
+    /**
+     * @param rttNanos 调用耗时
+     * @param inFlight 调用开始时的并发数
+     * @param dropped  调用失败或超时，视为过载信号
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+}
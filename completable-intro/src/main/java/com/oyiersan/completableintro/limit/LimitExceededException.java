@@ -0,0 +1,13 @@
+package com.oyiersan.completableintro.limit;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 并发数达到上限，调用被直接拒绝
+ */
+public class LimitExceededException extends RejectedExecutionException {
+
+    public LimitExceededException(String name, int limit) {
+        super("Concurrency limit " + limit + " exceeded for '" + name + "'");
+    }
+}
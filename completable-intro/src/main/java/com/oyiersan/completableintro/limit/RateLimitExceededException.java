@@ -0,0 +1,13 @@
+package com.oyiersan.completableintro.limit;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 等待许可的请求过多（或需要等待的时间过长），调用被直接拒绝
+ */
+public class RateLimitExceededException extends RejectedExecutionException {
+
+    public RateLimitExceededException(String name, String reason) {
+        super("Rate limit exceeded for '" + name + "': " + reason);
+    }
+}
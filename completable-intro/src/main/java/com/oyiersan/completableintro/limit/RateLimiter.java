@@ -0,0 +1,277 @@
+package com.oyiersan.completableintro.limit;
+
+import com.oyiersan.completableintro.timer.Timeout;
+import com.oyiersan.completableintro.timer.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步速率限制：每秒 permitsPerSecond 个许可，空闲时最多累积 burst 个。
+ * <p>
+ * 以 GCRA（理论到达时间）实现：每次 acquire 用一次 CAS 预约自己的许可时刻，
+ * 需要等待时在共享 {@link Timer} 上登记一个到期任务，返回的 future 到时完成，不占用也不阻塞任何线程：
+ * <pre>
+ * notified.thenCompose(v -> emailLimiter.acquire()).thenApplyAsync(v -> sendEmail(), executor)
+ * </pre>
+ * 等待中的请求超过 maxWaiting，或需要等待的时间超过 maxWait 时，直接以
+ * {@link RateLimitExceededException} 失败，而不是无限排队。取消等待中的 future 会尽量归还预约的许可。
+ * <p>
+ * 默认在时间轮线程上完成 future，后续 stage 应使用 *Async 或通过 completionExecutor 转交。
+ */
+public class RateLimiter {
+
+    private final String name;
+
+    private final Timer timer;
+
+    /** 每个许可的间隔 */
+    private final long intervalNanos;
+
+    /** 允许的突发：(burst - 1) 个间隔 */
+    private final long toleranceNanos;
+
+    private final int maxWaiting;
+
+    private final long maxWaitNanos;
+
+    private final Executor completionExecutor;
+
+    /** 理论到达时间：下一个许可按匀速发放的时刻 */
+    private final AtomicLong tat;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong acquired = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RateLimiter(Builder builder) {
+        this.name = builder.name;
+        this.timer = builder.timer;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / builder.permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (builder.burst - 1);
+        this.maxWaiting = builder.maxWaiting;
+        this.maxWaitNanos = builder.maxWaitNanos;
+        this.completionExecutor = builder.completionExecutor;
+        this.tat = new AtomicLong(timer.nanoTime());
+    }
+
+    public static Builder builder(Timer timer) {
+        return new Builder(timer);
+    }
+
+    public CompletableFuture<Void> acquire() {
+        return acquire(1);
+    }
+
+    /**
+     * 获取 permits 个许可，返回的 future 在许可可用时完成
+     */
+    public CompletableFuture<Void> acquire(int permits) {
+        return acquire(permits, maxWaitNanos);
+    }
+
+    /**
+     * 同 {@link #acquire(int)}，但需要等待的时间超过 maxWait（与构建时的 maxWait 取较小者）时立即拒绝，
+     * 例如只剩下请求截止时间之内的等待才有意义，超时的请求不应占用预约和等待名额
+     */
+    public CompletableFuture<Void> acquire(int permits, long maxWait, TimeUnit unit) {
+        return acquire(permits, Math.min(maxWaitNanos, unit.toNanos(maxWait)));
+    }
+
+    private CompletableFuture<Void> acquire(int permits, long maxWaitNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+        long cost = intervalNanos * permits;
+        boolean queued = false;
+        for (; ; ) {
+            long now = timer.nanoTime();
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            long wait = base + cost - intervalNanos - toleranceNanos - now;
+            if (wait <= 0) {
+                if (tat.compareAndSet(current, base + cost)) {
+                    if (queued) {
+                        waiting.decrementAndGet();
+                    }
+                    acquired.incrementAndGet();
+                    return CompletableFuture.completedFuture(null);
+                }
+                continue;
+            }
+            if (wait > maxWaitNanos) {
+                if (queued) {
+                    waiting.decrementAndGet();
+                }
+                return reject("permit available in " + TimeUnit.NANOSECONDS.toMillis(wait)
+                        + "ms, max wait is " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+            }
+            if (!queued) {
+                if (waiting.incrementAndGet() > maxWaiting) {
+                    waiting.decrementAndGet();
+                    return reject(maxWaiting + " requests already waiting");
+                }
+                queued = true;
+            }
+            if (tat.compareAndSet(current, base + cost)) {
+                return schedule(base + cost, cost, wait);
+            }
+        }
+    }
+
+    /**
+     * 不等待：许可立即可用时获取并返回 true
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            long now = timer.nanoTime();
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            if (base - toleranceNanos - now > 0) {
+                return false;
+            }
+            if (tat.compareAndSet(current, base + intervalNanos)) {
+                acquired.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private CompletableFuture<Void> schedule(long reservedTat, long cost, long wait) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Timeout timeout;
+        try {
+            timeout = timer.newTimeout(() -> {
+                waiting.decrementAndGet();
+                acquired.incrementAndGet();
+                complete(future);
+            }, wait, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            waiting.decrementAndGet();
+            tat.compareAndSet(reservedTat, reservedTat - cost);
+            future.completeExceptionally(ex);
+            return future;
+        }
+        future.whenComplete((v, ex) -> {
+            if (future.isCancelled() && timeout.cancel()) {
+                waiting.decrementAndGet();
+                // 只有它仍是最后一个预约时才能归还，否则后面的预约已经排在它之后
+                tat.compareAndSet(reservedTat, reservedTat - cost);
+            }
+        });
+        return future;
+    }
+
+    private void complete(CompletableFuture<Void> future) {
+        try {
+            completionExecutor.execute(() -> future.complete(null));
+        } catch (RejectedExecutionException ex) {
+            future.complete(null);
+        }
+    }
+
+    private CompletableFuture<Void> reject(String reason) {
+        rejected.incrementAndGet();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RateLimitExceededException(name, reason));
+        return failed;
+    }
+
+    public static final class Builder {
+
+        private final Timer timer;
+
+        private String name = "rate-limiter";
+
+        private double permitsPerSecond = 10;
+
+        private int burst = 1;
+
+        private int maxWaiting = 1000;
+
+        private long maxWaitNanos = Long.MAX_VALUE;
+
+        private Executor completionExecutor = Runnable::run;
+
+        private Builder(Timer timer) {
+            this.timer = timer;
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder permitsPerSecond(double permitsPerSecond) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * 空闲后可以立即获取的许可数
+         */
+        public Builder burst(int burst) {
+            if (burst <= 0) {
+                throw new IllegalArgumentException("burst must be positive: " + burst);
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * 同时等待许可的请求上限，超出时立即拒绝
+         */
+        public Builder maxWaiting(int maxWaiting) {
+            if (maxWaiting < 0) {
+                throw new IllegalArgumentException("maxWaiting must not be negative: " + maxWaiting);
+            }
+            this.maxWaiting = maxWaiting;
+            return this;
+        }
+
+        /**
+         * 需要等待的时间超过 maxWait 时立即拒绝，默认不限制
+         */
+        public Builder maxWait(long time, TimeUnit unit) {
+            this.maxWaitNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * 等待结束后在哪个执行器上完成 future，默认在时间轮线程上
+         */
+        public Builder completionExecutor(Executor completionExecutor) {
+            this.completionExecutor = completionExecutor;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+}
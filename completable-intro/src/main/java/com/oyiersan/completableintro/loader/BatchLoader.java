@@ -0,0 +1,176 @@
+package com.oyiersan.completableintro.loader;
+
+import com.oyiersan.completableintro.future.Futures;
+import com.oyiersan.completableintro.timer.Timer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * DataLoader 风格的批量加载器：一个时间窗口内的多次 {@link #load} 合并成一次批量调用。
+ * <p>
+ * 第一次 load 打开一个批次并启动 window 计时，窗口结束或批次达到 maxBatchSize 时发出批量调用；
+ * 同一批次内重复的 key 共享同一个 future。批量函数按传入 key 的顺序返回结果列表，
+ * 调用发生在 dispatchExecutor 上，不占用时间轮的工作线程。
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<List<K>, CompletableFuture<List<V>>> batchFunction;
+
+    private final Timer timer;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final Executor dispatchExecutor;
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong keyCount = new AtomicLong();
+
+    /** 当前正在收集的批次，由 this 加锁保护 */
+    private Batch<K, V> current;
+
+    public BatchLoader(Function<List<K>, CompletableFuture<List<V>>> batchFunction, Timer timer,
+                       long window, TimeUnit unit, int maxBatchSize, Executor dispatchExecutor) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.batchFunction = batchFunction;
+        this.timer = timer;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        Batch<K, V> full = null;
+        CompletableFuture<V> future;
+        boolean opened = false;
+        Batch<K, V> batch;
+        synchronized (this) {
+            if (current == null) {
+                current = new Batch<>();
+                opened = true;
+            }
+            batch = current;
+            future = batch.entries.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                batch.entries.put(key, future);
+                if (batch.entries.size() >= maxBatchSize) {
+                    full = batch;
+                    current = null;
+                }
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (opened) {
+            try {
+                timer.newTimeout(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                // 时间轮已停止：没有定时 flush，批次可能永远凑不满，不再等待窗口直接发出
+                flush(batch);
+            }
+        }
+        return future;
+    }
+
+    public CompletableFuture<List<V>> loadMany(List<K> keys) {
+        List<CompletableFuture<V>> futures = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            futures.add(load(key));
+        }
+        return Futures.allAsList(futures);
+    }
+
+    /**
+     * 立即发出当前批次，不等待窗口结束
+     */
+    public void dispatchNow() {
+        Batch<K, V> batch;
+        synchronized (this) {
+            batch = current;
+            current = null;
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    /** 已发出的批量调用次数 */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /** 通过批量调用加载的 key 总数（去重后） */
+    public long getKeyCount() {
+        return keyCount.get();
+    }
+
+    private void flush(Batch<K, V> batch) {
+        synchronized (this) {
+            // 批次可能已经因为达到 maxBatchSize 或 dispatchNow 被发出
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        batchCount.incrementAndGet();
+        keyCount.addAndGet(batch.entries.size());
+        try {
+            dispatchExecutor.execute(() -> invoke(batch));
+        } catch (Throwable ex) {
+            batch.failAll(ex);
+        }
+    }
+
+    private void invoke(Batch<K, V> batch) {
+        List<K> keys = new ArrayList<>(batch.entries.keySet());
+        CompletableFuture<List<V>> result;
+        try {
+            result = batchFunction.apply(keys);
+        } catch (Throwable ex) {
+            batch.failAll(ex);
+            return;
+        }
+        result.whenComplete((values, ex) -> {
+            if (ex != null) {
+                batch.failAll(Futures.unwrap(ex));
+            } else if (values == null || values.size() != keys.size()) {
+                batch.failAll(new IllegalStateException("Batch function returned "
+                        + (values == null ? "null" : values.size() + " values") + " for " + keys.size() + " keys"));
+            } else {
+                for (int i = 0; i < keys.size(); i++) {
+                    batch.entries.get(keys.get(i)).complete(values.get(i));
+                }
+            }
+        });
+    }
+
+    private static final class Batch<K, V> {
+
+        /** 发出之后不再修改，按加入顺序保存 */
+        final Map<K, CompletableFuture<V>> entries = new LinkedHashMap<>();
+
+        void failAll(Throwable ex) {
+            for (CompletableFuture<V> future : entries.values()) {
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+}
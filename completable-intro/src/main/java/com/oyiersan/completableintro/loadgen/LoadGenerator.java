@@ -0,0 +1,180 @@
+package com.oyiersan.completableintro.loadgen;
+
+import com.oyiersan.completableintro.future.Futures;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 压测发生器：按固定到达率（开环）或固定并发（闭环）反复调用 operation，统计吞吐量和延迟分布。
+ * <p>
+ * 开环模式下第 i 个请求的计划发送时间是 start + i / rate，延迟从计划时间算起：
+ * 系统变慢导致发送落后时，落后的部分也计入延迟，不会因为"少发了请求"而掩盖停顿（coordinated omission）。
+ * 闭环模式下每个用户在上一个请求完成后才发下一个，停顿期间本该发出的请求没有样本，
+ * 因此按平均延迟作为期望发送间隔，用 HdrHistogram 补齐这些缺失的样本。
+ * <p>
+ * 两种模式都同时给出未修正的延迟（实际发送到完成），便于对比。
+ */
+public class LoadGenerator {
+
+    // 3 位有效数字，最大 1 小时
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Supplier<? extends CompletionStage<?>> operation;
+
+    private final long drainTimeoutNanos;
+
+    public LoadGenerator(Supplier<? extends CompletionStage<?>> operation) {
+        this(operation, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param drainTimeout 发送结束后等待在途请求完成的最长时间，超时仍未完成的请求计入 incomplete
+     */
+    public LoadGenerator(Supplier<? extends CompletionStage<?>> operation, long drainTimeout, TimeUnit unit) {
+        this.operation = operation;
+        this.drainTimeoutNanos = unit.toNanos(drainTimeout);
+    }
+
+    /**
+     * 开环：在当前线程上按 ratePerSecond 发送请求，持续 duration，然后等待在途请求完成
+     */
+    public LoadResult openLoop(double ratePerSecond, long duration, TimeUnit unit) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        }
+        Run run = new Run();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended - end >= 0) {
+                break;
+            }
+            long now = System.nanoTime();
+            while (intended - now > 0) {
+                LockSupport.parkNanos(intended - now);
+                now = System.nanoTime();
+            }
+            run.send(intended, now);
+        }
+        long sendEnd = System.nanoTime();
+        run.drain(sendEnd);
+        Histogram latency = run.corrected.getIntervalHistogram();
+        return run.result(LoadResult.Mode.OPEN, ratePerSecond, start, sendEnd, latency);
+    }
+
+    /**
+     * 闭环：concurrency 个用户各自循环"发送-等待完成"，持续 duration，然后等待在途请求完成
+     */
+    public LoadResult closedLoop(int concurrency, long duration, TimeUnit unit) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        Run run = new Run();
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+        for (int i = 0; i < concurrency; i++) {
+            Futures.asyncWhile(() -> {
+                long now = System.nanoTime();
+                if (now - end >= 0) {
+                    return CompletableFuture.completedFuture(Boolean.FALSE);
+                }
+                return run.send(now, now).thenApply(ignored -> Boolean.TRUE);
+            });
+        }
+        long remaining = end - System.nanoTime();
+        if (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        long sendEnd = System.nanoTime();
+        run.drain(sendEnd);
+        Histogram raw = run.uncorrected.getIntervalHistogram();
+        Histogram latency = raw.getTotalCount() == 0 ? raw
+                : raw.copyCorrectedForCoordinatedOmission((long) raw.getMean());
+        return run.result(LoadResult.Mode.CLOSED, concurrency, start, sendEnd, latency, raw);
+    }
+
+    /**
+     * 一次压测的计数器和直方图，Recorder 支持多线程并发写入
+     */
+    private final class Run {
+
+        final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+        final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+        final AtomicLong inFlight = new AtomicLong();
+
+        final AtomicLong completed = new AtomicLong();
+
+        final AtomicLong failed = new AtomicLong();
+
+        final AtomicLong lastCompletion = new AtomicLong();
+
+        long incomplete;
+
+        /**
+         * 发送一个请求，完成时按 intended（计划发送时间）和 sent（实际发送时间）分别记录延迟；
+         * 返回的 future 总是正常完成
+         */
+        CompletableFuture<Void> send(long intended, long sent) {
+            inFlight.incrementAndGet();
+            CompletionStage<?> stage;
+            try {
+                stage = operation.get();
+            } catch (Throwable ex) {
+                record(intended, sent, ex);
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            stage.whenComplete((value, ex) -> {
+                record(intended, sent, ex);
+                done.complete(null);
+            });
+            return done;
+        }
+
+        void record(long intended, long sent, Throwable ex) {
+            long now = System.nanoTime();
+            corrected.recordValue(clamp(now - intended));
+            uncorrected.recordValue(clamp(now - sent));
+            (ex == null ? completed : failed).incrementAndGet();
+            lastCompletion.accumulateAndGet(now, Math::max);
+            inFlight.decrementAndGet();
+        }
+
+        void drain(long sendEnd) {
+            long deadline = sendEnd + drainTimeoutNanos;
+            long now;
+            while (inFlight.get() > 0 && (now = System.nanoTime()) - deadline < 0) {
+                LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(1), deadline - now));
+            }
+            incomplete = inFlight.get();
+        }
+
+        LoadResult result(LoadResult.Mode mode, double target, long start, long sendEnd, Histogram latency) {
+            return result(mode, target, start, sendEnd, latency, uncorrected.getIntervalHistogram());
+        }
+
+        LoadResult result(LoadResult.Mode mode, double target, long start, long sendEnd,
+                          Histogram latency, Histogram uncorrectedLatency) {
+            long elapsed = Math.max(sendEnd, lastCompletion.get()) - start;
+            return new LoadResult(mode, target, elapsed, completed.get(), failed.get(), incomplete,
+                    latency, uncorrectedLatency);
+        }
+    }
+
+    private static long clamp(long nanos) {
+        return Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS);
+    }
+}
@@ -0,0 +1,96 @@
+package com.oyiersan.completableintro.loadgen;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 压测配置，对应 application-loadgen.properties 中的 {@code loadgen.*}。
+ */
+@ConfigurationProperties(prefix = "loadgen")
+public class LoadGeneratorProperties {
+
+    private LoadResult.Mode mode = LoadResult.Mode.OPEN;
+
+    /** 开环模式下每秒发送的请求数 */
+    private double rate = 20;
+
+    /** 闭环模式下的并发用户数 */
+    private int concurrency = 8;
+
+    /** 预热时长，结果不计入报告 */
+    private int warmupSeconds = 5;
+
+    private int durationSeconds = 30;
+
+    /** 发送结束后等待在途请求完成的最长时间 */
+    private int drainTimeoutSeconds = 30;
+
+    /** 结果以 JSON Lines 追加写入该文件 */
+    private String output = "target/loadgen-results.jsonl";
+
+    /** 写入结果的附加标签，区分不同的运行 */
+    private String label = "";
+
+    public LoadResult.Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(LoadResult.Mode mode) {
+        this.mode = mode;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getDrainTimeoutSeconds() {
+        return drainTimeoutSeconds;
+    }
+
+    public void setDrainTimeoutSeconds(int drainTimeoutSeconds) {
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,70 @@
+package com.oyiersan.completableintro.loadgen;
+
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以 loadgen profile 启动时对账户流水线压测一次，结果追加写入 {@code loadgen.output}：
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.profiles=loadgen -Dspring-boot.run.arguments="--loadgen.rate=100"
+ * </pre>
+ * 每行结果都带上线程池配置，切换 async.executor.* 多跑几次即可对比。
+ */
+public class LoadGeneratorRunner implements CommandLineRunner {
+
+    public static final String PROFILE = "loadgen";
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGeneratorRunner.class);
+
+    private final LoadGeneratorProperties properties;
+
+    private final AccountPipeline pipeline;
+
+    private final Map<String, Object> config = new LinkedHashMap<>();
+
+    public LoadGeneratorRunner(LoadGeneratorProperties properties, AccountPipeline pipeline,
+                               AsyncExecutorProperties executorProperties, long stageLatencyMillis) {
+        this.properties = properties;
+        this.pipeline = pipeline;
+        config.put("label", properties.getLabel());
+        config.put("executorMode", executorProperties.getMode());
+        config.put("corePoolSize", executorProperties.getCorePoolSize());
+        config.put("maxPoolSize", executorProperties.getMaxPoolSize());
+        config.put("queueCapacity", executorProperties.getQueueCapacity());
+        config.put("rejectionPolicy", executorProperties.getRejectionPolicy());
+        config.put("stageLatencyMillis", stageLatencyMillis);
+        config.put("warmupSeconds", properties.getWarmupSeconds());
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(pipeline::process,
+                properties.getDrainTimeoutSeconds(), TimeUnit.SECONDS);
+        if (properties.getWarmupSeconds() > 0) {
+            log.info("Load generator warming up for {}s", properties.getWarmupSeconds());
+            run(generator, properties.getWarmupSeconds());
+        }
+        log.info("Load generator running {} for {}s", properties.getMode(), properties.getDurationSeconds());
+        LoadResult result = run(generator, properties.getDurationSeconds());
+        Path output = Paths.get(properties.getOutput());
+        result.appendTo(output, config);
+        log.info("{}", result);
+        log.info("Load generator result appended to {}", output.toAbsolutePath());
+    }
+
+    private LoadResult run(LoadGenerator generator, int seconds) {
+        if (properties.getMode() == LoadResult.Mode.CLOSED) {
+            return generator.closedLoop(properties.getConcurrency(), seconds, TimeUnit.SECONDS);
+        }
+        return generator.openLoop(properties.getRate(), seconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,211 @@
+package com.oyiersan.completableintro.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次压测的结果：吞吐量、修正后的延迟分布，以及未修正（实际发送到完成）的延迟分布
+ */
+public class LoadResult {
+
+    public enum Mode {
+        /** 开环：固定到达率 */
+        OPEN,
+        /** 闭环：固定并发 */
+        CLOSED
+    }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final String[] PERCENTILE_KEYS = {"p50", "p90", "p99", "p999"};
+
+    private final Mode mode;
+
+    private final double target;
+
+    private final long elapsedNanos;
+
+    private final long completed;
+
+    private final long failed;
+
+    private final long incomplete;
+
+    private final Histogram latency;
+
+    private final Histogram uncorrectedLatency;
+
+    LoadResult(Mode mode, double target, long elapsedNanos, long completed, long failed, long incomplete,
+               Histogram latency, Histogram uncorrectedLatency) {
+        this.mode = mode;
+        this.target = target;
+        this.elapsedNanos = elapsedNanos;
+        this.completed = completed;
+        this.failed = failed;
+        this.incomplete = incomplete;
+        this.latency = latency;
+        this.uncorrectedLatency = uncorrectedLatency;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 开环为每秒请求数，闭环为并发数
+     */
+    public double getTarget() {
+        return target;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * 等待超时后仍未完成的请求数
+     */
+    public long getIncomplete() {
+        return incomplete;
+    }
+
+    /**
+     * 每秒完成（含失败）的请求数
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 : (completed + failed) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * 修正 coordinated omission 后的延迟百分位
+     */
+    public long latency(double percentile, TimeUnit unit) {
+        return unit.convert(latency.getValueAtPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    public long uncorrectedLatency(double percentile, TimeUnit unit) {
+        return unit.convert(uncorrectedLatency.getValueAtPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    public Histogram getLatencyHistogram() {
+        return latency;
+    }
+
+    public Histogram getUncorrectedLatencyHistogram() {
+        return uncorrectedLatency;
+    }
+
+    /**
+     * 以一行 JSON 追加到 file，config 记录本次运行的线程池等配置，便于不同配置之间对比
+     */
+    public void appendTo(Path file, Map<String, ?> config) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, Collections.singletonList(toJson(config)), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public String toJson(Map<String, ?> config) {
+        StringBuilder json = new StringBuilder(512).append('{');
+        field(json, "timestamp", Instant.now().toString()).append(',');
+        json.append("\"config\":{");
+        boolean first = true;
+        for (Map.Entry<String, ?> entry : config.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            Object value = entry.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                quote(json, entry.getKey()).append(':').append(value);
+            } else {
+                field(json, entry.getKey(), String.valueOf(value));
+            }
+        }
+        json.append("},");
+        field(json, "mode", mode.name()).append(',');
+        json.append("\"target\":").append(format(target)).append(',');
+        json.append("\"elapsedMs\":").append(getElapsed(TimeUnit.MILLISECONDS)).append(',');
+        json.append("\"completed\":").append(completed).append(',');
+        json.append("\"failed\":").append(failed).append(',');
+        json.append("\"incomplete\":").append(incomplete).append(',');
+        json.append("\"throughput\":").append(format(getThroughput())).append(',');
+        json.append("\"latencyMs\":");
+        percentiles(json, latency).append(',');
+        json.append("\"uncorrectedLatencyMs\":");
+        percentiles(json, uncorrectedLatency);
+        return json.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s target=%s throughput=%.1f/s completed=%d failed=%d incomplete=%d "
+                        + "p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms (uncorrected p99=%.3fms)",
+                mode, format(target), getThroughput(), completed, failed, incomplete,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()),
+                millis(uncorrectedLatency.getValueAtPercentile(99)));
+    }
+
+    private static StringBuilder percentiles(StringBuilder json, Histogram histogram) {
+        json.append('{');
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            quote(json, PERCENTILE_KEYS[i]).append(':')
+                    .append(format(millis(histogram.getValueAtPercentile(PERCENTILES[i])))).append(',');
+        }
+        json.append("\"mean\":").append(format(histogram.getMean() / 1e6)).append(',');
+        json.append("\"max\":").append(format(millis(histogram.getMaxValue())));
+        return json.append('}');
+    }
+
+    private static StringBuilder field(StringBuilder json, String key, String value) {
+        return quote(quote(json, key).append(':'), value);
+    }
+
+    private static StringBuilder quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
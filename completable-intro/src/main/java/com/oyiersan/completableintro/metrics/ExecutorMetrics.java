@@ -0,0 +1,50 @@
+package com.oyiersan.completableintro.metrics;
+
+import com.oyiersan.completableintro.executor.CountingRejectedExecutionHandler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池指标：线程数、活跃线程数、队列深度、完成数和拒绝数。
+ * <p>
+ * 注册为 Bean 后由 Actuator 自动绑定到 MeterRegistry。
+ */
+public class ExecutorMetrics implements MeterBinder {
+
+    private final String name;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    public ExecutorMetrics(String name, ThreadPoolTaskExecutor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 容器中 Bean 已初始化，这里拿到的是真正的 ThreadPoolExecutor
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        Tags tags = Tags.of("name", name);
+        Gauge.builder("async.executor.pool.size", pool, ThreadPoolExecutor::getPoolSize)
+                .tags(tags).register(registry);
+        Gauge.builder("async.executor.active", pool, ThreadPoolExecutor::getActiveCount)
+                .tags(tags).register(registry);
+        Gauge.builder("async.executor.queued", pool, p -> p.getQueue().size())
+                .tags(tags).register(registry);
+        FunctionCounter.builder("async.executor.completed", pool, ThreadPoolExecutor::getCompletedTaskCount)
+                .tags(tags).register(registry);
+        RejectedExecutionHandler handler = pool.getRejectedExecutionHandler();
+        if (handler instanceof CountingRejectedExecutionHandler) {
+            FunctionCounter.builder("async.executor.rejected", (CountingRejectedExecutionHandler) handler,
+                            CountingRejectedExecutionHandler::getRejectedCount)
+                    .tags(tags).register(registry);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.oyiersan.completableintro.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator 端点 {@code stages}：按 stage 汇总排队/执行时间的次数和百分位（毫秒）
+ */
+@Endpoint(id = "stages")
+public class StageMetricsEndpoint {
+
+    private final MeterRegistry registry;
+
+    public StageMetricsEndpoint(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> stages() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        collect(result, StageMetrics.QUEUE_METRIC, "queue");
+        collect(result, StageMetrics.RUN_METRIC, "run");
+        return result;
+    }
+
+    private void collect(Map<String, Map<String, Object>> result, String metric, String kind) {
+        for (Timer timer : registry.find(metric).timers()) {
+            String stage = timer.getId().getTag("stage");
+            String outcome = timer.getId().getTag("outcome");
+            String key = outcome == null ? kind : kind + "." + outcome;
+            result.computeIfAbsent(stage, s -> new TreeMap<>()).put(key, summarize(timer.takeSnapshot()));
+        }
+    }
+
+    private static Map<String, Object> summarize(HistogramSnapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.count());
+        summary.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            summary.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return summary;
+    }
+}
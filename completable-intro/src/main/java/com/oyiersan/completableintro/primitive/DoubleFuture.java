@@ -0,0 +1,105 @@
+package com.oyiersan.completableintro.primitive;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 结果为 double 的 future，stage 之间传递原始类型，不装箱。
+ * <p>
+ * 只提供数值流水线需要的操作；需要与 CompletableFuture 组合时用 {@link #toCompletableFuture()}（会装箱一次）。
+ */
+public final class DoubleFuture extends PrimitiveFuture {
+
+    public static DoubleFuture completed(double value) {
+        DoubleFuture future = new DoubleFuture();
+        future.complete(value);
+        return future;
+    }
+
+    public static DoubleFuture supplyAsync(DoubleSupplier supplier, Executor executor) {
+        DoubleFuture future = new DoubleFuture();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(supplier.getAsDouble());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public boolean complete(double value) {
+        return complete(Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * 等待结果，异常以 CompletionException 抛出
+     */
+    public double join() {
+        await();
+        return Double.longBitsToDouble(bits);
+    }
+
+    public double getNow(double valueIfAbsent) {
+        return isDone() ? join() : valueIfAbsent;
+    }
+
+    public DoubleFuture thenApply(DoubleUnaryOperator fn) {
+        DoubleFuture dependent = new DoubleFuture();
+        then(Node.D_TO_D, fn, dependent, null);
+        return dependent;
+    }
+
+    public DoubleFuture thenApplyAsync(DoubleUnaryOperator fn, Executor executor) {
+        DoubleFuture dependent = new DoubleFuture();
+        then(Node.D_TO_D, fn, dependent, executor);
+        return dependent;
+    }
+
+    public LongFuture thenApplyToLong(DoubleToLongFunction fn) {
+        LongFuture dependent = new LongFuture();
+        then(Node.D_TO_L, fn, dependent, null);
+        return dependent;
+    }
+
+    public <U> CompletableFuture<U> thenApplyToObj(DoubleFunction<? extends U> fn) {
+        CompletableFuture<U> dependent = new CompletableFuture<>();
+        then(Node.D_TO_OBJ, fn, dependent, null);
+        return dependent;
+    }
+
+    public CompletableFuture<Void> thenAccept(DoubleConsumer action) {
+        CompletableFuture<Void> dependent = new CompletableFuture<>();
+        then(Node.D_ACCEPT, action, dependent, null);
+        return dependent;
+    }
+
+    public DoubleFuture exceptionally(ToDoubleFunction<Throwable> fn) {
+        DoubleFuture dependent = new DoubleFuture();
+        then(Node.D_RECOVER, fn, dependent, null);
+        return dependent;
+    }
+
+    public CompletableFuture<Double> toCompletableFuture() {
+        return thenApplyToObj(Double::valueOf);
+    }
+
+    @Override
+    public String toString() {
+        if (!isDone()) {
+            return "DoubleFuture[Incomplete]";
+        }
+        return error != null ? "DoubleFuture[Failed: " + error + "]"
+                : "DoubleFuture[" + Double.longBitsToDouble(bits) + "]";
+    }
+}
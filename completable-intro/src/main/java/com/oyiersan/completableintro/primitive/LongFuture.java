@@ -0,0 +1,102 @@
+package com.oyiersan.completableintro.primitive;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+/**
+ * 结果为 long 的 future，与 {@link DoubleFuture} 对应
+ */
+public final class LongFuture extends PrimitiveFuture {
+
+    public static LongFuture completed(long value) {
+        LongFuture future = new LongFuture();
+        future.complete(value);
+        return future;
+    }
+
+    public static LongFuture supplyAsync(LongSupplier supplier, Executor executor) {
+        LongFuture future = new LongFuture();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(supplier.getAsLong());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public boolean complete(long value) {
+        return complete(value, null);
+    }
+
+    /**
+     * 等待结果，异常以 CompletionException 抛出
+     */
+    public long join() {
+        await();
+        return bits;
+    }
+
+    public long getNow(long valueIfAbsent) {
+        return isDone() ? join() : valueIfAbsent;
+    }
+
+    public LongFuture thenApply(LongUnaryOperator fn) {
+        LongFuture dependent = new LongFuture();
+        then(Node.L_TO_L, fn, dependent, null);
+        return dependent;
+    }
+
+    public LongFuture thenApplyAsync(LongUnaryOperator fn, Executor executor) {
+        LongFuture dependent = new LongFuture();
+        then(Node.L_TO_L, fn, dependent, executor);
+        return dependent;
+    }
+
+    public DoubleFuture thenApplyToDouble(LongToDoubleFunction fn) {
+        DoubleFuture dependent = new DoubleFuture();
+        then(Node.L_TO_D, fn, dependent, null);
+        return dependent;
+    }
+
+    public <U> CompletableFuture<U> thenApplyToObj(LongFunction<? extends U> fn) {
+        CompletableFuture<U> dependent = new CompletableFuture<>();
+        then(Node.L_TO_OBJ, fn, dependent, null);
+        return dependent;
+    }
+
+    public CompletableFuture<Void> thenAccept(LongConsumer action) {
+        CompletableFuture<Void> dependent = new CompletableFuture<>();
+        then(Node.L_ACCEPT, action, dependent, null);
+        return dependent;
+    }
+
+    public LongFuture exceptionally(ToLongFunction<Throwable> fn) {
+        LongFuture dependent = new LongFuture();
+        then(Node.L_RECOVER, fn, dependent, null);
+        return dependent;
+    }
+
+    public CompletableFuture<Long> toCompletableFuture() {
+        return thenApplyToObj(Long::valueOf);
+    }
+
+    @Override
+    public String toString() {
+        if (!isDone()) {
+            return "LongFuture[Incomplete]";
+        }
+        return error != null ? "LongFuture[Failed: " + error + "]" : "LongFuture[" + bits + "]";
+    }
+}
@@ -0,0 +1,331 @@
+package com.oyiersan.completableintro.primitive;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link DoubleFuture} 与 {@link LongFuture} 的公共实现。
+ * <p>
+ * 结果以 long 位模式存储（double 通过 doubleToRawLongBits），不装箱；
+ * 异常原样向下游传递，不在每个 stage 包一层 CompletionException，只在 join 时包装一次。
+ * 回调节点在触发后回收到执行线程的小对象池里，依赖注册在已完成的 future 上时直接同步执行、不分配节点。
+ * 同步回调沿链递归触发，不适合上万级深度的同步链，这种场景请用 thenApplyAsync 断开。
+ */
+abstract class PrimitiveFuture {
+
+    /** 正在写入结果：完成者已摘走回调栈，注册方短暂自旋等待 */
+    private static final Node COMPLETING = new Node();
+
+    /** 栈已关闭：future 已完成，之后注册的回调直接执行 */
+    private static final Node CLOSED = new Node();
+
+    private static final AtomicReferenceFieldUpdater<PrimitiveFuture, Node> STACK =
+            AtomicReferenceFieldUpdater.newUpdater(PrimitiveFuture.class, Node.class, "stack");
+
+    /**
+     * 回调栈，同时表示完成状态：普通节点/null 为未完成，COMPLETING、CLOSED 为完成中/已完成。
+     * 完成只需一次 CAS 加一次有序写，没有等待者时与 CompletableFuture 的开销相当
+     */
+    private volatile Node stack;
+
+    /** 在栈关闭之前写入，由 CLOSED 的有序写发布 */
+    long bits;
+
+    Throwable error;
+
+    public boolean isDone() {
+        return stack == CLOSED;
+    }
+
+    public boolean isCompletedExceptionally() {
+        return stack == CLOSED && error != null;
+    }
+
+    public boolean completeExceptionally(Throwable ex) {
+        if (ex == null) {
+            throw new NullPointerException();
+        }
+        return complete(0L, ex);
+    }
+
+    public boolean cancel() {
+        return completeExceptionally(new CancellationException());
+    }
+
+    final boolean complete(long bits, Throwable ex) {
+        Node head;
+        do {
+            head = stack;
+            if (head == COMPLETING || head == CLOSED) {
+                return false;
+            }
+        } while (!STACK.compareAndSet(this, head, COMPLETING));
+        this.bits = bits;
+        this.error = ex;
+        STACK.lazySet(this, CLOSED);
+        while (head != null) {
+            Node next = head.next;
+            head.next = null;
+            head.fire(this);
+            head = next;
+        }
+        return true;
+    }
+
+    /**
+     * 等待完成；异常以 CompletionException（取消为 CancellationException）抛出
+     */
+    final void await() {
+        if (stack != CLOSED) {
+            Node signaller = Node.obtain(Node.SIGNAL, Thread.currentThread(), null, null);
+            push(signaller);
+            boolean interrupted = false;
+            while (stack != CLOSED) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Throwable ex = error;
+        if (ex != null) {
+            if (ex instanceof CancellationException) {
+                throw (CancellationException) ex;
+            }
+            throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+        }
+    }
+
+    /**
+     * @param target 下游，PrimitiveFuture 或 CompletableFuture
+     */
+    final void then(int kind, Object fn, Object target, Executor executor) {
+        Node node = null;
+        for (Node head = stack; head != CLOSED; head = stack) {
+            if (head == COMPLETING) {
+                continue;
+            }
+            if (node == null) {
+                node = Node.obtain(kind, fn, target, executor);
+            }
+            node.next = head;
+            if (STACK.compareAndSet(this, head, node)) {
+                return;
+            }
+        }
+        if (node == null) {
+            // 快速路径：已完成，直接执行，不分配节点
+            if (executor == null) {
+                Node.invoke(kind, fn, target, this);
+                return;
+            }
+            node = Node.obtain(kind, fn, target, executor);
+        }
+        node.next = null;
+        node.fire(this);
+    }
+
+    private void push(Node node) {
+        for (; ; ) {
+            Node head = stack;
+            if (head == CLOSED) {
+                node.fire(this);
+                return;
+            }
+            if (head == COMPLETING) {
+                continue;
+            }
+            node.next = head;
+            if (STACK.compareAndSet(this, head, node)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 回调节点。kind 决定 fn 的类型和 target 的完成方式，避免为每种组合定义子类
+     */
+    static final class Node implements Runnable {
+
+        static final int SIGNAL = 0;
+        static final int D_TO_D = 1;
+        static final int D_TO_L = 2;
+        static final int D_TO_OBJ = 3;
+        static final int D_ACCEPT = 4;
+        static final int D_RECOVER = 5;
+        static final int L_TO_L = 6;
+        static final int L_TO_D = 7;
+        static final int L_TO_OBJ = 8;
+        static final int L_ACCEPT = 9;
+        static final int L_RECOVER = 10;
+
+        private static final ThreadLocal<NodePool> POOL = ThreadLocal.withInitial(NodePool::new);
+
+        int kind;
+
+        Object fn;
+
+        Object target;
+
+        Executor executor;
+
+        PrimitiveFuture source;
+
+        Node next;
+
+        static Node obtain(int kind, Object fn, Object target, Executor executor) {
+            Node node = POOL.get().poll();
+            if (node == null) {
+                node = new Node();
+            }
+            node.kind = kind;
+            node.fn = fn;
+            node.target = target;
+            node.executor = executor;
+            return node;
+        }
+
+        void fire(PrimitiveFuture completed) {
+            if (kind == SIGNAL) {
+                LockSupport.unpark((Thread) fn);
+                recycle();
+                return;
+            }
+            if (executor == null) {
+                invoke(kind, fn, target, completed);
+                recycle();
+                return;
+            }
+            source = completed;
+            try {
+                executor.execute(this);
+            } catch (Throwable ex) {
+                Object failed = target;
+                recycle();
+                fail(failed, ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            invoke(kind, fn, target, source);
+            recycle();
+        }
+
+        /** 触发后节点不再被任何 future 引用，回收到当前线程的池中 */
+        private void recycle() {
+            fn = null;
+            target = null;
+            executor = null;
+            source = null;
+            next = null;
+            POOL.get().offer(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        static void invoke(int kind, Object fn, Object target, PrimitiveFuture source) {
+            Throwable ex = source.error;
+            long bits = source.bits;
+            if (ex != null && kind != D_RECOVER && kind != L_RECOVER) {
+                fail(target, ex);
+                return;
+            }
+            try {
+                switch (kind) {
+                    case D_TO_D:
+                        ((PrimitiveFuture) target).complete(Double.doubleToRawLongBits(
+                                ((DoubleUnaryOperator) fn).applyAsDouble(Double.longBitsToDouble(bits))), null);
+                        break;
+                    case D_TO_L:
+                        ((PrimitiveFuture) target).complete(
+                                ((DoubleToLongFunction) fn).applyAsLong(Double.longBitsToDouble(bits)), null);
+                        break;
+                    case D_TO_OBJ:
+                        ((CompletableFuture<Object>) target).complete(
+                                ((DoubleFunction<?>) fn).apply(Double.longBitsToDouble(bits)));
+                        break;
+                    case D_ACCEPT:
+                        ((DoubleConsumer) fn).accept(Double.longBitsToDouble(bits));
+                        ((CompletableFuture<Object>) target).complete(null);
+                        break;
+                    case D_RECOVER:
+                        ((PrimitiveFuture) target).complete(ex == null ? bits
+                                : Double.doubleToRawLongBits(((ToDoubleFunction<Throwable>) fn).applyAsDouble(ex)), null);
+                        break;
+                    case L_TO_L:
+                        ((PrimitiveFuture) target).complete(((LongUnaryOperator) fn).applyAsLong(bits), null);
+                        break;
+                    case L_TO_D:
+                        ((PrimitiveFuture) target).complete(Double.doubleToRawLongBits(
+                                ((LongToDoubleFunction) fn).applyAsDouble(bits)), null);
+                        break;
+                    case L_TO_OBJ:
+                        ((CompletableFuture<Object>) target).complete(((LongFunction<?>) fn).apply(bits));
+                        break;
+                    case L_ACCEPT:
+                        ((LongConsumer) fn).accept(bits);
+                        ((CompletableFuture<Object>) target).complete(null);
+                        break;
+                    case L_RECOVER:
+                        ((PrimitiveFuture) target).complete(ex == null ? bits
+                                : ((ToLongFunction<Throwable>) fn).applyAsLong(ex), null);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown node kind " + kind);
+                }
+            } catch (Throwable t) {
+                fail(target, t);
+            }
+        }
+
+        private static void fail(Object target, Throwable ex) {
+            if (target instanceof PrimitiveFuture) {
+                ((PrimitiveFuture) target).complete(0L, ex);
+            } else {
+                ((CompletableFuture<?>) target).completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * 每个线程一个的定长节点栈，满了就丢弃交给 GC
+     */
+    private static final class NodePool {
+
+        private final Node[] nodes = new Node[16];
+
+        private int size;
+
+        Node poll() {
+            if (size == 0) {
+                return null;
+            }
+            Node node = nodes[--size];
+            nodes[size] = null;
+            return node;
+        }
+
+        void offer(Node node) {
+            if (size < nodes.length) {
+                nodes[size++] = node;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.oyiersan.completableintro.priority;
+
+/**
+ * 任务的优先级类别，数值越小越优先
+ */
+public enum Priority {
+    /** 用户在等待结果的 stage，例如 calculateBalance、notifyBalance */
+    CRITICAL,
+    /** 默认类别 */
+    NORMAL,
+    /** 可以延后的后台任务，例如 notifyByEmail */
+    BACKGROUND
+}
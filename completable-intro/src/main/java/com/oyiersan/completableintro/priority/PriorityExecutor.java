@@ -0,0 +1,444 @@
+package com.oyiersan.completableintro.priority;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 {@link Priority} 分类排队的执行器，放在真正执行任务的 delegate 前面。
+ * <p>
+ * 同时交给 delegate 的任务不超过 maxConcurrency 个，其余的留在各类别自己的无锁队列里，
+ * 由空出的名额按策略挑选下一个：
+ * <ul>
+ *     <li>{@link Policy#STRICT}：总是先取优先级最高的非空队列</li>
+ *     <li>{@link Policy#WEIGHTED}：按权重平滑轮询（smooth weighted round-robin），
+ *     例如 8:4:1 时每 13 个名额里后台任务至少得到 1 个</li>
+ * </ul>
+ * 防饥饿：某个非空类别超过 maxStarvation 没有被选中时，下一个名额直接给它。
+ * delegate 自己的队列因此始终很短，排队和插队都发生在这里。
+ * <p>
+ * 指标（传入 MeterRegistry 时）：{@code async.priority.queue} 按 class 记录排队时间，
+ * {@code async.priority.queued} 为各类别当前的队列长度。
+ */
+public class PriorityExecutor implements Executor {
+
+    public static final String QUEUE_METRIC = "async.priority.queue";
+
+    public static final String QUEUED_METRIC = "async.priority.queued";
+
+    public enum Policy {
+        /** 严格优先级 */
+        STRICT,
+        /** 按权重分配名额 */
+        WEIGHTED
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final String name;
+
+    private final Executor delegate;
+
+    private final int maxConcurrency;
+
+    private final Policy policy;
+
+    private final long maxStarvationNanos;
+
+    private final int queueCapacity;
+
+    private final ClassQueue[] queues = new ClassQueue[PRIORITIES.length];
+
+    private final Map<Priority, Executor> views = new EnumMap<>(Priority.class);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** 串行化 dispatch，只有拿到的线程挑选任务，挑选状态因此不需要加锁 */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicLong starvationGrants = new AtomicLong();
+
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    private PriorityExecutor(Builder builder) {
+        this.name = builder.name;
+        this.delegate = builder.delegate;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.policy = builder.policy;
+        this.maxStarvationNanos = builder.maxStarvationNanos;
+        this.queueCapacity = builder.queueCapacity;
+        long now = System.nanoTime();
+        for (Priority priority : PRIORITIES) {
+            ClassQueue queue = new ClassQueue(priority, builder.weights.get(priority), now, builder.registry);
+            queues[priority.ordinal()] = queue;
+            views.put(priority, task -> submit(queue, task));
+            if (builder.registry != null) {
+                Gauge.builder(QUEUED_METRIC, queue.size, AtomicInteger::get)
+                        .tag("executor", name)
+                        .tag("class", priority.name())
+                        .register(builder.registry);
+            }
+        }
+    }
+
+    public static Builder builder(Executor delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * 以 {@link Priority#NORMAL} 提交
+     */
+    @Override
+    public void execute(Runnable task) {
+        submit(queues[Priority.NORMAL.ordinal()], task);
+    }
+
+    /**
+     * 以指定类别提交的执行器视图，用于 {@code thenApplyAsync(fn, executor.executor(Priority.CRITICAL))}
+     */
+    public Executor executor(Priority priority) {
+        return views.get(priority);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueued(Priority priority) {
+        return queues[priority.ordinal()].size.get();
+    }
+
+    public long getExecuted(Priority priority) {
+        return queues[priority.ordinal()].executed.get();
+    }
+
+    /**
+     * 所有已开始执行的任务中，该类别的最长排队时间
+     */
+    public long getMaxQueueTime(Priority priority, TimeUnit unit) {
+        return unit.convert(queues[priority.ordinal()].maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 因防饥饿而插队的次数
+     */
+    public long getStarvationGrants() {
+        return starvationGrants.get();
+    }
+
+    /**
+     * delegate 拒绝后由提交线程执行的次数
+     */
+    public long getCallerRuns() {
+        return callerRuns.get();
+    }
+
+    private void submit(ClassQueue queue, Runnable task) {
+        int size = queue.size.incrementAndGet();
+        if (queueCapacity > 0 && size > queueCapacity) {
+            queue.size.decrementAndGet();
+            throw new RejectedExecutionException(name + " " + queue.priority + " queue is full (" + queueCapacity + ")");
+        }
+        queue.tasks.offer(new Entry(task, System.nanoTime()));
+        dispatch();
+    }
+
+    /**
+     * 被 delegate 拒绝的任务在释放 wip 之后才由当前线程执行，执行完再继续出队；
+     * 不在串行化的出队循环里执行任务，也不递归调用 dispatch
+     */
+    private void dispatch() {
+        List<Dispatched> rejected;
+        while ((rejected = drain()) != null) {
+            for (Dispatched task : rejected) {
+                callerRuns.incrementAndGet();
+                task.runTask();
+            }
+        }
+    }
+
+    /**
+     * 在名额内把队列中的任务交给 delegate
+     *
+     * @return 被 delegate 拒绝、需要由调用方执行的任务；没有或其他线程正在出队时返回 null
+     */
+    private List<Dispatched> drain() {
+        if (wip.getAndIncrement() != 0) {
+            return null;
+        }
+        List<Dispatched> rejected = null;
+        int missed = 1;
+        do {
+            while (inFlight.get() < maxConcurrency) {
+                ClassQueue queue = select(System.nanoTime());
+                if (queue == null) {
+                    break;
+                }
+                Entry entry = queue.tasks.poll();
+                queue.size.decrementAndGet();
+                inFlight.incrementAndGet();
+                Dispatched task = new Dispatched(queue, entry);
+                try {
+                    delegate.execute(task);
+                } catch (RejectedExecutionException ex) {
+                    // 与共享线程池默认的 CALLER_RUNS 一致：由提交线程执行，形成背压而不是丢掉任务
+                    if (rejected == null) {
+                        rejected = new ArrayList<>();
+                    }
+                    rejected.add(task);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+        return rejected;
+    }
+
+    /**
+     * 选出下一个出队的类别，所有队列都为空时返回 null。只在 dispatch 串行化后调用
+     */
+    private ClassQueue select(long now) {
+        ClassQueue starved = null;
+        boolean higherWaiting = false;
+        for (ClassQueue queue : queues) {
+            Entry head = queue.tasks.peek();
+            if (head == null) {
+                continue;
+            }
+            // 从上次得到名额或队头任务入队（取较晚者）开始计算饥饿时间，空队列不算饥饿
+            long waitingSince = queue.lastServed - head.enqueued > 0 ? queue.lastServed : head.enqueued;
+            if (starved == null && higherWaiting && maxStarvationNanos > 0
+                    && now - waitingSince >= maxStarvationNanos) {
+                starved = queue;
+            }
+            higherWaiting = true;
+        }
+        ClassQueue selected;
+        if (starved != null) {
+            starvationGrants.incrementAndGet();
+            selected = starved;
+        } else {
+            selected = policy == Policy.STRICT ? selectStrict() : selectWeighted();
+        }
+        if (selected != null) {
+            selected.lastServed = now;
+        }
+        return selected;
+    }
+
+    private ClassQueue selectStrict() {
+        for (ClassQueue queue : queues) {
+            if (!queue.tasks.isEmpty()) {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    private ClassQueue selectWeighted() {
+        ClassQueue best = null;
+        int total = 0;
+        for (ClassQueue queue : queues) {
+            if (queue.tasks.isEmpty()) {
+                continue;
+            }
+            queue.current += queue.weight;
+            total += queue.weight;
+            if (best == null || queue.current > best.current) {
+                best = queue;
+            }
+        }
+        if (best != null) {
+            best.current -= total;
+        }
+        return best;
+    }
+
+    /**
+     * 已出队、占用一个名额的任务
+     */
+    private final class Dispatched implements Runnable {
+
+        final ClassQueue queue;
+
+        final Entry entry;
+
+        Dispatched(ClassQueue queue, Entry entry) {
+            this.queue = queue;
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            runTask();
+            dispatch();
+        }
+
+        /**
+         * 执行任务并归还名额；任务的异常交给当前线程的 UncaughtExceptionHandler，不影响后续出队
+         */
+        void runTask() {
+            queue.recordWait(System.nanoTime() - entry.enqueued);
+            try {
+                entry.task.run();
+            } catch (Throwable ex) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final Runnable task;
+
+        final long enqueued;
+
+        Entry(Runnable task, long enqueued) {
+            this.task = task;
+            this.enqueued = enqueued;
+        }
+    }
+
+    private final class ClassQueue {
+
+        final Priority priority;
+
+        final int weight;
+
+        final Queue<Entry> tasks = new ConcurrentLinkedQueue<>();
+
+        final AtomicInteger size = new AtomicInteger();
+
+        final AtomicLong executed = new AtomicLong();
+
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        final Timer waitTimer;
+
+        // 以下两个字段只在 dispatch 串行化后读写
+        long lastServed;
+
+        int current;
+
+        ClassQueue(Priority priority, int weight, long now, MeterRegistry registry) {
+            this.priority = priority;
+            this.weight = weight;
+            this.lastServed = now;
+            this.waitTimer = registry == null ? null : Timer.builder(QUEUE_METRIC)
+                    .tag("executor", name)
+                    .tag("class", priority.name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        void recordWait(long nanos) {
+            executed.incrementAndGet();
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+            if (waitTimer != null) {
+                waitTimer.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final Executor delegate;
+
+        private String name = "priority";
+
+        private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+        private Policy policy = Policy.WEIGHTED;
+
+        private final Map<Priority, Integer> weights = new EnumMap<>(Priority.class);
+
+        private long maxStarvationNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private int queueCapacity = -1;
+
+        private MeterRegistry registry;
+
+        private Builder(Executor delegate) {
+            this.delegate = delegate;
+            weights.put(Priority.CRITICAL, 8);
+            weights.put(Priority.NORMAL, 4);
+            weights.put(Priority.BACKGROUND, 1);
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 同时交给 delegate 的任务数上限，通常等于 delegate 的线程数
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder policy(Policy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * WEIGHTED 策略下的权重，默认 CRITICAL:NORMAL:BACKGROUND = 8:4:1
+         */
+        public Builder weight(Priority priority, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive: " + weight);
+            }
+            weights.put(priority, weight);
+            return this;
+        }
+
+        /**
+         * 非空类别最长多久必须得到一个名额，小于等于 0 表示不做防饥饿（STRICT 下低优先级可能一直等待）
+         */
+        public Builder maxStarvation(long time, TimeUnit unit) {
+            this.maxStarvationNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * 每个类别的队列上限，超出时抛出 RejectedExecutionException，小于等于 0 表示不限制
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        public PriorityExecutor build() {
+            return new PriorityExecutor(this);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.oyiersan.completableintro.retry;
+
+/**
+ * 单次尝试的结果，供监控使用
+ */
+public final class AttemptEvent {
+
+    public enum Outcome {
+        /** 成功 */
+        SUCCESS,
+        /** 失败，将在 backoffNanos 后重试 */
+        RETRY,
+        /** 失败且不可重试（异常不匹配或次数/时间用完） */
+        FAILED,
+        /** 失败且可重试，但全局重试额度已用完 */
+        BUDGET_EXHAUSTED
+    }
+
+    private final String name;
+
+    private final int attempt;
+
+    private final long latencyNanos;
+
+    private final Outcome outcome;
+
+    private final long backoffNanos;
+
+    private final Throwable error;
+
+    AttemptEvent(String name, int attempt, long latencyNanos, Outcome outcome, long backoffNanos, Throwable error) {
+        this.name = name;
+        this.attempt = attempt;
+        this.latencyNanos = latencyNanos;
+        this.outcome = outcome;
+        this.backoffNanos = backoffNanos;
+        this.error = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 第几次尝试，从 1 开始 */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + attempt + " " + outcome + " latency=" + latencyNanos / 1000 + "us"
+                + (outcome == Outcome.RETRY ? " backoff=" + backoffNanos / 1000 + "us" : "");
+    }
+}
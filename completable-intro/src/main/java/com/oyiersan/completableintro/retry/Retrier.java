@@ -0,0 +1,157 @@
+package com.oyiersan.completableintro.retry;
+
+import com.oyiersan.completableintro.future.Futures;
+import com.oyiersan.completableintro.timer.Timer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 非阻塞重试：退避期间不 sleep、不占用任何线程，由共享的 {@link Timer} 在到期时发起下一次尝试。
+ * <p>
+ * 重试由 {@link RetryPolicy} 决定，并受全局 {@link RetryBudget} 限制；
+ * 每次尝试都会产生一个 {@link AttemptEvent}。
+ */
+public class Retrier {
+
+    private final String name;
+
+    private final RetryPolicy policy;
+
+    private final Timer timer;
+
+    private final RetryBudget budget;
+
+    private final Executor executor;
+
+    private final List<Consumer<AttemptEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong attempts = new AtomicLong();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * @param budget   为 null 表示不限制全局重试速率
+     * @param executor 重试尝试在哪个执行器上发起，避免在时间轮线程上执行业务代码
+     */
+    public Retrier(String name, RetryPolicy policy, Timer timer, RetryBudget budget, Executor executor) {
+        this.name = name;
+        this.policy = policy;
+        this.timer = timer;
+        this.budget = budget;
+        this.executor = executor;
+    }
+
+    /**
+     * 受重试保护的 supplyAsync
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return call(() -> CompletableFuture.supplyAsync(supplier, executor));
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> attempt) {
+        calls.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(attempt, result, 1, timer.nanoTime());
+        return result;
+    }
+
+    public void addListener(Consumer<AttemptEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    private <T> void attempt(Supplier<? extends CompletableFuture<T>> attempt, CompletableFuture<T> result,
+                             int number, long callStart) {
+        if (result.isDone()) {
+            // 调用方已取消
+            return;
+        }
+        attempts.incrementAndGet();
+        long start = timer.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (Throwable ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        future.whenComplete((value, ex) -> {
+            long latency = timer.nanoTime() - start;
+            if (ex == null) {
+                publish(new AttemptEvent(name, number, latency, AttemptEvent.Outcome.SUCCESS, 0, null));
+                result.complete(value);
+                return;
+            }
+            Throwable cause = Futures.unwrap(ex);
+            long backoff = policy.backoffNanos(number);
+            boolean retryable = number < policy.getMaxAttempts() && policy.isRetryable(cause)
+                    && timer.nanoTime() + backoff - callStart < policy.getMaxElapsedNanos();
+            if (!retryable) {
+                publish(new AttemptEvent(name, number, latency, AttemptEvent.Outcome.FAILED, 0, cause));
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (budget != null && !budget.tryAcquire()) {
+                budgetExhausted.incrementAndGet();
+                publish(new AttemptEvent(name, number, latency, AttemptEvent.Outcome.BUDGET_EXHAUSTED, 0, cause));
+                result.completeExceptionally(cause);
+                return;
+            }
+            retries.incrementAndGet();
+            publish(new AttemptEvent(name, number, latency, AttemptEvent.Outcome.RETRY, backoff, cause));
+            Runnable next = () -> {
+                try {
+                    executor.execute(() -> attempt(attempt, result, number + 1, callStart));
+                } catch (Throwable executeEx) {
+                    // 在时间轮线程上被拒绝时异常只会被记录，必须在这里结束 result
+                    result.completeExceptionally(executeEx);
+                }
+            };
+            try {
+                if (backoff <= 0) {
+                    next.run();
+                } else {
+                    timer.newTimeout(next, backoff, TimeUnit.NANOSECONDS);
+                }
+            } catch (Throwable scheduleEx) {
+                result.completeExceptionally(scheduleEx);
+            }
+        });
+    }
+
+    private void publish(AttemptEvent event) {
+        for (Consumer<AttemptEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Throwable ignored) {
+                // 监控回调不能影响重试流程
+            }
+        }
+    }
+}
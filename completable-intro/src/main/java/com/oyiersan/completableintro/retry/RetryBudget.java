@@ -0,0 +1,48 @@
+package com.oyiersan.completableintro.retry;
+
+import com.oyiersan.completableintro.timer.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局重试速率上限：令牌桶，每秒补充 retriesPerSecond 个，最多累积 burst 个。
+ * <p>
+ * 多个 Retrier 共用一个 RetryBudget 时，下游整体故障不会因为重试把流量放大数倍。
+ */
+public class RetryBudget {
+
+    private final Timer timer;
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    /** 令牌桶“理论满额时刻”（GCRA 表示），不需要后台线程补充令牌 */
+    private final AtomicLong fullAt;
+
+    public RetryBudget(Timer timer, double retriesPerSecond, int burst) {
+        if (retriesPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("retriesPerSecond and burst must be positive");
+        }
+        this.timer = timer;
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / retriesPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+        this.fullAt = new AtomicLong(timer.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        for (; ; ) {
+            long now = timer.nanoTime();
+            long current = fullAt.get();
+            long base = Math.max(current, now);
+            long next = base + nanosPerToken;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
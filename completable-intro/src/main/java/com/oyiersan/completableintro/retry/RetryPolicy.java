@@ -0,0 +1,129 @@
+package com.oyiersan.completableintro.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * 重试策略：哪些异常重试、最多几次、退避多久。
+ * <p>
+ * 退避采用 full jitter：第 n 次重试前等待 [0, min(maxBackoff, initialBackoff * multiplier^(n-1))) 内的随机时间，
+ * 避免大量请求同时失败后在同一时刻一起重试。
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final double multiplier;
+
+    private final long maxElapsedNanos;
+
+    private final Predicate<Throwable> retryOn;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoffNanos;
+        this.maxBackoffNanos = builder.maxBackoffNanos;
+        this.multiplier = builder.multiplier;
+        this.maxElapsedNanos = builder.maxElapsedNanos;
+        this.retryOn = builder.retryOn;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getMaxElapsedNanos() {
+        return maxElapsedNanos;
+    }
+
+    public boolean isRetryable(Throwable ex) {
+        return retryOn.test(ex);
+    }
+
+    /**
+     * @param retry 第几次重试，从 1 开始
+     */
+    public long backoffNanos(int retry) {
+        double ceiling = Math.min(maxBackoffNanos, initialBackoffNanos * Math.pow(multiplier, retry - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * ceiling);
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(5);
+
+        private double multiplier = 2;
+
+        private long maxElapsedNanos = Long.MAX_VALUE;
+
+        private Predicate<Throwable> retryOn = ex -> true;
+
+        private Builder() {
+        }
+
+        /** 包含第一次调用在内的最多尝试次数 */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder backoff(long initial, long max, TimeUnit unit) {
+            this.initialBackoffNanos = unit.toNanos(initial);
+            this.maxBackoffNanos = unit.toNanos(max);
+            return this;
+        }
+
+        public Builder multiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /** 单次调用（含所有重试）允许的总时间，超过后不再发起重试 */
+        public Builder maxElapsed(long duration, TimeUnit unit) {
+            this.maxElapsedNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /** 只对匹配的异常重试，例如 {@code ex -> ex instanceof TimeoutException} */
+        public Builder retryOn(Predicate<Throwable> retryOn) {
+            this.retryOn = retryOn;
+            return this;
+        }
+
+        @SafeVarargs
+        public final Builder retryOn(Class<? extends Throwable>... types) {
+            this.retryOn = ex -> {
+                for (Class<? extends Throwable> type : types) {
+                    if (type.isInstance(ex)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+            }
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier must be >= 1: " + multiplier);
+            }
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.oyiersan.completableintro.scope;
+
+import com.oyiersan.completableintro.cancel.CancellableFuture;
+import com.oyiersan.completableintro.future.Futures;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link TaskScope#fork} 得到的子任务句柄
+ */
+public final class Subtask<T> {
+
+    public enum State {
+        /** 尚未完成，或因作用域关闭而被取消 */
+        UNAVAILABLE,
+        SUCCESS,
+        FAILED
+    }
+
+    private final CancellableFuture<T> future;
+
+    /** 作用域策略处理完该子任务后完成 */
+    volatile CompletableFuture<Void> handled;
+
+    Subtask(CancellableFuture<T> future) {
+        this.future = future;
+    }
+
+    public State state() {
+        if (!future.isDone() || future.isCancelled()) {
+            return State.UNAVAILABLE;
+        }
+        return future.isCompletedExceptionally() ? State.FAILED : State.SUCCESS;
+    }
+
+    /**
+     * 成功时的结果，其他状态下抛 IllegalStateException
+     */
+    public T get() {
+        if (state() != State.SUCCESS) {
+            throw new IllegalStateException("Subtask not completed successfully: " + state());
+        }
+        return future.join();
+    }
+
+    /**
+     * 失败时的异常，其他状态下抛 IllegalStateException
+     */
+    public Throwable exception() {
+        if (state() != State.FAILED) {
+            throw new IllegalStateException("Subtask not failed: " + state());
+        }
+        try {
+            future.join();
+            throw new IllegalStateException("Subtask not failed");
+        } catch (RuntimeException ex) {
+            return Futures.unwrap(ex);
+        }
+    }
+
+    CancellableFuture<T> future() {
+        return future;
+    }
+}
@@ -0,0 +1,224 @@
+package com.oyiersan.completableintro.scope;
+
+import com.oyiersan.completableintro.cancel.CancellableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 结构化并发作用域：在作用域内 fork 子任务，join 等待结果，close 保证子任务不会比作用域活得更久。
+ * <pre>{@code
+ * try (TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(executor)) {
+ *     Subtask<String> name = scope.fork(() -> findName());
+ *     Subtask<String> address = scope.fork(() -> findAddress());
+ *     scope.join();
+ *     return name.get() + address.get();
+ * }
+ * }</pre>
+ * 与 allOf 不同，策略决定何时提前结束（{@link #shutdown()}）：尚未完成的兄弟任务会被取消，
+ * 正在执行的线程会被中断（基于 {@link CancellableFuture}），不会继续占用线程。
+ * <p>
+ * close 会先 shutdown，再等待所有已经开始执行的子任务真正退出。
+ */
+public abstract class TaskScope implements AutoCloseable {
+
+    private final Executor executor;
+
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+
+    /** 子任务体正在执行的数量，close 等待它归零 */
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final CompletableFuture<Void> shutdownSignal = new CompletableFuture<>();
+
+    private volatile boolean shutdown;
+
+    private volatile boolean closed;
+
+    protected TaskScope(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 在作用域内启动子任务；作用域已 shutdown 时返回一个已取消、不会执行的子任务
+     */
+    public <T> Subtask<T> fork(Supplier<? extends T> task) {
+        if (closed) {
+            throw new IllegalStateException("TaskScope is closed");
+        }
+        CancellableFuture<T> future = CancellableFuture.supplyAsync(() -> run(task), executor);
+        Subtask<T> subtask = new Subtask<>(future);
+        // join 等待的是策略处理完之后的信号，保证 join 返回时策略已经看到了所有结果
+        subtask.handled = future.handle((value, ex) -> {
+            if (!future.isCancelled()) {
+                handleComplete(subtask);
+            }
+            return null;
+        });
+        synchronized (subtasks) {
+            subtasks.add(subtask);
+        }
+        if (shutdown) {
+            future.cancel(true);
+        }
+        return subtask;
+    }
+
+    /**
+     * 等待到所有已 fork 的子任务完成，或作用域被 shutdown
+     */
+    public CompletableFuture<Void> joinAsync() {
+        CompletableFuture<?>[] futures;
+        synchronized (subtasks) {
+            futures = subtasks.stream().map(subtask -> subtask.handled).toArray(CompletableFuture[]::new);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        return CompletableFuture.anyOf(all, shutdownSignal).thenApply(ignored -> null);
+    }
+
+    public void join() {
+        joinAsync().join();
+    }
+
+    /**
+     * 提前结束作用域：取消所有未完成的子任务并中断正在执行的线程，之后 fork 的任务不再执行
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        List<Subtask<?>> snapshot;
+        synchronized (subtasks) {
+            snapshot = new ArrayList<>(subtasks);
+        }
+        for (Subtask<?> subtask : snapshot) {
+            subtask.future().cancel(true);
+        }
+        shutdownSignal.complete(null);
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * shutdown 并等待所有已经开始执行的子任务退出
+     */
+    @Override
+    public void close() {
+        closed = true;
+        shutdown();
+        boolean interrupted = false;
+        synchronized (running) {
+            while (running.get() > 0) {
+                try {
+                    running.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 子任务完成（成功或失败，不含被取消）时调用，由策略决定是否 shutdown
+     */
+    protected abstract void handleComplete(Subtask<?> subtask);
+
+    private <T> T run(Supplier<? extends T> task) {
+        running.incrementAndGet();
+        try {
+            // 与 close 中先置 shutdown 再检查 running 的顺序配合：要么这里看到 shutdown，要么 close 等待本任务
+            if (shutdown) {
+                throw new CancellationException("TaskScope is shut down");
+            }
+            return task.get();
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                synchronized (running) {
+                    running.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 任一子任务失败即 shutdown，其余子任务被取消；join 以第一个异常失败
+     */
+    public static class ShutdownOnFailure extends TaskScope {
+
+        private final CompletableFuture<Throwable> firstFailure = new CompletableFuture<>();
+
+        public ShutdownOnFailure(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        protected void handleComplete(Subtask<?> subtask) {
+            if (subtask.state() == Subtask.State.FAILED && firstFailure.complete(subtask.exception())) {
+                shutdown();
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> joinAsync() {
+            return super.joinAsync().thenApply(ignored -> {
+                Throwable failure = firstFailure.getNow(null);
+                if (failure != null) {
+                    throw new CompletionException(failure);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 第一个成功的子任务结果即为作用域的结果，其余子任务被取消；全部失败时以第一个异常失败
+     */
+    public static class ShutdownOnSuccess<T> extends TaskScope {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private volatile Throwable firstFailure;
+
+        public ShutdownOnSuccess(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void handleComplete(Subtask<?> subtask) {
+            if (subtask.state() == Subtask.State.SUCCESS) {
+                if (result.complete((T) subtask.get())) {
+                    shutdown();
+                }
+            } else if (firstFailure == null) {
+                firstFailure = subtask.exception();
+            }
+        }
+
+        /**
+         * join 之后得到第一个成功的结果；没有成功的子任务时以第一个异常失败
+         */
+        public CompletableFuture<T> result() {
+            return joinAsync().thenCompose(ignored -> {
+                if (!result.isDone()) {
+                    Throwable failure = firstFailure;
+                    result.completeExceptionally(failure != null ? failure
+                            : new IllegalStateException("No subtask completed successfully"));
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.oyiersan.completableintro.stream;
+
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 拉取式的异步流，下游要一个、上游才给一个，因此天然带背压。
+ * <p>
+ * 与 {@code IntStream.range(...).forEach(num -> list.add(findName(num)))} 不同，
+ * {@link #mapAsync} 最多同时保持 parallelism 个 future，源头只在窗口有空位时才被继续读取，
+ * 输入有一百万个也只占用常量内存。
+ * <p>
+ * 约定：每个 stage 对上游的 {@link #pull()} 同一时刻最多只有一个未完成，上游因此不需要考虑并发拉取。
+ * 同步完成的拉取在循环里处理，不会因为元素多而栈溢出。
+ */
+public abstract class AsyncStream<T> {
+
+    /** 流结束标记 */
+    static final Object END = new Object();
+
+    /**
+     * 拉取下一个元素，以 {@link #END} 表示结束，异常完成表示流失败
+     */
+    abstract CompletableFuture<Object> pull();
+
+    public static <T> AsyncStream<T> fromIterator(Iterator<? extends T> iterator) {
+        return new IteratorSource<>(iterator);
+    }
+
+    public static <T> AsyncStream<T> fromIterable(Iterable<? extends T> iterable) {
+        return new IteratorSource<>(iterable.iterator());
+    }
+
+    /**
+     * 以 Reactive Streams Publisher 为源，每拉取一个元素 request(1)
+     */
+    public static <T> AsyncStream<T> fromPublisher(Publisher<? extends T> publisher) {
+        return new PublisherSource<>(publisher);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> AsyncStream<R> map(Function<? super T, ? extends R> fn) {
+        AsyncStream<T> upstream = this;
+        return new AsyncStream<R>() {
+            @Override
+            CompletableFuture<Object> pull() {
+                return upstream.pull().thenApply(item -> item == END ? END : fn.apply((T) item));
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public AsyncStream<T> filter(Predicate<? super T> predicate) {
+        AsyncStream<T> upstream = this;
+        return new AsyncStream<T>() {
+            @Override
+            CompletableFuture<Object> pull() {
+                CompletableFuture<Object> result = new CompletableFuture<>();
+                upstream.drive(result, item -> {
+                    if (item == END || predicate.test((T) item)) {
+                        result.complete(item);
+                        return false;
+                    }
+                    return true;
+                });
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 按顺序输出的异步映射：最多 parallelism 个 fn 同时进行，结果按输入顺序交付
+     */
+    public <R> AsyncStream<R> mapAsync(int parallelism, Function<? super T, ? extends CompletionStage<R>> fn) {
+        return new MapAsyncStage<>(this, parallelism, fn, true);
+    }
+
+    /**
+     * 不保证顺序的异步映射：谁先完成先交付，慢元素不会挡住后面的元素
+     */
+    public <R> AsyncStream<R> mapAsyncUnordered(int parallelism, Function<? super T, ? extends CompletionStage<R>> fn) {
+        return new MapAsyncStage<>(this, parallelism, fn, false);
+    }
+
+    /**
+     * 每 size 个元素合成一个 List，最后一批可能不足 size 个
+     */
+    @SuppressWarnings("unchecked")
+    public AsyncStream<List<T>> batch(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        AsyncStream<T> upstream = this;
+        return new AsyncStream<List<T>>() {
+
+            private boolean finished;
+
+            @Override
+            CompletableFuture<Object> pull() {
+                CompletableFuture<Object> result = new CompletableFuture<>();
+                if (finished) {
+                    result.complete(END);
+                    return result;
+                }
+                List<T> batch = new ArrayList<>(size);
+                upstream.drive(result, item -> {
+                    if (item == END) {
+                        finished = true;
+                        result.complete(batch.isEmpty() ? END : batch);
+                        return false;
+                    }
+                    batch.add((T) item);
+                    if (batch.size() == size) {
+                        result.complete(batch);
+                        return false;
+                    }
+                    return true;
+                });
+                return result;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> reduce(R identity, BiFunction<R, ? super T, R> accumulator) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Object[] acc = {identity};
+        drive(result, item -> {
+            if (item == END) {
+                result.complete((R) acc[0]);
+                return false;
+            }
+            acc[0] = accumulator.apply((R) acc[0], (T) item);
+            return true;
+        });
+        return result;
+    }
+
+    public CompletableFuture<Void> forEach(Consumer<? super T> action) {
+        return reduce(null, (ignored, item) -> {
+            action.accept(item);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Long> count() {
+        return reduce(0L, (count, item) -> count + 1);
+    }
+
+    public CompletableFuture<List<T>> toList() {
+        return reduce(new ArrayList<>(), (list, item) -> {
+            list.add(item);
+            return list;
+        });
+    }
+
+    /**
+     * 反复拉取并交给 handler，直到 handler 返回 false 或出错（出错时 result 异常完成）。
+     * 同步完成的拉取在循环内处理，只有遇到未完成的拉取才注册回调，回调里再回到循环，调用栈深度有界。
+     */
+    final void drive(CompletableFuture<?> result, ItemHandler handler) {
+        for (; ; ) {
+            CompletableFuture<Object> next;
+            try {
+                next = pull();
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            if (!next.isDone()) {
+                next.whenComplete((item, ex) -> {
+                    if (handle(result, handler, item, ex)) {
+                        drive(result, handler);
+                    }
+                });
+                return;
+            }
+            Object item;
+            try {
+                item = next.join();
+            } catch (Throwable ex) {
+                handle(result, handler, null, ex);
+                return;
+            }
+            if (!handle(result, handler, item, null)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean handle(CompletableFuture<?> result, ItemHandler handler, Object item, Throwable ex) {
+        if (ex != null) {
+            result.completeExceptionally(ex);
+            return false;
+        }
+        try {
+            return handler.onItem(item);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    interface ItemHandler {
+
+        /**
+         * @return true 继续拉取下一个
+         */
+        boolean onItem(Object item);
+    }
+}
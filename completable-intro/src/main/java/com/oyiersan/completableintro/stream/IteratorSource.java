@@ -0,0 +1,27 @@
+package com.oyiersan.completableintro.stream;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 以 Iterator 为源，每次拉取同步读取一个元素
+ */
+class IteratorSource<T> extends AsyncStream<T> {
+
+    private final Iterator<? extends T> iterator;
+
+    IteratorSource(Iterator<? extends T> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    CompletableFuture<Object> pull() {
+        CompletableFuture<Object> next = new CompletableFuture<>();
+        try {
+            next.complete(iterator.hasNext() ? iterator.next() : END);
+        } catch (Throwable ex) {
+            next.completeExceptionally(ex);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,180 @@
+package com.oyiersan.completableintro.stream;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * mapAsync 的实现：一个大小为 parallelism 的窗口。
+ * <p>
+ * 窗口里是已经发起、尚未被下游取走的 future（包括已完成的）；只有窗口有空位时才向上游拉取，
+ * 下游不取，窗口就不前进，背压由此一路传到源头。
+ * 所有状态只在 drain 循环里修改，drain 由 wip 计数保证同一时刻只有一个线程执行。
+ */
+class MapAsyncStage<T, R> extends AsyncStream<R> {
+
+    private final AsyncStream<T> upstream;
+
+    private final int parallelism;
+
+    private final Function<? super T, ? extends CompletionStage<R>> fn;
+
+    private final boolean ordered;
+
+    /** null 元素在 arrivals 中的占位（ConcurrentLinkedQueue 不接受 null） */
+    private static final Object NULL = new Object();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** 上游拉取的结果（元素、NULL、END 或 Failure），同一时刻最多一个 */
+    private final Queue<Object> arrivals = new ConcurrentLinkedQueue<>();
+
+    /** 有序模式：按输入顺序排列的窗口 */
+    private final Queue<CompletableFuture<R>> window = new ArrayDeque<>();
+
+    /** 无序模式：已完成、等待交付的 future */
+    private final Queue<CompletableFuture<R>> ready = new ConcurrentLinkedQueue<>();
+
+    /** 无序模式下窗口中的数量 */
+    private int inWindow;
+
+    private boolean pulling;
+
+    private boolean upstreamDone;
+
+    private Throwable upstreamError;
+
+    private volatile CompletableFuture<Object> waiting;
+
+    MapAsyncStage(AsyncStream<T> upstream, int parallelism,
+                  Function<? super T, ? extends CompletionStage<R>> fn, boolean ordered) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.upstream = upstream;
+        this.parallelism = parallelism;
+        this.fn = fn;
+        this.ordered = ordered;
+    }
+
+    @Override
+    CompletableFuture<Object> pull() {
+        CompletableFuture<Object> next = new CompletableFuture<>();
+        waiting = next;
+        drain();
+        return next;
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Object arrival;
+            while ((arrival = arrivals.poll()) != null) {
+                pulling = false;
+                onArrival(arrival);
+            }
+            deliver();
+            if (!pulling && !upstreamDone && size() < parallelism) {
+                pulling = true;
+                CompletableFuture<Object> next;
+                try {
+                    next = upstream.pull();
+                } catch (Throwable ex) {
+                    next = new CompletableFuture<>();
+                    next.completeExceptionally(ex);
+                }
+                // 同步完成时回调立即执行，只是入队并增加 wip，由本循环继续处理
+                next.whenComplete((item, ex) -> {
+                    arrivals.offer(ex != null ? new Failure(ex) : item == null ? NULL : item);
+                    drain();
+                });
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onArrival(Object arrival) {
+        if (arrival == END) {
+            upstreamDone = true;
+            return;
+        }
+        if (arrival instanceof Failure) {
+            upstreamDone = true;
+            upstreamError = ((Failure) arrival).error;
+            return;
+        }
+        CompletableFuture<R> future;
+        try {
+            future = fn.apply(arrival == NULL ? null : (T) arrival).toCompletableFuture();
+        } catch (Throwable ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        if (ordered) {
+            window.add(future);
+            future.whenComplete((value, ex) -> drain());
+        } else {
+            inWindow++;
+            CompletableFuture<R> done = future;
+            future.whenComplete((value, ex) -> {
+                ready.offer(done);
+                drain();
+            });
+        }
+    }
+
+    private void deliver() {
+        CompletableFuture<Object> downstream = waiting;
+        if (downstream == null) {
+            return;
+        }
+        CompletableFuture<R> head = ordered ? window.peek() : ready.peek();
+        if (head != null && head.isDone()) {
+            if (ordered) {
+                window.poll();
+            } else {
+                ready.poll();
+                inWindow--;
+            }
+            waiting = null;
+            head.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    downstream.completeExceptionally(ex);
+                } else {
+                    downstream.complete(value);
+                }
+            });
+            return;
+        }
+        if (size() == 0 && upstreamDone) {
+            waiting = null;
+            if (upstreamError != null) {
+                downstream.completeExceptionally(upstreamError);
+            } else {
+                downstream.complete(END);
+            }
+        }
+    }
+
+    private int size() {
+        return ordered ? window.size() : inWindow;
+    }
+
+    /** 上游拉取失败，与正常元素区分开 */
+    private static final class Failure {
+
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.oyiersan.completableintro.stream;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 以 Reactive Streams Publisher 为源：每次拉取只 request(1)，Publisher 因此不会比下游跑得更快
+ */
+class PublisherSource<T> extends AsyncStream<T> implements Subscriber<T> {
+
+    private final Publisher<? extends T> publisher;
+
+    private boolean subscribed;
+
+    private Subscription subscription;
+
+    /** 当前未完成的拉取 */
+    private CompletableFuture<Object> pending;
+
+    /** 在没有拉取时到达的终止信号 */
+    private Object terminal;
+
+    PublisherSource(Publisher<? extends T> publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    CompletableFuture<Object> pull() {
+        CompletableFuture<Object> next = new CompletableFuture<>();
+        Subscription toRequest;
+        synchronized (this) {
+            if (terminal != null) {
+                complete(next, terminal);
+                return next;
+            }
+            pending = next;
+            toRequest = subscription;
+            if (!subscribed) {
+                subscribed = true;
+            } else if (toRequest == null) {
+                // 已订阅但 onSubscribe 还没到，等它到了再 request
+                return next;
+            }
+        }
+        if (toRequest != null) {
+            toRequest.request(1);
+        } else {
+            publisher.subscribe(this);
+        }
+        return next;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        boolean requestNow;
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            requestNow = pending != null;
+        }
+        if (requestNow) {
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * 没有需求时到达的 onNext 是 Publisher 违反协议；规范 2.13 不允许在 onNext 中抛异常，
+     * 因此取消订阅，以错误结束这个源，下一次拉取失败
+     */
+    @Override
+    public void onNext(T item) {
+        CompletableFuture<Object> next;
+        Subscription toCancel = null;
+        synchronized (this) {
+            next = pending;
+            pending = null;
+            if (next == null && terminal == null) {
+                terminal = new IllegalStateException("onNext without demand from " + publisher);
+                toCancel = subscription;
+            }
+        }
+        if (next != null) {
+            next.complete(item);
+        } else if (toCancel != null) {
+            toCancel.cancel();
+        }
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        terminate(ex);
+    }
+
+    @Override
+    public void onComplete() {
+        terminate(END);
+    }
+
+    private void terminate(Object signal) {
+        CompletableFuture<Object> next;
+        synchronized (this) {
+            if (terminal != null) {
+                // 已经因为协议错误结束，之后的终止信号忽略
+                return;
+            }
+            terminal = signal;
+            next = pending;
+            pending = null;
+        }
+        if (next != null) {
+            complete(next, signal);
+        }
+    }
+
+    private static void complete(CompletableFuture<Object> next, Object signal) {
+        if (signal instanceof Throwable) {
+            next.completeExceptionally((Throwable) signal);
+        } else {
+            next.complete(signal);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.oyiersan.completableintro.timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 一个请求端到端的截止时间，在 thenApply/thenCompose 链中传递。
+ * <p>
+ * 每个 stage 只能使用剩余的时间：
+ * <pre>
+ * Deadline deadline = Deadline.after(timer, 2, TimeUnit.SECONDS);
+ * deadline.bound(CompletableFuture.supplyAsync(this::findAccountNumber, executor))
+ *         .thenApply(deadline.guard(this::calculateBalance))
+ *         .thenCompose(deadline.compose(this::doSendNotifyBalance));
+ * </pre>
+ * 截止时间到达后，未完成的 stage 以 {@link TimeoutException} 失败，尚未开始的 stage 不再执行。
+ */
+public final class Deadline {
+
+    private final Timer timer;
+
+    /** 以 timer.nanoTime() 为基准的截止时刻 */
+    private final long deadlineNanos;
+
+    private Deadline(Timer timer, long deadlineNanos) {
+        this.timer = timer;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Timer timer, long timeout, TimeUnit unit) {
+        return new Deadline(timer, timer.nanoTime() + unit.toNanos(timeout));
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(deadlineNanos - timer.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - timer.nanoTime() <= 0;
+    }
+
+    /**
+     * @return 与 stage 结果相同的 future，截止时间先到达时以 TimeoutException 失败
+     */
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> stage) {
+        return Timeouts.orTimeout(stage, timer, remainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return 与 stage 结果相同的 future，截止时间先到达时以 fallback 完成
+     */
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> stage, T fallback) {
+        return Timeouts.completeOnTimeout(stage, fallback, timer, remainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 用于 thenApply：执行前检查截止时间，已过期则不再执行
+     */
+    public <T, R> Function<T, R> guard(Function<? super T, ? extends R> fn) {
+        return value -> {
+            checkNotExpired();
+            return fn.apply(value);
+        };
+    }
+
+    /**
+     * 用于 thenCompose：已过期则不再发起，否则内层 future 只能使用剩余的时间。
+     * 截止时间先到时取消内层 future，让它释放占用的资源（例如限速器的预约）
+     */
+    public <T, R> Function<T, CompletableFuture<R>> compose(Function<? super T, ? extends CompletionStage<R>> fn) {
+        return value -> {
+            checkNotExpired();
+            CompletableFuture<R> inner = fn.apply(value).toCompletableFuture();
+            CompletableFuture<R> bounded = bound(inner);
+            bounded.whenComplete((result, ex) -> {
+                if (!inner.isDone()) {
+                    inner.cancel(false);
+                }
+            });
+            return bounded;
+        };
+    }
+
+    private long remainingNanos() {
+        return Math.max(0, deadlineNanos - timer.nanoTime());
+    }
+
+    private void checkNotExpired() {
+        if (isExpired()) {
+            throw new CompletionException(new TimeoutException("Deadline exceeded"));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms]";
+    }
+}
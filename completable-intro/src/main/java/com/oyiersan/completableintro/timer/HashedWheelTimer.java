@@ -0,0 +1,345 @@
+package com.oyiersan.completableintro.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 哈希时间轮。
+ * <p>
+ * 新增和取消都是 O(1)，单个工作线程每个 tick 只处理一个槽位，适合大量、精度要求不高（tick 级别）的超时，
+ * 例如几十万个请求各自的截止时间。到期任务默认在工作线程上执行，应当足够轻量（例如完成一个 future），
+ * 否则通过 taskExecutor 转交给其他线程池。
+ */
+public class HashedWheelTimer implements Timer, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final long maxPendingTimeouts;
+
+    private final Executor taskExecutor;
+
+    /** 新增的超时先进入队列，由工作线程在下一个 tick 放入对应槽位，避免槽位上的并发 */
+    private final Queue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+
+    private final long startTime;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /** 工作线程退出时取消掉的超时，由 stop() 返回 */
+    private volatile Set<Timeout> unprocessedTimeouts = Collections.emptySet();
+
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this(name, tickDuration, unit, wheelSize, -1, Runnable::run);
+    }
+
+    /**
+     * @param maxPendingTimeouts 待执行超时的上限，超出时拒绝，小于等于 0 表示不限制
+     * @param taskExecutor       执行到期任务的执行器
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize,
+                            long maxPendingTimeouts, Executor taskExecutor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be in (0, 2^30]: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize - 1 == 0 ? 1 : wheelSize - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.maxPendingTimeouts = maxPendingTimeouts;
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::runWorker, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new RejectedExecutionException("Timer has been stopped");
+        }
+        long pending = pendingTimeouts.incrementAndGet();
+        if (maxPendingTimeouts > 0 && pending > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("Pending timeouts (" + pending
+                    + ") exceeds maxPendingTimeouts (" + maxPendingTimeouts + ")");
+        }
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startTime;
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline);
+        newTimeouts.add(timeout);
+        // 与 stop() 竞争时可能在工作线程退出后才入队，没人再处理它；能取消说明 stop() 没收走，直接拒绝
+        if (!running && timeout.cancel()) {
+            throw new RejectedExecutionException("Timer has been stopped");
+        }
+        return timeout;
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * 停止工作线程，尚未到期的超时全部取消，不再执行。
+     * <p>
+     * 等待工作线程退出后返回被取消的超时，调用方可以据此补偿（例如让对应的 future 失败）；
+     * 在到期任务里（工作线程上）调用时无法等待，返回空集合。
+     */
+    public Set<Timeout> stop() {
+        if (!running) {
+            return Collections.emptySet();
+        }
+        running = false;
+        if (Thread.currentThread() == worker) {
+            return Collections.emptySet();
+        }
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            worker.interrupt();
+            try {
+                worker.join(100);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return unprocessedTimeouts;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void runWorker() {
+        long tick = 0;
+        while (running) {
+            long deadline = waitForNextTick(tick);
+            if (deadline < 0) {
+                break;
+            }
+            transferNewTimeouts(tick);
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+        Set<Timeout> unprocessed = new HashSet<>();
+        for (Bucket bucket : wheel) {
+            bucket.clearTimeouts(unprocessed);
+        }
+        for (WheelTimeout timeout; (timeout = newTimeouts.poll()) != null; ) {
+            if (timeout.cancel()) {
+                unprocessed.add(timeout);
+            }
+        }
+        unprocessedTimeouts = Collections.unmodifiableSet(unprocessed);
+    }
+
+    /**
+     * @return 当前 tick 结束时刻（相对 startTime），被停止时返回 -1
+     */
+    private long waitForNextTick(long tick) {
+        long deadline = tickNanos * (tick + 1);
+        for (; ; ) {
+            long current = System.nanoTime() - startTime;
+            long sleepNanos = deadline - current;
+            if (sleepNanos <= 0) {
+                return current;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferNewTimeouts(long tick) {
+        // 每个 tick 最多转移 10 万个，防止突发大量新增时工作线程饿死
+        for (int i = 0; i < 100_000; i++) {
+            WheelTimeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state == WheelTimeout.CANCELLED) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的超时放到当前槽位，本 tick 立即执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+
+        static final int INIT = 0;
+
+        static final int CANCELLED = 1;
+
+        static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HashedWheelTimer timer;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private volatile int state = INIT;
+
+        /** 以下字段只由工作线程访问 */
+        long remainingRounds;
+
+        WheelTimeout next;
+
+        WheelTimeout prev;
+
+        WheelTimeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+                return false;
+            }
+            // 不在这里从槽位摘除（槽位只由工作线程修改），工作线程扫到时跳过
+            timer.pendingTimeouts.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        void expire() {
+            if (!STATE.compareAndSet(this, INIT, EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            try {
+                timer.taskExecutor.execute(task);
+            } catch (Throwable t) {
+                log.warn("Timer task {} raised an exception", task, t);
+            }
+        }
+    }
+
+    /**
+     * 槽位：双向链表，只由工作线程访问
+     */
+    private static final class Bucket {
+
+        private WheelTimeout head;
+
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long deadline) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        throw new IllegalStateException(String.format(
+                                "timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        /**
+         * 工作线程退出时调用：取消槽位里剩余的超时并清空槽位
+         */
+        void clearTimeouts(Set<Timeout> cancelled) {
+            for (WheelTimeout timeout = head; timeout != null; ) {
+                WheelTimeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                if (timeout.cancel()) {
+                    cancelled.add(timeout);
+                }
+                timeout = next;
+            }
+            head = tail = null;
+        }
+
+        private void remove(WheelTimeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
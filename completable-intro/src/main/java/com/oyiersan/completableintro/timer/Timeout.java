@@ -0,0 +1,16 @@
+package com.oyiersan.completableintro.timer;
+
+/**
+ * {@link Timer#newTimeout} 返回的句柄
+ */
+public interface Timeout {
+
+    /**
+     * @return 是否成功取消，任务已执行或已取消时返回 false
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    boolean isExpired();
+}
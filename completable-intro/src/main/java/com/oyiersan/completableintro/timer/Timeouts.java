@@ -0,0 +1,57 @@
+package com.oyiersan.completableintro.timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Java 8 上 orTimeout/completeOnTimeout 的替代，基于 {@link Timer} 而不是每个超时一个 ScheduledFuture。
+ * <p>
+ * 返回的是新的 future，原 future 不受影响；原 future 先完成时取消对应的超时，不留下垃圾任务。
+ */
+public final class Timeouts {
+
+    private Timeouts() {
+    }
+
+    public static <T> CompletableFuture<T> orTimeout(CompletableFuture<T> future, Timer timer,
+                                                     long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        propagate(future, result);
+        schedule(result, () -> result.completeExceptionally(
+                new TimeoutException("Timed out after " + timeout + " " + unit)), timer, timeout, unit);
+        return result;
+    }
+
+    public static <T> CompletableFuture<T> completeOnTimeout(CompletableFuture<T> future, T value, Timer timer,
+                                                             long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        propagate(future, result);
+        schedule(result, () -> result.complete(value), timer, timeout, unit);
+        return result;
+    }
+
+    private static void schedule(CompletableFuture<?> result, Runnable onTimeout, Timer timer,
+                                 long timeout, TimeUnit unit) {
+        if (result.isDone()) {
+            return;
+        }
+        if (timeout <= 0) {
+            // 已经没有剩余时间，不必经过时间轮
+            onTimeout.run();
+            return;
+        }
+        Timeout handle = timer.newTimeout(onTimeout, timeout, unit);
+        result.whenComplete((v, ex) -> handle.cancel());
+    }
+
+    private static <T> void propagate(CompletableFuture<T> source, CompletableFuture<T> target) {
+        source.whenComplete((value, ex) -> {
+            if (ex != null) {
+                target.completeExceptionally(ex);
+            } else {
+                target.complete(value);
+            }
+        });
+    }
+}
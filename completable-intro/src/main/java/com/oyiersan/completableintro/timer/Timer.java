@@ -0,0 +1,21 @@
+package com.oyiersan.completableintro.timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟任务调度器。
+ * <p>
+ * {@link #nanoTime()} 是该调度器使用的时钟，基于它计算的截止时间与调度保持一致
+ * （真实时钟或测试中的虚拟时钟）。
+ */
+public interface Timer {
+
+    /**
+     * 在 delay 之后执行 task 一次
+     *
+     * @throws java.util.concurrent.RejectedExecutionException 调度器已停止或待执行任务过多
+     */
+    Timeout newTimeout(Runnable task, long delay, TimeUnit unit);
+
+    long nanoTime();
+}
@@ -0,0 +1,347 @@
+package com.oyiersan.completableintro.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟时钟的调度器，同时也是执行器，用于测试延迟、超时、重试等依赖时间的异步流程。
+ * <p>
+ * 时间只在推进时前进：{@link #advanceBy} 显式推进，{@link #join} 在没有可执行任务时自动跳到下一个到期时间，
+ * 因此"等待 10 秒"只需要几微秒。所有任务在驱动线程上按（到期时间，提交顺序）依次执行，
+ * 同样的输入总是得到同样的执行顺序。
+ * <p>
+ * 被测代码无法改为由测试线程驱动时（例如在 {@code future.get()} 上阻塞），
+ * 用 {@link #startAutoAdvance} 启动后台驱动线程：队列空闲超过 idleGrace（真实时间）后自动推进到下一个到期时间。
+ * <p>
+ * 任务不应再调用本类的驱动方法（runUntilIdle、advanceBy、join）。
+ */
+public class VirtualTimeScheduler implements Timer, Executor, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualTimeScheduler.class);
+
+    /** 当前时刻可以执行的任务 */
+    private final Queue<Runnable> ready = new ArrayDeque<>();
+
+    /** 按（到期时间，提交顺序）排序的延迟任务 */
+    private final PriorityQueue<VirtualTimeout> timeouts = new PriorityQueue<>();
+
+    private long now;
+
+    private long sequence;
+
+    /** 最近一次提交任务的真实时间，自动推进用来判断是否空闲 */
+    private long lastActivity;
+
+    private Thread driver;
+
+    private volatile boolean autoAdvance;
+
+    public VirtualTimeScheduler() {
+        this(0);
+    }
+
+    /**
+     * @param startNanos 虚拟时钟的初始值
+     */
+    public VirtualTimeScheduler(long startNanos) {
+        this.now = startNanos;
+    }
+
+    @Override
+    public synchronized long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            ready.add(task);
+            touch();
+        }
+    }
+
+    @Override
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        synchronized (this) {
+            long deadline = now + Math.max(0, unit.toNanos(delay));
+            VirtualTimeout timeout = new VirtualTimeout(task, deadline, sequence++);
+            timeouts.add(timeout);
+            touch();
+            return timeout;
+        }
+    }
+
+    /**
+     * 提交的任务在 delay（虚拟时间）之后执行，对应 JDK 9 的 {@code CompletableFuture.delayedExecutor}
+     */
+    public Executor delayedExecutor(long delay, TimeUnit unit) {
+        return task -> newTimeout(task, delay, unit);
+    }
+
+    /**
+     * delay（虚拟时间）之后完成的 future
+     */
+    public CompletableFuture<Void> delay(long delay, TimeUnit unit) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        newTimeout(() -> future.complete(null), delay, unit);
+        return future;
+    }
+
+    public synchronized int pendingTimeouts() {
+        return timeouts.size();
+    }
+
+    /**
+     * 在当前线程上执行所有可执行的任务（包括执行过程中新提交的），不推进时间
+     *
+     * @return 执行的任务数
+     */
+    public int runUntilIdle() {
+        checkNotAutoAdvancing();
+        int count = 0;
+        Runnable task;
+        while ((task = pollReady()) != null) {
+            run(task);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 推进 delay 的虚拟时间，途中到期的任务按到期时间依次执行
+     */
+    public void advanceBy(long delay, TimeUnit unit) {
+        checkNotAutoAdvancing();
+        long target;
+        synchronized (this) {
+            target = now + unit.toNanos(delay);
+        }
+        runUntilIdle();
+        while (advanceToNext(target)) {
+            runUntilIdle();
+        }
+        synchronized (this) {
+            if (target - now > 0) {
+                now = target;
+            }
+        }
+    }
+
+    /**
+     * 推进到下一个到期时间并执行该时刻到期的任务
+     *
+     * @return 没有待执行的延迟任务时返回 false
+     */
+    public boolean advanceToNextTimeout() {
+        checkNotAutoAdvancing();
+        runUntilIdle();
+        if (!advanceToNext()) {
+            return false;
+        }
+        runUntilIdle();
+        return true;
+    }
+
+    /**
+     * 驱动调度器直到 future 完成，没有可执行任务时自动推进时间
+     *
+     * @throws IllegalStateException 所有任务都已执行完，future 仍未完成（它永远不会由本调度器完成）
+     */
+    public <T> T join(CompletableFuture<T> future) {
+        checkNotAutoAdvancing();
+        while (true) {
+            runUntilIdle();
+            if (future.isDone()) {
+                return future.join();
+            }
+            if (!advanceToNext()) {
+                throw new IllegalStateException("Scheduler is idle at " + nanoTime()
+                        + "ns but the future is not completed");
+            }
+        }
+    }
+
+    /**
+     * 启动后台驱动线程，任务在该线程上执行，空闲超过 idleGrace（真实时间）后自动推进时间。
+     * 启动后不能再调用其它驱动方法。
+     */
+    public synchronized void startAutoAdvance(long idleGrace, TimeUnit unit) {
+        if (driver != null) {
+            throw new IllegalStateException("Auto advance already started");
+        }
+        long graceNanos = unit.toNanos(idleGrace);
+        autoAdvance = true;
+        driver = new Thread(() -> drive(graceNanos), "virtual-time-scheduler");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * 停止后台驱动线程，未执行的任务保留，可以继续手动驱动
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = driver;
+            autoAdvance = false;
+            notifyAll();
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            driver = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void drive(long graceNanos) {
+        while (autoAdvance) {
+            Runnable task = pollReady();
+            if (task != null) {
+                run(task);
+                continue;
+            }
+            synchronized (this) {
+                if (!ready.isEmpty() || !autoAdvance) {
+                    continue;
+                }
+                long idle = System.nanoTime() - lastActivity;
+                if (!timeouts.isEmpty() && idle >= graceNanos) {
+                    expireNext(timeouts.peek().deadline);
+                    continue;
+                }
+                long waitNanos = timeouts.isEmpty() ? TimeUnit.MILLISECONDS.toNanos(100) : graceNanos - idle;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean advanceToNext() {
+        VirtualTimeout first = timeouts.peek();
+        return first != null && expireNext(first.deadline);
+    }
+
+    private boolean advanceToNext(long limit) {
+        synchronized (this) {
+            return expireNext(limit);
+        }
+    }
+
+    /**
+     * 时钟跳到最早的到期时间（不超过 limit），该时刻到期的任务按提交顺序进入 ready
+     */
+    private boolean expireNext(long limit) {
+        VirtualTimeout first = timeouts.peek();
+        if (first == null || first.deadline - limit > 0) {
+            return false;
+        }
+        if (first.deadline - now > 0) {
+            now = first.deadline;
+        }
+        VirtualTimeout timeout;
+        while ((timeout = timeouts.peek()) != null && timeout.deadline - now <= 0) {
+            timeouts.poll();
+            timeout.state = VirtualTimeout.EXPIRED;
+            ready.add(timeout.task);
+        }
+        return true;
+    }
+
+    private synchronized Runnable pollReady() {
+        return ready.poll();
+    }
+
+    private void touch() {
+        lastActivity = System.nanoTime();
+        notifyAll();
+    }
+
+    private void checkNotAutoAdvancing() {
+        if (autoAdvance) {
+            throw new IllegalStateException("Scheduler is driven by the auto advance thread");
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.warn("Virtual time task {} raised an exception", task, t);
+        }
+    }
+
+    private final class VirtualTimeout implements Timeout, Comparable<VirtualTimeout> {
+
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+
+        final long deadline;
+
+        final long sequence;
+
+        // 由外部类的锁保护
+        int state = PENDING;
+
+        VirtualTimeout(Runnable task, long deadline, long sequence) {
+            this.task = task;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (VirtualTimeScheduler.this) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+                timeouts.remove(this);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (VirtualTimeScheduler.this) {
+                return state == CANCELLED;
+            }
+        }
+
+        @Override
+        public boolean isExpired() {
+            synchronized (VirtualTimeScheduler.this) {
+                return state == EXPIRED;
+            }
+        }
+
+        @Override
+        public int compareTo(VirtualTimeout other) {
+            int byDeadline = Long.compare(deadline - other.deadline, 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.oyiersan.completableintro.watchdog;
+
+/**
+ * 运行时间超过阈值的任务：在哪个 stage、从哪里提交、卡在哪里
+ */
+public final class BlockedTaskReport {
+
+    private final String stage;
+
+    private final StackTraceElement callSite;
+
+    private final String threadName;
+
+    private final Thread.State threadState;
+
+    private final long elapsedNanos;
+
+    private final StackTraceElement[] stackTrace;
+
+    BlockedTaskReport(String stage, StackTraceElement callSite, String threadName, Thread.State threadState,
+                      long elapsedNanos, StackTraceElement[] stackTrace) {
+        this.stage = stage;
+        this.callSite = callSite;
+        this.threadName = threadName;
+        this.threadState = threadState;
+        this.elapsedNanos = elapsedNanos;
+        this.stackTrace = stackTrace;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    /** 提交任务的代码位置，未开启采集时为 null；未经看门狗提交的任务为任务入口 */
+    public StackTraceElement getCallSite() {
+        return callSite;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public Thread.State getThreadState() {
+        return threadState;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** 采样时工作线程的调用栈 */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    @Override
+    public String toString() {
+        return "stage '" + stage + "' running " + elapsedNanos / 1_000_000 + "ms on " + threadName
+                + " (" + threadState + "), submitted at " + callSite
+                + (stackTrace.length > 0 ? ", now at " + stackTrace[0] : "");
+    }
+}
@@ -0,0 +1,437 @@
+package com.oyiersan.completableintro.watchdog;
+
+import com.oyiersan.completableintro.timer.Timeout;
+import com.oyiersan.completableintro.timer.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 阻塞任务与线程池饥饿的看门狗。
+ * <p>
+ * 定期采样被监控的 ForkJoinPool（默认 commonPool）：
+ * <ul>
+ *     <li>运行超过阈值的任务报告一次 {@link BlockedTaskReport}。通过 {@link #supplyAsync} 提交的任务带有 stage 名称和提交位置；
+ *     直接 {@code CompletableFuture.supplyAsync(...)} 到池子里的任务通过读取工作线程的调用栈发现，
+ *     stage 为 {@link #UNTRACKED_STAGE}，位置是任务入口（调用栈最外层的业务代码帧）</li>
+ *     <li>所有工作线程都阻塞（sleep、wait、IO）、且队列比上一次采样更长时报告 {@link StarvationReport}</li>
+ *     <li>开启 redirect 后，被判定为阻塞的 stage 之后不再提交到 ForkJoinPool，而是交给阻塞型执行器；
+ *     只对经过看门狗提交的任务有效</li>
+ * </ul>
+ * 时间轮只负责定时，采样交给看门狗自己的守护线程执行：读取线程调用栈需要进入安全点、耗时可达毫秒级，
+ * 不能占用同一个时间轮上的超时、重试、限速任务。池子里没有活跃线程、也没有排队任务时不读取调用栈。
+ * <p>
+ * 未登记的任务只能在采样时看到，运行时间按连续几次采样里同一个入口计算，精度为一个采样间隔；
+ * 同一入口的任务首尾相接时会被当成一个。
+ */
+public class BlockingWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingWatchdog.class);
+
+    private static final String SELF = BlockingWatchdog.class.getName();
+
+    /** 未经 {@link #supplyAsync} 提交、由采样工作线程发现的任务 */
+    public static final String UNTRACKED_STAGE = "untracked";
+
+    private final Timer timer;
+
+    private final ForkJoinPool pool;
+
+    private final Executor blockingExecutor;
+
+    private final long thresholdNanos;
+
+    private final long sampleNanos;
+
+    private final boolean redirect;
+
+    private final boolean captureCallSite;
+
+    private final Set<RunningTask> running = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> blockingStages = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<BlockedTaskReport>> blockedListeners = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<StarvationReport>> starvationListeners = new CopyOnWriteArrayList<>();
+
+    private long previousQueued;
+
+    /** 正在执行未登记任务的工作线程，只在 sample 中访问 */
+    private final Map<Thread, BusyWorker> busyWorkers = new HashMap<>();
+
+    private volatile Timeout nextSample;
+
+    /** 执行采样的单个守护线程，start 时创建，stop 时关闭 */
+    private ExecutorService sampler;
+
+    private volatile boolean stopped = true;
+
+    private BlockingWatchdog(Builder builder) {
+        this.timer = builder.timer;
+        this.pool = builder.pool;
+        this.blockingExecutor = builder.blockingExecutor;
+        this.thresholdNanos = builder.thresholdNanos;
+        this.sampleNanos = builder.sampleNanos;
+        this.redirect = builder.redirect;
+        this.captureCallSite = builder.captureCallSite;
+    }
+
+    public static Builder builder(Timer timer) {
+        return new Builder(timer);
+    }
+
+    public synchronized void start() {
+        if (stopped) {
+            stopped = false;
+            sampler = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "blocking-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduleSample();
+        }
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        Timeout timeout = nextSample;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    /**
+     * 在被监控的 ForkJoinPool 上执行；若 stage 已知会阻塞且开启了 redirect，则改用阻塞型执行器
+     */
+    public <T> CompletableFuture<T> supplyAsync(String stage, Supplier<T> supplier) {
+        Executor executor = redirect && blockingExecutor != null && blockingStages.contains(stage)
+                ? blockingExecutor : pool;
+        return supplyAsync(stage, supplier, executor);
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(String stage, Supplier<T> supplier, Executor executor) {
+        StackTraceElement callSite = captureCallSite ? callSite(new Throwable().getStackTrace()) : null;
+        return CompletableFuture.supplyAsync(() -> {
+            RunningTask task = new RunningTask(stage, callSite, Thread.currentThread(), timer.nanoTime());
+            running.add(task);
+            try {
+                return supplier.get();
+            } finally {
+                running.remove(task);
+            }
+        }, executor);
+    }
+
+    /**
+     * 手动声明会阻塞的 stage
+     */
+    public void markBlocking(String stage) {
+        blockingStages.add(stage);
+    }
+
+    public boolean isBlocking(String stage) {
+        return blockingStages.contains(stage);
+    }
+
+    public void addBlockedTaskListener(Consumer<BlockedTaskReport> listener) {
+        blockedListeners.add(listener);
+    }
+
+    public void addStarvationListener(Consumer<StarvationReport> listener) {
+        starvationListeners.add(listener);
+    }
+
+    /**
+     * 执行一次采样，正常情况下由定时任务调用
+     */
+    public synchronized void sample() {
+        long now = timer.nanoTime();
+        Set<Thread> tracked = new HashSet<>();
+        for (RunningTask task : running) {
+            tracked.add(task.thread);
+            long elapsed = now - task.startNanos;
+            if (elapsed >= thresholdNanos && !task.reported) {
+                task.reported = true;
+                // 只在 ForkJoinPool 上阻塞才需要改道，已经在阻塞型执行器上的 stage 不需要
+                if (task.thread instanceof ForkJoinWorkerThread) {
+                    blockingStages.add(task.stage);
+                }
+                publish(blockedListeners, new BlockedTaskReport(task.stage, task.callSite, task.thread.getName(),
+                        task.thread.getState(), elapsed, task.thread.getStackTrace()));
+            }
+        }
+        long queued = pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        Map<Thread, StackTraceElement[]> workers = queued > 0 || pool.getActiveThreadCount() > 0
+                ? workerStacks() : Collections.<Thread, StackTraceElement[]>emptyMap();
+        checkUntracked(now, workers, tracked);
+        checkStarvation(queued, workers);
+    }
+
+    private Map<Thread, StackTraceElement[]> workerStacks() {
+        Map<Thread, StackTraceElement[]> workers = new HashMap<>();
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            Thread thread = entry.getKey();
+            if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+                workers.put(thread, entry.getValue());
+            }
+        }
+        return workers;
+    }
+
+    /**
+     * 没有经过看门狗提交的任务：工作线程连续几次采样都停在同一个任务入口，就按第一次看到它的时间计算运行时长
+     */
+    private void checkUntracked(long now, Map<Thread, StackTraceElement[]> workers, Set<Thread> tracked) {
+        busyWorkers.keySet().retainAll(workers.keySet());
+        for (Map.Entry<Thread, StackTraceElement[]> entry : workers.entrySet()) {
+            Thread thread = entry.getKey();
+            StackTraceElement[] stack = entry.getValue();
+            StackTraceElement taskEntry = isIdle(stack) ? null : entryFrame(stack);
+            if (taskEntry == null || tracked.contains(thread)) {
+                // 空闲、只在 JDK 代码里（找任务），或者已经登记过由上面报告
+                busyWorkers.remove(thread);
+                continue;
+            }
+            BusyWorker busy = busyWorkers.get(thread);
+            if (busy == null || !busy.entry.equals(taskEntry)) {
+                busyWorkers.put(thread, new BusyWorker(taskEntry, now));
+                continue;
+            }
+            long elapsed = now - busy.sinceNanos;
+            if (elapsed >= thresholdNanos && !busy.reported) {
+                busy.reported = true;
+                publish(blockedListeners, new BlockedTaskReport(UNTRACKED_STAGE, taskEntry, thread.getName(),
+                        thread.getState(), elapsed, stack));
+            }
+        }
+    }
+
+    /**
+     * 只在队列比上一次采样更长时报告：所有线程都阻塞、积压还在增加才是饥饿，队列稳定或在消化时不算
+     */
+    private void checkStarvation(long queued, Map<Thread, StackTraceElement[]> workers) {
+        long previous = previousQueued;
+        previousQueued = queued;
+        if (queued <= previous || workers.isEmpty()) {
+            return;
+        }
+        List<StackTraceElement> blockedAt = new ArrayList<>();
+        for (Map.Entry<Thread, StackTraceElement[]> entry : workers.entrySet()) {
+            StackTraceElement[] stack = entry.getValue();
+            if (isBlocked(entry.getKey().getState(), stack)) {
+                blockedAt.add(callSite(stack));
+            }
+        }
+        if (blockedAt.size() == workers.size()) {
+            publish(starvationListeners,
+                    new StarvationReport(pool.getParallelism(), workers.size(), queued, previous, blockedAt));
+        }
+    }
+
+    /**
+     * 空闲的工作线程停在 ForkJoinPool.awaitWork，不算阻塞
+     */
+    private static boolean isBlocked(Thread.State state, StackTraceElement[] stack) {
+        if (state == Thread.State.RUNNABLE || state == Thread.State.NEW || state == Thread.State.TERMINATED) {
+            return false;
+        }
+        return !isIdle(stack);
+    }
+
+    private static boolean isIdle(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().equals(ForkJoinPool.class.getName()) && frame.getMethodName().equals("awaitWork")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 调用栈中最外层的业务代码帧，即工作线程正在执行的任务入口；没有时返回 null
+     */
+    private static StackTraceElement entryFrame(StackTraceElement[] stack) {
+        for (int i = stack.length - 1; i >= 0; i--) {
+            if (!isInfrastructure(stack[i].getClassName())) {
+                return stack[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 调用栈中第一个不属于 JDK 和看门狗自身的帧
+     */
+    private static StackTraceElement callSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (!isInfrastructure(frame.getClassName())) {
+                return frame;
+            }
+        }
+        return stack.length > 0 ? stack[0] : null;
+    }
+
+    /**
+     * JDK、看门狗自身和 lambda 生成的类，不是业务代码
+     */
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.")
+                || className.equals(SELF) || className.startsWith(SELF + "$") || className.contains("$$Lambda");
+    }
+
+    private <R> void publish(List<Consumer<R>> listeners, R report) {
+        log.warn("{}", report);
+        for (Consumer<R> listener : listeners) {
+            try {
+                listener.accept(report);
+            } catch (Throwable t) {
+                log.warn("BlockingWatchdog listener failed", t);
+            }
+        }
+    }
+
+    /**
+     * 时间轮线程上只提交采样任务；采样结束后才登记下一次，采样再慢也不会堆积
+     */
+    private void scheduleSample() {
+        Executor executor = sampler;
+        nextSample = timer.newTimeout(() -> {
+            if (stopped) {
+                return;
+            }
+            try {
+                executor.execute(this::runSample);
+            } catch (RejectedExecutionException ignored) {
+                // 已经 stop
+            }
+        }, sampleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void runSample() {
+        if (stopped) {
+            return;
+        }
+        try {
+            sample();
+        } catch (Throwable t) {
+            log.warn("BlockingWatchdog sample failed", t);
+        }
+        synchronized (this) {
+            if (!stopped) {
+                scheduleSample();
+            }
+        }
+    }
+
+    private static final class BusyWorker {
+
+        final StackTraceElement entry;
+
+        final long sinceNanos;
+
+        boolean reported;
+
+        BusyWorker(StackTraceElement entry, long sinceNanos) {
+            this.entry = entry;
+            this.sinceNanos = sinceNanos;
+        }
+    }
+
+    private static final class RunningTask {
+
+        final String stage;
+
+        final StackTraceElement callSite;
+
+        final Thread thread;
+
+        final long startNanos;
+
+        volatile boolean reported;
+
+        RunningTask(String stage, StackTraceElement callSite, Thread thread, long startNanos) {
+            this.stage = stage;
+            this.callSite = callSite;
+            this.thread = thread;
+            this.startNanos = startNanos;
+        }
+    }
+
+    public static final class Builder {
+
+        private final Timer timer;
+
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private Executor blockingExecutor;
+
+        private long thresholdNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private long sampleNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+        private boolean redirect;
+
+        private boolean captureCallSite = true;
+
+        private Builder(Timer timer) {
+            this.timer = timer;
+        }
+
+        /** 监控的 ForkJoinPool，默认 commonPool */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public Builder threshold(long duration, TimeUnit unit) {
+            this.thresholdNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder sampleInterval(long interval, TimeUnit unit) {
+            this.sampleNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /** 被判定为阻塞的 stage 之后改交给 blockingExecutor */
+        public Builder redirectTo(Executor blockingExecutor) {
+            this.blockingExecutor = blockingExecutor;
+            this.redirect = true;
+            return this;
+        }
+
+        /** 是否在提交时记录调用位置，需要构造一次调用栈 */
+        public Builder captureCallSite(boolean captureCallSite) {
+            this.captureCallSite = captureCallSite;
+            return this;
+        }
+
+        public BlockingWatchdog build() {
+            return new BlockingWatchdog(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.oyiersan.completableintro.watchdog;
+
+import java.util.List;
+
+/**
+ * 线程池饥饿：所有工作线程都处于阻塞状态，队列里还有任务在等
+ */
+public final class StarvationReport {
+
+    private final int parallelism;
+
+    private final int blockedWorkers;
+
+    private final long queued;
+
+    private final long previousQueued;
+
+    private final List<StackTraceElement> blockedAt;
+
+    StarvationReport(int parallelism, int blockedWorkers, long queued, long previousQueued,
+                     List<StackTraceElement> blockedAt) {
+        this.parallelism = parallelism;
+        this.blockedWorkers = blockedWorkers;
+        this.queued = queued;
+        this.previousQueued = previousQueued;
+        this.blockedAt = blockedAt;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getBlockedWorkers() {
+        return blockedWorkers;
+    }
+
+    public long getQueued() {
+        return queued;
+    }
+
+    /** 队列比上一次采样更长 */
+    public boolean isGrowing() {
+        return queued > previousQueued;
+    }
+
+    /** 每个阻塞线程调用栈中第一个业务代码帧 */
+    public List<StackTraceElement> getBlockedAt() {
+        return blockedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "pool starved: " + blockedWorkers + "/" + parallelism + " workers blocked, "
+                + queued + " tasks queued (previous sample " + previousQueued + "), blocked at " + blockedAt;
+    }
+}
@@ -1,13 +1,16 @@
 package com.oyiersan.completableintro;
 
 
+import com.oyiersan.completableintro.timer.VirtualTimeScheduler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -17,6 +20,20 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CompletableFutureLongRunningUnitTest {
 
+    // 虚拟时钟：模拟的耗时不真正 sleep，空闲时自动推进
+    private static VirtualTimeScheduler clock;
+
+    @BeforeAll
+    public static void startClock() {
+        clock = new VirtualTimeScheduler();
+        clock.startAutoAdvance(1, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterAll
+    public static void stopClock() {
+        clock.stop();
+    }
+
     @Test
     public void whenRunningCompletableFutureAsynchronously_thenGetMethodWaitsForResult() throws InterruptedException, ExecutionException {
         Future<String> completableFuture = calculateAsync();
@@ -28,12 +45,8 @@ public class CompletableFutureLongRunningUnitTest {
     private Future<String> calculateAsync() throws InterruptedException {
         CompletableFuture<String> completableFuture = new CompletableFuture<>();
 
-        Executors.newCachedThreadPool()
-            .submit(() -> {
-                Thread.sleep(500);
-                completableFuture.complete("Hello");
-                return null;
-            });
+        // 虚拟时钟上的 500ms，get() 照样阻塞等待，但不真正 sleep
+        clock.newTimeout(() -> completableFuture.complete("Hello"), 500, TimeUnit.MILLISECONDS);
 
         return completableFuture;
     }
@@ -49,12 +62,8 @@ public class CompletableFutureLongRunningUnitTest {
     private Future<String> calculateAsyncWithCancellation() throws InterruptedException {
         CompletableFuture<String> completableFuture = new CompletableFuture<>();
 
-        Executors.newCachedThreadPool()
-            .submit(() -> {
-                Thread.sleep(500);
-                completableFuture.cancel(false);
-                return null;
-            });
+        // 同 calculateAsync：虚拟时钟上的 500ms 后取消
+        clock.newTimeout(() -> completableFuture.cancel(false), 500, TimeUnit.MILLISECONDS);
 
         return completableFuture;
     }
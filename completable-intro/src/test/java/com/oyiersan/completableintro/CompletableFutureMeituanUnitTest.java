@@ -1,8 +1,17 @@
 package com.oyiersan.completableintro;
 
 
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import com.oyiersan.completableintro.executor.AsyncExecutors;
+import com.oyiersan.completableintro.graph.GraphResult;
+import com.oyiersan.completableintro.graph.TaskGraph;
+import com.oyiersan.completableintro.timer.VirtualTimeScheduler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Arrays;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -13,10 +22,29 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CompletableFutureMeituanUnitTest {
 
+    // 整个测试类共享一个有界线程池，结束时统一关闭
+    private static ThreadPoolTaskExecutor executor;
+
+    // 虚拟时钟：模拟的耗时不真正 sleep，空闲时自动推进
+    private static VirtualTimeScheduler clock;
+
+    @BeforeAll
+    public static void initExecutor() {
+        executor = AsyncExecutors.boundedExecutor(new AsyncExecutorProperties());
+        executor.initialize();
+        clock = new VirtualTimeScheduler();
+        clock.startAutoAdvance(1, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterAll
+    public static void shutdownExecutor() {
+        executor.shutdown();
+        clock.stop();
+    }
+
     @Test
     public void demo1() throws InterruptedException, ExecutionException {
 
-        ExecutorService executor = Executors.newFixedThreadPool(5);
         //1、使用runAsync或supplyAsync发起异步调用
         CompletableFuture<String> cf1 = CompletableFuture.supplyAsync(() -> {
             return "result1";
@@ -34,7 +62,6 @@ public class CompletableFutureMeituanUnitTest {
     @Test
     public void demo2() throws InterruptedException, ExecutionException {
 
-        ExecutorService executor = Executors.newFixedThreadPool(5);
         //1、使用runAsync或supplyAsync发起异步调用
         CompletableFuture<String> cf1 = CompletableFuture.supplyAsync(() -> {
             return "result1";
@@ -77,15 +104,30 @@ public class CompletableFutureMeituanUnitTest {
     }
 
 
+    @Test
+    public void demo2WithTaskGraph() {
+        // 与 demo2 相同的依赖关系，由任务图按 key 声明，输入就绪即调度，结果直接传给下游
+        TaskGraph graph = TaskGraph.builder(executor)
+                .node("cf1", in -> "result1")
+                .node("cf2", in -> "result2")
+                .node("cf3", Arrays.asList("cf1"), in -> "result3")
+                .node("cf4", Arrays.asList("cf1", "cf2"), in -> "result4")
+                .node("cf5", Arrays.asList("cf2"), in -> "result5")
+                .node("result", Arrays.asList("cf3", "cf4", "cf5"),
+                        in -> in.<String>get("cf3") + in.get("cf4") + in.get("cf5"))
+                .build();
+
+        GraphResult result = graph.execute().join();
+        assertEquals("result3result4result5", result.get("result"));
+        System.out.println("critical path: " + result.getCriticalPath());
+    }
+
+
     private Future<String> calculateAsync() throws InterruptedException {
         CompletableFuture<String> completableFuture = new CompletableFuture<>();
 
-        Executors.newCachedThreadPool()
-            .submit(() -> {
-                Thread.sleep(500);
-                completableFuture.complete("Hello");
-                return null;
-            });
+        // 虚拟时钟上的 500ms，get() 照样阻塞等待，但不真正 sleep
+        clock.newTimeout(() -> completableFuture.complete("Hello"), 500, TimeUnit.MILLISECONDS);
 
         return completableFuture;
     }
@@ -101,12 +143,8 @@ public class CompletableFutureMeituanUnitTest {
     private Future<String> calculateAsyncWithCancellation() throws InterruptedException {
         CompletableFuture<String> completableFuture = new CompletableFuture<>();
 
-        Executors.newCachedThreadPool()
-            .submit(() -> {
-                Thread.sleep(500);
-                completableFuture.cancel(false);
-                return null;
-            });
+        // 同 calculateAsync：虚拟时钟上的 500ms 后取消
+        clock.newTimeout(() -> completableFuture.cancel(false), 500, TimeUnit.MILLISECONDS);
 
         return completableFuture;
     }
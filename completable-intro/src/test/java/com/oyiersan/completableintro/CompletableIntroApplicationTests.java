@@ -1,11 +1,28 @@
 package com.oyiersan.completableintro;
 
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.executor.BlockingTaskExecutor;
+import com.oyiersan.completableintro.future.Futures;
+import com.oyiersan.completableintro.loader.BatchLoader;
+import com.oyiersan.completableintro.metrics.StageMetricsEndpoint;
+import com.oyiersan.completableintro.scope.Subtask;
+import com.oyiersan.completableintro.scope.TaskScope;
+import com.oyiersan.completableintro.stream.AsyncStream;
+import com.oyiersan.completableintro.timer.Deadline;
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import com.oyiersan.completableintro.timer.VirtualTimeScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.StopWatch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -13,17 +30,51 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class CompletableIntroApplicationTests {
 
+    @Autowired
+    private ThreadPoolTaskExecutor asyncExecutor;
+
+    // 阻塞型 stage（sleep、模拟远程调用）使用
+    @Autowired
+    private BlockingTaskExecutor blockingExecutor;
+
+    @Autowired
+    private AccountPipeline accountPipeline;
+
+    @Autowired
+    private HashedWheelTimer asyncTimer;
+
+    @Autowired
+    private StageMetricsEndpoint stageMetricsEndpoint;
+
+    // 模拟耗时的 sleep、延迟都走虚拟时钟，整个测试类不再真实等待几十秒
+    private VirtualTimeScheduler clock;
+
+    @BeforeEach
+    public void startClock() {
+        clock = new VirtualTimeScheduler();
+        clock.startAutoAdvance(100, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    public void stopClock() {
+        clock.stop();
+        // 没有被等待的 stage 可能还阻塞在虚拟时钟上，全部放行，避免占住共享线程池
+        while (clock.advanceToNextTimeout()) {
+            clock.runUntilIdle();
+        }
+    }
 
     // 异步处理 runAsync
     @Test
     public void testCompletableFutureRunAsync() {
         AtomicInteger variable = new AtomicInteger(0);
-        CompletableFuture<Void> runAsync = CompletableFuture.runAsync(() -> process(variable));
+        CompletableFuture<Void> runAsync = CompletableFuture.runAsync(() -> process(variable), asyncExecutor);
         runAsync.join();
         assertEquals(100, variable.get());
     }
@@ -37,7 +88,7 @@ class CompletableIntroApplicationTests {
     // 异步处理 supplyAsync
     @Test
     public void testCompletableFutureSupplyAsync() {
-        CompletableFuture<String> supplyAsync = CompletableFuture.supplyAsync(this::process);
+        CompletableFuture<String> supplyAsync = CompletableFuture.supplyAsync(this::process, asyncExecutor);
         try {
             assertEquals("Hello supplyAsync", supplyAsync.get()); // Blocking
         } catch (ExecutionException | InterruptedException e) {
@@ -54,8 +105,7 @@ class CompletableIntroApplicationTests {
     // 异步处理 自定义线程
     @Test
     public void testCompletableFutureSupplyAsyncWithExecutor() {
-        ExecutorService newFixedThreadPool = Executors.newFixedThreadPool(2);
-        CompletableFuture<String> supplyAsync = CompletableFuture.supplyAsync(this::process, newFixedThreadPool);
+        CompletableFuture<String> supplyAsync = CompletableFuture.supplyAsync(this::process, asyncExecutor);
         try {
             assertEquals("Hello supplyAsync", supplyAsync.get()); // Blocking
         } catch (ExecutionException | InterruptedException e) {
@@ -69,7 +119,7 @@ class CompletableIntroApplicationTests {
     // 异步处理 thenApply
     @Test
     public void testCompletableFutureThenApply() {
-        Integer notificationId = CompletableFuture.supplyAsync(this::thenApplyProcess)
+        Integer notificationId = CompletableFuture.supplyAsync(this::thenApplyProcess, asyncExecutor)
                 .thenApply(this::thenApplyNotify)
                 .join();
         assertEquals(new Integer(1), notificationId);
@@ -78,7 +128,7 @@ class CompletableIntroApplicationTests {
     // 异步处理 thenAccept
     @Test
     public void testCompletableFutureThenAccept() {
-        CompletableFuture.supplyAsync(this::processVariable)
+        CompletableFuture.supplyAsync(this::processVariable, blockingExecutor)
                 .thenAccept(this::thenAcceptNotify)
                 .join();
         assertEquals(100, variable.get());
@@ -87,7 +137,7 @@ class CompletableIntroApplicationTests {
     // 异步处理 thenRun
     @Test
     public void testCompletableFutureThenRun() {
-        CompletableFuture.supplyAsync(this::processVariable)
+        CompletableFuture.supplyAsync(this::processVariable, blockingExecutor)
                 .thenRun(this::thenRunNotify)
                 .join();
         assertEquals(100, variable.get());
@@ -97,11 +147,7 @@ class CompletableIntroApplicationTests {
         System.out.println(Thread.currentThread() + " processVariable...");
 
         variable.set(100);
-        try {
-            TimeUnit.SECONDS.sleep(10);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        sleepSeconds(10);
         return "success";
     }
 
@@ -134,7 +180,7 @@ class CompletableIntroApplicationTests {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
 
-        CompletableFuture.supplyAsync(this::findAccountNumber)
+        CompletableFuture.supplyAsync(this::findAccountNumber, blockingExecutor)
                 .thenApply(this::calculateBalance)
                 .thenApply(this::notifyBalance)
                 .thenRun(this::notifyByEmail).join();
@@ -147,11 +193,7 @@ class CompletableIntroApplicationTests {
         System.out.println(Thread.currentThread() + " notifyByEmail...");
         // business code
 //        System.out.println("send notify by email ..." + d);
-        try {
-            TimeUnit.SECONDS.sleep(5);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        sleepSeconds(5);
     }
 
     private Double notifyBalance(Double d) {
@@ -160,22 +202,14 @@ class CompletableIntroApplicationTests {
 //        System.out.println(String.format("your balance is $%s", d));
 
 //        int a = 1/0;
-        try {
-            TimeUnit.SECONDS.sleep(5);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        sleepSeconds(5);
         return 1D + d;
     }
 
     private Double calculateBalance(Double d) {
         System.out.println(Thread.currentThread() + " calculateBalance...");
-        try {
-            int a = 1/0;
-            TimeUnit.SECONDS.sleep(5);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        int a = 1/0;
+        sleepSeconds(5);
         // business code
         return 1D + d;
     }
@@ -183,11 +217,7 @@ class CompletableIntroApplicationTests {
     private Double findAccountNumber() {
         System.out.println(Thread.currentThread() + " findAccountNumber...");
 
-        try {
-            TimeUnit.SECONDS.sleep(5);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        sleepSeconds(5);
         // business code
         return 1D;
     }
@@ -197,18 +227,53 @@ class CompletableIntroApplicationTests {
     public void testCompletableFutureApplyAsync() {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        ExecutorService newFixedThreadPool = Executors.newFixedThreadPool(5);
                 CompletableFuture
-                        .supplyAsync(this::findAccountNumber, newFixedThreadPool)
+                        .supplyAsync(this::findAccountNumber, blockingExecutor)
                         .thenApplyAsync(this::calculateBalance,
-                                newFixedThreadPool)
-                        .thenApplyAsync(this::notifyBalance, newFixedThreadPool)
-                        .thenRunAsync(this::notifyByEmail, newFixedThreadPool).join();
+                                blockingExecutor)
+                        .thenApplyAsync(this::notifyBalance, blockingExecutor)
+                        .thenRunAsync(this::notifyByEmail, blockingExecutor).join();
         stopWatch.stop();
         System.out.println(stopWatch.prettyPrint());
     }
 
 
+    // 阻塞型 stage 交给 blockingExecutor（虚拟线程或回退的平台线程池）
+    @Test
+    public void testAccountPipelineOnBlockingExecutor() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        List<CompletableFuture<Double>> list = new ArrayList<>();
+        IntStream.range(0, 4).forEach(num -> list.add(accountPipeline.process()));
+        list.forEach(future -> assertEquals(2D, future.join()));
+        stopWatch.stop();
+        System.out.println(blockingExecutor.getMode() + "\n" + stopWatch.prettyPrint());
+    }
+
+    // 端到端截止时间：四个 stage 共约 200ms，100ms 后整体超时
+    @Test
+    public void testAccountPipelineWithDeadline() {
+        assertEquals(2D, accountPipeline.process(Deadline.after(asyncTimer, 5, TimeUnit.SECONDS)).join());
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> accountPipeline.process(Deadline.after(asyncTimer, 100, TimeUnit.MILLISECONDS)).join());
+        assertTrue(ex.getCause() instanceof TimeoutException);
+    }
+
+    // 每个 stage 的排队/执行时间通过 Actuator 的 stages 端点查看，替代 println + StopWatch
+    @Test
+    public void testAccountPipelineStageMetrics() {
+        accountPipeline.process().join();
+
+        Map<String, Map<String, Object>> stages = stageMetricsEndpoint.stages();
+        assertTrue(stages.keySet().containsAll(Arrays.asList(
+                "findAccountNumber", "calculateBalance", "notifyBalance", "notifyByEmail")));
+        assertTrue(stages.get("calculateBalance").containsKey("queue"));
+        assertTrue(stages.get("calculateBalance").containsKey("run.success"));
+        System.out.println(stages);
+    }
+
+
     // 执行结果处理 thenCompose
     @Test
     public void testCompletableFutureThenCompose() {
@@ -246,11 +311,14 @@ class CompletableIntroApplicationTests {
         return CompletableFuture.completedFuture(1D);
     }
 
+    // 在虚拟时钟上等待：调用线程仍然阻塞，但时钟空闲后直接跳到到期时间，不真正等待 timeout 秒
     private void sleepSeconds(int timeout) {
         try {
-            TimeUnit.SECONDS.sleep(timeout);
+            clock.delay(timeout, TimeUnit.SECONDS).get();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -267,12 +335,35 @@ class CompletableIntroApplicationTests {
         System.out.println(stopWatch.prettyPrint());
     }
 
+    // 结构化并发：findAddress 失败时不再等待 5 秒的 findName，它的线程被中断并释放
+    @Test
+    public void testTaskScopeFailFast() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        try (TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(blockingExecutor)) {
+            Subtask<String> name = scope.fork(() -> {
+                sleepSeconds(5);
+                return "thenCombine ";
+            });
+            scope.fork(() -> {
+                throw new IllegalStateException("address service unavailable");
+            });
+
+            CompletionException ex = assertThrows(CompletionException.class, scope::join);
+            assertEquals("address service unavailable", ex.getCause().getMessage());
+            assertEquals(Subtask.State.UNAVAILABLE, name.state());
+        }
+        stopWatch.stop();
+        assertTrue(stopWatch.getTotalTimeMillis() < 5000);
+        System.out.println(stopWatch.prettyPrint());
+    }
+
     private CompletableFuture<String> findAddress() {
         return CompletableFuture.supplyAsync(() -> {
             sleepSeconds(5);
             // business code
             return "Shanghai, China";
-        });
+        }, blockingExecutor);
     }
 
     private CompletableFuture<String> findName() {
@@ -280,7 +371,7 @@ class CompletableIntroApplicationTests {
             sleepSeconds(5);
             // business code
             return "thenCombine ";
-        });
+        }, blockingExecutor);
     }
 
 
@@ -292,14 +383,8 @@ class CompletableIntroApplicationTests {
         List<CompletableFuture<String>> list = new ArrayList<>();
         IntStream.range(0, 3).forEach(num -> list.add(findName(num)));
 
-        CompletableFuture<Void> allFuture = CompletableFuture
-                .allOf(list.toArray(new CompletableFuture[0]));
-
-        CompletableFuture<List<String>> allFutureList = allFuture
-                .thenApply(val -> {
-                    List<String> result = list.stream().map(CompletableFuture::join).collect(Collectors.toList());
-                    return result;
-                });
+        // 直接得到结果列表，不需要 allOf 之后再 join 一遍
+        CompletableFuture<List<String>> allFutureList = Futures.allAsList(list);
 
         CompletableFuture<String> futureHavingAllValues = allFutureList
                 .thenApply(fn -> String.join("", fn));
@@ -310,25 +395,60 @@ class CompletableIntroApplicationTests {
         System.out.println(stopWatch.prettyPrint());
     }
 
+    // 批量加载：同一窗口内的三次 findName 合并成一次 findNames 调用
+    @Test
+    public void testCompletableFutureAllofWithBatchLoader() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(this::findNames, asyncTimer,
+                10, TimeUnit.MILLISECONDS, 100, asyncExecutor);
+        List<CompletableFuture<String>> list = new ArrayList<>();
+        IntStream.range(0, 3).forEach(num -> list.add(loader.load(num)));
+
+        String result = Futures.allAsList(list).thenApply(fn -> String.join("", fn)).join();
+        assertEquals("Allof0Allof1Allof2", result);
+        assertEquals(1, loader.getBatchCount());
+        stopWatch.stop();
+        System.out.println(stopWatch.prettyPrint());
+    }
+
+    // 流式处理：最多 3 个 findName 同时进行，源头按需读取，数量再大内存也不增长
+    @Test
+    public void testCompletableFutureAllofWithStream() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        String result = AsyncStream.fromIterator(IntStream.range(0, 3).iterator())
+                .mapAsync(3, this::findName)
+                .reduce("", String::concat)
+                .join();
+        assertEquals("Allof0Allof1Allof2", result);
+        stopWatch.stop();
+        System.out.println(stopWatch.prettyPrint());
+    }
+
+    private CompletableFuture<List<String>> findNames(List<Integer> nums) {
+        return CompletableFuture.supplyAsync(() -> {
+            sleepSeconds(2);
+            // business code
+            return nums.stream().map(num -> "Allof" + num).collect(Collectors.toList());
+        }, blockingExecutor);
+    }
+
     private CompletableFuture<String> findName(int num) {
         return CompletableFuture.supplyAsync(() -> {
             sleepSeconds(2);
             // business code
             return "Allof" + num;
-        });
+        }, blockingExecutor);
     }
 
+    // future2 在虚拟时钟上延迟 10 秒，不真正占用线程 sleep
     @Test
     public void whenFutureCombinedWithAllOfCompletes_thenAllFuturesAreDone() throws ExecutionException, InterruptedException {
-        CompletableFuture<String> future1 = CompletableFuture.supplyAsync(() -> "Hello");
-        CompletableFuture<String> future2 = CompletableFuture.supplyAsync(() -> {
-            try {
-                TimeUnit.SECONDS.sleep(10);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-            return "Beautiful";});
-        CompletableFuture<String> future3 = CompletableFuture.supplyAsync(() -> "World");
+        CompletableFuture<String> future1 = CompletableFuture.supplyAsync(() -> "Hello", asyncExecutor);
+        CompletableFuture<String> future2 = CompletableFuture.supplyAsync(() -> "Beautiful",
+                clock.delayedExecutor(10, TimeUnit.SECONDS));
+        CompletableFuture<String> future3 = CompletableFuture.supplyAsync(() -> "World", asyncExecutor);
 
         CompletableFuture<Void> combinedFuture = CompletableFuture.allOf(future1, future2, future3);
 
@@ -350,10 +470,29 @@ class CompletableIntroApplicationTests {
     }
 
 
+    // 按完成顺序处理结果，快的结果不必等待 10 秒（虚拟时钟）的慢任务
+    @Test
+    public void testCompletableFutureInCompletionOrder() {
+        CompletableFuture<String> future1 = CompletableFuture.supplyAsync(() -> "Hello", asyncExecutor);
+        CompletableFuture<String> future2 = CompletableFuture.supplyAsync(() -> "Beautiful",
+                clock.delayedExecutor(10, TimeUnit.SECONDS));
+        CompletableFuture<String> future3 = CompletableFuture.supplyAsync(() -> "World", asyncExecutor);
+
+        List<String> arrived = new ArrayList<>();
+        Futures.inCompletionOrder(Arrays.asList(future1, future2, future3), value -> {
+            System.out.println(Thread.currentThread() + " arrived " + value);
+            arrived.add(value);
+        }).join();
+
+        assertEquals("Beautiful", arrived.get(2));
+        assertEquals("Hello Beautiful World", String.join(" ", Futures.allAsList(Arrays.asList(future1, future2, future3)).join()));
+    }
+
+
     //异常处理  exceptionally
     @Test
     public void testCompletableFutureExceptionally() {
-        CompletableFuture<Double> thenApply = CompletableFuture.supplyAsync(this::findAccountNumber)
+        CompletableFuture<Double> thenApply = CompletableFuture.supplyAsync(this::findAccountNumber, blockingExecutor)
                 .thenApply(this::calculateBalance)
                 .thenApply(this::notifyBalance)
                 .exceptionally(ex -> {
@@ -368,7 +507,7 @@ class CompletableIntroApplicationTests {
     //异常处理  handle
     @Test
     public void testCompletableFutureHandle() {
-        Double join = CompletableFuture.supplyAsync(this::findAccountNumber)
+        Double join = CompletableFuture.supplyAsync(this::findAccountNumber, blockingExecutor)
                 .thenApply(this::calculateBalance)
                 .thenApply(this::notifyBalance)
                 .handle((ok, ex) -> {
@@ -388,7 +527,7 @@ class CompletableIntroApplicationTests {
     //异常处理  whenComplete
     @Test
     public void testCompletableFutureWhenComplete() {
-        CompletableFuture.supplyAsync(this::findAccountNumber)
+        CompletableFuture.supplyAsync(this::findAccountNumber, blockingExecutor)
                 .thenApply(this::calculateBalance)
                 .thenApply(this::notifyBalance)
                 .whenComplete((result, ex) -> {
@@ -0,0 +1,86 @@
+package com.oyiersan.completableintro.benchmark;
+
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import com.oyiersan.completableintro.executor.AsyncExecutors;
+import com.oyiersan.completableintro.executor.BlockingTaskExecutor;
+import com.oyiersan.completableintro.executor.ExecutionMode;
+import com.oyiersan.completableintro.executor.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同时发起 concurrency 条账户流水线，测量全部完成所需时间。
+ * concurrency / 平均耗时 即为该模式下可持续的流水线吞吐；
+ * 平台线程池在 concurrency 超过线程数后耗时线性增长，虚拟线程应基本持平。
+ * 没有虚拟线程的 JDK 上 VIRTUAL 这一组在 setUp 时直接失败（JMH 跳过它继续跑其余参数），不会输出标错的数据。
+ * <p>
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=AccountPipelineBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AccountPipelineBenchmark {
+
+    private static final long STAGE_LATENCY_MILLIS = 5;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ExecutionMode mode;
+
+    @Param({"16", "256", "1024"})
+    public int concurrency;
+
+    private ThreadPoolTaskExecutor platformExecutor;
+
+    private BlockingTaskExecutor blockingExecutor;
+
+    private AccountPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // BlockingTaskExecutor 在没有虚拟线程的 JDK 上会静默回退到平台线程，VIRTUAL 一行将是错误标注的 PLATFORM 数据
+        if (mode == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("VIRTUAL requires virtual threads (JDK 21+), running on "
+                    + System.getProperty("java.version"));
+        }
+        platformExecutor = AsyncExecutors.boundedExecutor(new AsyncExecutorProperties());
+        platformExecutor.initialize();
+        blockingExecutor = new BlockingTaskExecutor(mode, platformExecutor);
+        pipeline = AccountPipeline.builder(blockingExecutor)
+                .stageLatency(STAGE_LATENCY_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        blockingExecutor.destroy();
+        platformExecutor.shutdown();
+    }
+
+    @Benchmark
+    public Object concurrentPipelines() {
+        CompletableFuture<?>[] futures = new CompletableFuture[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = pipeline.process();
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,69 @@
+package com.oyiersan.completableintro.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * thenApply 与 thenApplyAsync 在不同链长度、不同执行器下的开销对比。
+ * <p>
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=ChainBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+
+    @Param({"COMMON", "FIXED", "CALLER_RUNS"})
+    public ExecutorType executorType;
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = executorType.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ExecutorType.shutdown(executor);
+    }
+
+    @Benchmark
+    public long thenApply() {
+        CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> 1L, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApply(v -> v + 1);
+        }
+        return future.join();
+    }
+
+    @Benchmark
+    public long thenApplyAsync() {
+        CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> 1L, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApplyAsync(v -> v + 1, executor);
+        }
+        return future.join();
+    }
+}
@@ -0,0 +1,111 @@
+package com.oyiersan.completableintro.benchmark;
+
+import com.oyiersan.completableintro.context.Context;
+import com.oyiersan.completableintro.context.ContextExecutor;
+import com.oyiersan.completableintro.context.ContextFuture;
+import com.oyiersan.completableintro.context.ContextKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上下文传递的每跳开销：同一条 depth 长的 thenApplyAsync 链，分别不带上下文、用 ContextExecutor、用 ContextFuture。
+ * <p>
+ * DIRECT（同线程执行）排除线程切换本身的耗时，差值除以 depth 即每个 stage 的额外开销。
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=ContextPropagationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextPropagationBenchmark {
+
+    private static final ContextKey<String> TRACE_ID = ContextKey.of("traceId");
+
+    private static final ContextKey<String> TRACE_ID_MDC = ContextKey.mdc("traceId");
+
+    @Param({"DIRECT", "FIXED"})
+    public ExecutorType executorType;
+
+    @Param({"8"})
+    public int depth;
+
+    private Executor executor;
+
+    private Executor contextExecutor;
+
+    private Context context;
+
+    private Context mdcContext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = executorType.create();
+        contextExecutor = ContextExecutor.wrap(executor);
+        context = Context.ROOT.with(TRACE_ID, "trace-1");
+        mdcContext = Context.ROOT.with(TRACE_ID_MDC, "trace-1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ExecutorType.shutdown(executor);
+    }
+
+    @Benchmark
+    public long baseline() {
+        CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> 1L, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApplyAsync(v -> v + 1, executor);
+        }
+        return future.join();
+    }
+
+    @Benchmark
+    public long contextExecutor() {
+        try (Context.Scope ignored = context.attach()) {
+            CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> 1L, contextExecutor);
+            for (int i = 0; i < depth; i++) {
+                future = future.thenApplyAsync(v -> v + 1, contextExecutor);
+            }
+            return future.join();
+        }
+    }
+
+    @Benchmark
+    public long contextFuture() {
+        try (Context.Scope ignored = context.attach()) {
+            CompletableFuture<Long> future = ContextFuture.supplyAsync(() -> 1L, executor);
+            for (int i = 0; i < depth; i++) {
+                future = future.thenApplyAsync(v -> v + 1, executor);
+            }
+            return future.join();
+        }
+    }
+
+    @Benchmark
+    public long contextExecutorWithMdc() {
+        try (Context.Scope ignored = mdcContext.attach()) {
+            CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> 1L, contextExecutor);
+            for (int i = 0; i < depth; i++) {
+                future = future.thenApplyAsync(v -> v + 1, contextExecutor);
+            }
+            return future.join();
+        }
+    }
+}
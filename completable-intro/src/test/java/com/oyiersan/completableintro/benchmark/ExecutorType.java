@@ -0,0 +1,65 @@
+package com.oyiersan.completableintro.benchmark;
+
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import com.oyiersan.completableintro.executor.AsyncExecutors;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 基准测试中对比的几种执行器
+ */
+public enum ExecutorType {
+
+    /** ForkJoinPool.commonPool()，不传 executor 时的默认选择 */
+    COMMON {
+        @Override
+        public Executor create() {
+            return ForkJoinPool.commonPool();
+        }
+    },
+
+    /** Executors.newFixedThreadPool，无界队列 */
+    FIXED {
+        @Override
+        public Executor create() {
+            return Executors.newFixedThreadPool(4);
+        }
+    },
+
+    /** 项目共享的有界线程池，队列满时由提交线程执行 */
+    CALLER_RUNS {
+        @Override
+        public Executor create() {
+            AsyncExecutorProperties properties = new AsyncExecutorProperties();
+            properties.setCorePoolSize(4);
+            properties.setMaxPoolSize(4);
+            properties.setQueueCapacity(64);
+            properties.setRejectionPolicy(AsyncExecutorProperties.RejectionPolicy.CALLER_RUNS);
+            ThreadPoolTaskExecutor executor = AsyncExecutors.boundedExecutor(properties);
+            executor.initialize();
+            return executor;
+        }
+    },
+
+    /** 在提交线程上直接执行，不切换线程，用于单独测量框架本身的开销 */
+    DIRECT {
+        @Override
+        public Executor create() {
+            return Runnable::run;
+        }
+    };
+
+    public abstract Executor create();
+
+    public static void shutdown(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        } else if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.oyiersan.completableintro.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个独立任务的合并方式对比：thenCompose 串行、thenCombine 两两合并、allOf 后再 join 一遍。
+ * <p>
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=FanOutBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"COMMON", "FIXED", "CALLER_RUNS"})
+    public ExecutorType executorType;
+
+    @Param({"2", "16", "64"})
+    public int width;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = executorType.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ExecutorType.shutdown(executor);
+    }
+
+    @Benchmark
+    public long thenCompose() {
+        CompletableFuture<Long> future = CompletableFuture.completedFuture(0L);
+        for (int i = 0; i < width; i++) {
+            final long n = i;
+            future = future.thenCompose(v -> CompletableFuture.supplyAsync(() -> v + n, executor));
+        }
+        return future.join();
+    }
+
+    @Benchmark
+    public long thenCombine() {
+        CompletableFuture<Long> future = CompletableFuture.completedFuture(0L);
+        for (int i = 0; i < width; i++) {
+            final long n = i;
+            future = future.thenCombine(CompletableFuture.supplyAsync(() -> n, executor), Long::sum);
+        }
+        return future.join();
+    }
+
+    @Benchmark
+    public long allOfJoin() {
+        List<CompletableFuture<Long>> list = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            final long n = i;
+            list.add(CompletableFuture.supplyAsync(() -> n, executor));
+        }
+        return CompletableFuture.allOf(list.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    long sum = 0;
+                    for (CompletableFuture<Long> future : list) {
+                        sum += future.join();
+                    }
+                    return sum;
+                }).join();
+    }
+}
@@ -0,0 +1,72 @@
+package com.oyiersan.completableintro.benchmark;
+
+import com.oyiersan.completableintro.journal.Journal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 同时发起 concurrency 次 append，测量全部落盘所需时间。
+ * 逐条 fsync 时耗时随 concurrency 线性增长；group commit 下一批只 fsync 一次，耗时应远低于 concurrency 次 fsync。
+ * <p>
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=JournalBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final byte[] VALUE = new byte[64];
+
+    @Param({"1", "16", "256"})
+    public int concurrency;
+
+    private Path dir;
+
+    private Journal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-benchmark");
+        journal = Journal.builder(dir).compactThreshold(4).open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        System.out.println("records per fsync: " + (double) journal.getAppended() / journal.getCommits());
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object append() {
+        CompletableFuture<?>[] futures = new CompletableFuture[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = journal.append("account-" + i, VALUE);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,94 @@
+package com.oyiersan.completableintro.benchmark;
+
+import com.oyiersan.completableintro.primitive.DoubleFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数值流水线：CompletableFuture&lt;Double&gt; 与 DoubleFuture 对比。
+ * <p>
+ * pending：先注册整条链再完成源头，每个 stage 都要挂回调节点；
+ * async：每个 stage 都经过执行器。加上 {@code -prof gc} 可以看到每次操作的分配量。
+ * 运行方式：{@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=NumericFutureBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumericFutureBenchmark {
+
+    @Param({"DIRECT"})
+    public ExecutorType executorType;
+
+    @Param({"8"})
+    public int depth;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = executorType.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ExecutorType.shutdown(executor);
+    }
+
+    @Benchmark
+    public double boxedPending() {
+        CompletableFuture<Double> source = new CompletableFuture<>();
+        CompletableFuture<Double> future = source;
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApply(balance -> balance * 1.01 + 0.5);
+        }
+        source.complete(1D);
+        return future.join();
+    }
+
+    @Benchmark
+    public double unboxedPending() {
+        DoubleFuture source = new DoubleFuture();
+        DoubleFuture future = source;
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApply(balance -> balance * 1.01 + 0.5);
+        }
+        source.complete(1D);
+        return future.join();
+    }
+
+    @Benchmark
+    public double boxedAsync() {
+        CompletableFuture<Double> future = CompletableFuture.supplyAsync(() -> 1D, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApplyAsync(balance -> balance * 1.01 + 0.5, executor);
+        }
+        return future.join();
+    }
+
+    @Benchmark
+    public double unboxedAsync() {
+        DoubleFuture future = DoubleFuture.supplyAsync(() -> 1D, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApplyAsync(balance -> balance * 1.01 + 0.5, executor);
+        }
+        return future.join();
+    }
+}
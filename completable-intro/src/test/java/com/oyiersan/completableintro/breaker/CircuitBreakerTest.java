@@ -0,0 +1,173 @@
+package com.oyiersan.completableintro.breaker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker.Builder breaker() {
+        return CircuitBreaker.builder("calculateBalance")
+                .windowSize(10)
+                .minimumCalls(5)
+                .failureRateThreshold(50)
+                .waitDurationInOpen(10, TimeUnit.SECONDS)
+                .permittedCallsInHalfOpen(2)
+                .clock(now::get);
+    }
+
+    @Test
+    public void whenFailureRateExceedsThreshold_thenOpensAndShortCircuits() {
+        CircuitBreaker breaker = breaker().build();
+        List<StateTransition> events = new ArrayList<>();
+        breaker.addListener(events::add);
+        AtomicInteger invocations = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            Double balance = breaker.supplyAsync(() -> {
+                invocations.incrementAndGet();
+                return calculateBalance();
+            }, Runnable::run, ex -> 0D).join();
+            assertEquals(0D, balance);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 熔断后不再执行 supplier，直接返回 fallback
+        Double fallback = breaker.supplyAsync(() -> {
+            invocations.incrementAndGet();
+            return calculateBalance();
+        }, command -> {
+            throw new AssertionError("executor must not be used while open");
+        }, ex -> ex instanceof CallNotPermittedException ? -1D : 0D).join();
+
+        assertEquals(-1D, fallback);
+        assertEquals(5, invocations.get());
+        assertEquals(1, events.size());
+        assertEquals(CircuitBreaker.State.CLOSED, events.get(0).getFrom());
+        assertEquals(CircuitBreaker.State.OPEN, events.get(0).getTo());
+        assertEquals(100f, events.get(0).getFailureRate());
+    }
+
+    @Test
+    public void whenBelowMinimumCalls_thenStaysClosed() {
+        CircuitBreaker breaker = breaker().build();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.supplyAsync(this::calculateBalance, Runnable::run, ex -> 0D).join();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void whenWaitElapsesAndTrialCallsSucceed_thenCloses() {
+        CircuitBreaker breaker = breaker().build();
+        List<CircuitBreaker.State> states = new ArrayList<>();
+        breaker.addListener(e -> states.add(e.getTo()));
+        tripOpen(breaker);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).join());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).join());
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(Arrays.asList(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED), states);
+    }
+
+    @Test
+    public void whenTrialCallsFail_thenReopens() {
+        CircuitBreaker breaker = breaker().build();
+        tripOpen(breaker);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        breaker.call(() -> pending);
+        breaker.call(() -> pending);
+        // 试探名额用完
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> breaker.call(() -> CompletableFuture.completedFuture("third")).join());
+        assertTrue(ex.getCause() instanceof CallNotPermittedException);
+
+        pending.completeExceptionally(new ArithmeticException("/ by zero"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void whenTrialCallsNeverComplete_thenReopensAfterMaxWait() {
+        CircuitBreaker breaker = breaker().maxWaitInHalfOpen(5, TimeUnit.SECONDS).build();
+        tripOpen(breaker);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        // 下游挂起，试探调用永远不会结束
+        CompletableFuture<String> hung = new CompletableFuture<>();
+        breaker.call(() -> hung);
+        breaker.call(() -> hung);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertThrows(CompletionException.class, () -> breaker.call(() -> CompletableFuture.completedFuture("x")).join());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 再等一个 waitDurationInOpen 又可以试探，之前挂起的调用结束后不再影响新状态
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).join());
+        hung.completeExceptionally(new ArithmeticException("/ by zero"));
+        assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).join());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void whenCallsAreSlow_thenOpensOnSlowCallRate() {
+        CircuitBreaker breaker = breaker()
+                .slowCallDuration(1, TimeUnit.SECONDS)
+                .slowCallRateThreshold(60)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            breaker.call(() -> future);
+            now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            future.complete("slow but fine");
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(100f, breaker.getSlowCallRate(), 0.01);
+    }
+
+    @Test
+    public void whenExceptionIsIgnored_thenItDoesNotCountAsFailure() {
+        CircuitBreaker breaker = breaker().recordFailure(ex -> !(ex instanceof IllegalArgumentException)).build();
+
+        for (int i = 0; i < 10; i++) {
+            breaker.supplyAsync(() -> {
+                throw new IllegalArgumentException("bad account");
+            }, Runnable::run, ex -> null).join();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void tripOpen(CircuitBreaker breaker) {
+        for (int i = 0; i < 5; i++) {
+            breaker.supplyAsync(this::calculateBalance, Runnable::run, ex -> 0D).join();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private Double calculateBalance() {
+        int a = 1 / 0;
+        return 1D;
+    }
+}
@@ -0,0 +1,124 @@
+package com.oyiersan.completableintro.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncValueCacheTest {
+
+    @Test
+    public void whenConcurrentCallersAskForSameKey_thenLoaderRunsOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Double> pending = new CompletableFuture<>();
+        AsyncValueCache<Integer, Double> cache = AsyncValueCache.<Integer, Double>builder(key -> {
+            loads.incrementAndGet();
+            return pending;
+        }, Runnable::run).build();
+
+        CompletableFuture<Double> first = cache.get(1);
+        CompletableFuture<Double> second = cache.get(1);
+        pending.complete(1D);
+
+        assertSame(first, second);
+        assertEquals(1D, second.join());
+        assertEquals(1, loads.get());
+        assertEquals(1D, cache.get(1).join());
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void whenLoadFails_thenFailureIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        AsyncValueCache<Integer, String> cache = AsyncValueCache.<Integer, String>builder(key -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (loads.incrementAndGet() == 1) {
+                future.completeExceptionally(new IllegalStateException("down"));
+            } else {
+                future.complete("ok");
+            }
+            return future;
+        }, Runnable::run).build();
+
+        assertThrows(CompletionException.class, () -> cache.get(1).join());
+        assertEquals("ok", cache.get(1).join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void whenExpiredAfterWrite_thenValueIsReloaded() {
+        FakeTicker ticker = new FakeTicker();
+        AtomicInteger loads = new AtomicInteger();
+        AsyncValueCache<Integer, Integer> cache = AsyncValueCache.<Integer, Integer>builder(
+                key -> CompletableFuture.completedFuture(loads.incrementAndGet()), Runnable::run)
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .ticker(ticker)
+                .build();
+
+        assertEquals(1, cache.get(1).join());
+        ticker.advance(11, TimeUnit.SECONDS);
+        assertEquals(2, cache.get(1).join());
+    }
+
+    @Test
+    public void whenRefreshIsDue_thenStaleValueIsServedWhileReloading() {
+        FakeTicker ticker = new FakeTicker();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Integer> reload = new CompletableFuture<>();
+        AsyncValueCache<Integer, Integer> cache = AsyncValueCache.<Integer, Integer>builder(key ->
+                loads.incrementAndGet() == 1 ? CompletableFuture.completedFuture(1) : reload, Runnable::run)
+                .refreshAfterWrite(Duration.ofSeconds(5))
+                .ticker(ticker)
+                .build();
+
+        assertEquals(1, cache.get(1).join());
+        ticker.advance(6, TimeUnit.SECONDS);
+
+        // 刷新进行中，仍然立即返回旧值
+        assertEquals(1, cache.get(1).join());
+        assertEquals(2, loads.get());
+        reload.complete(2);
+        assertEquals(2, cache.get(1).join());
+    }
+
+    @Test
+    public void whenMaximumSizeExceeded_thenEntriesAreEvicted() {
+        AsyncValueCache<Integer, Integer> cache = AsyncValueCache.<Integer, Integer>builder(
+                CompletableFuture::completedFuture, Runnable::run)
+                .maximumSize(10)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(i).join();
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.estimatedSize() <= 10);
+        assertTrue(cache.stats().evictionCount() >= 90);
+    }
+
+    private static final class FakeTicker implements com.github.benmanes.caffeine.cache.Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.oyiersan.completableintro.cancel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CancellableFutureTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        // 单线程：只有被取消的任务真正让出线程，后续任务才能执行
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenCancelled_thenRunningTaskIsInterruptedAndThreadIsReleased() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CancellableFuture<String> future = CancellableFuture.supplyAsync(() -> {
+            started.countDown();
+            return sleep(10_000, interrupted);
+        }, executor);
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+
+        // 线程池唯一的线程立即可以执行下一个任务，且中断标记已清除
+        String next = CompletableFuture.supplyAsync(() -> Thread.currentThread().isInterrupted() ? "dirty" : "clean", executor)
+                .get(1, TimeUnit.SECONDS);
+        assertEquals("clean", next);
+        assertTrue(interrupted.get());
+        assertThrows(CancellationException.class, future::join);
+    }
+
+    @Test
+    public void whenCancelledBeforeStart_thenTaskNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        AtomicBoolean ran = new AtomicBoolean();
+        CancellableFuture<String> queued = CancellableFuture.supplyAsync(() -> {
+            ran.set(true);
+            return "ran";
+        }, executor);
+
+        queued.cancel(true);
+        release.countDown();
+        CompletableFuture.runAsync(() -> { }, executor).get(1, TimeUnit.SECONDS);
+
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void whenLastStageIsCancelled_thenRunningUpstreamIsCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CancellableFuture<String> findAccountNumber = CancellableFuture.supplyAsync(() -> {
+            started.countDown();
+            return sleep(10_000, interrupted);
+        }, executor);
+        CancellableFuture<String> notifyBalance = findAccountNumber
+                .thenApply(s -> s + " balance")
+                .thenApplyAsync(s -> s + " notified", executor);
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        notifyBalance.cancel(true);
+
+        assertTrue(findAccountNumber.isCancelled());
+        waitUntil(interrupted);
+    }
+
+    @Test
+    public void whenUpstreamIsShared_thenItIsCancelledOnlyWhenAllDependentsAre() {
+        CancellableFuture<String> shared = new CancellableFuture<>();
+        CancellableFuture<String> first = shared.thenApply(s -> s + "1");
+        CancellableFuture<String> second = shared.thenApply(s -> s + "2");
+
+        first.cancel(true);
+        assertFalse(shared.isCancelled());
+
+        second.cancel(true);
+        assertTrue(shared.isCancelled());
+    }
+
+    @Test
+    public void whenRetained_thenUpstreamSurvivesDependentCancellation() {
+        CancellableFuture<String> shared = new CancellableFuture<String>().retain();
+        shared.thenApply(s -> s).cancel(true);
+
+        assertFalse(shared.isCancelled());
+    }
+
+    @Test
+    public void whenComposedStageIsCancelled_thenInnerFutureIsCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CancellableFuture<CancellableFuture<String>> innerHolder = new CancellableFuture<>();
+        CancellableFuture<String> composed = CancellableFuture.supplyAsync(() -> 1D, Runnable::run)
+                .thenCompose(d -> {
+                    CancellableFuture<String> inner = CancellableFuture.supplyAsync(() -> {
+                        started.countDown();
+                        return sleep(10_000, interrupted);
+                    }, executor);
+                    innerHolder.complete(inner);
+                    return inner;
+                });
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        composed.cancel(true);
+
+        assertTrue(innerHolder.join().isCancelled());
+        waitUntil(interrupted);
+    }
+
+    @Test
+    public void whenUpstreamIsCancelled_thenDependentsAreCancelled() {
+        CancellableFuture<String> source = new CancellableFuture<>();
+        CancellableFuture<String> dependent = source.thenApply(s -> s).thenApplyAsync(s -> s, executor);
+        CompletableFuture<String> plain = source.thenAccept(s -> { }).thenApply(v -> "plain");
+
+        source.cancel(true);
+
+        assertTrue(dependent.isCancelled());
+        assertTrue(plain.isCompletedExceptionally());
+    }
+
+    @Test
+    public void whenCombinedStageIsCancelled_thenBothSourcesAreCancelled() {
+        CancellableFuture<String> name = new CancellableFuture<>();
+        CancellableFuture<String> address = new CancellableFuture<>();
+
+        name.thenCombine(address, (n, a) -> n + a).cancel(true);
+
+        assertTrue(name.isCancelled());
+        assertTrue(address.isCancelled());
+    }
+
+    private static String sleep(long millis, AtomicBoolean interrupted) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return "finished";
+        } catch (InterruptedException e) {
+            interrupted.set(true);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(AtomicBoolean flag) throws InterruptedException {
+        for (int i = 0; i < 100 && !flag.get(); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(flag.get());
+    }
+}
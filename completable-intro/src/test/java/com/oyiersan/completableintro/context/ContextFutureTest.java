@@ -0,0 +1,111 @@
+package com.oyiersan.completableintro.context;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ContextFutureTest {
+
+    private static final ContextKey<String> TRACE_ID = ContextKey.mdc("traceId");
+
+    private static final ContextKey<String> TENANT = ContextKey.of("tenant");
+
+    private static ExecutorService pool;
+
+    @BeforeAll
+    public static void setUp() {
+        pool = Executors.newFixedThreadPool(5);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void whenChainHopsThreadsOnContextExecutor_thenEveryStageSeesContext() {
+        Executor executor = ContextExecutor.wrap(pool);
+        String result;
+        try (Context.Scope ignored = Context.current().with(TRACE_ID, "t-1").with(TENANT, "acme").attach()) {
+            result = CompletableFuture.supplyAsync(() -> Context.current().get(TENANT), executor)
+                    .thenApplyAsync(tenant -> tenant + ":" + MDC.get("traceId"), executor)
+                    .thenApplyAsync(value -> value + ":" + Context.current().get(TRACE_ID), executor)
+                    .join();
+        }
+
+        assertEquals("acme:t-1:t-1", result);
+        assertSame(Context.ROOT, Context.current());
+        assertNull(MDC.get("traceId"));
+    }
+
+    @Test
+    public void whenStageRegisteredUnderContext_thenCallbackSeesRegistrationContext() {
+        ContextFuture<String> source = new ContextFuture<>();
+        ContextFuture<String> tenant;
+        try (Context.Scope ignored = Context.current().with(TENANT, "acme").attach()) {
+            // 同步 thenApply：执行线程是完成 source 的线程，而不是注册的线程
+            tenant = source.thenApply(value -> value + ":" + Context.current().get(TENANT));
+        }
+
+        // 在另一个上下文（或没有上下文）的线程上完成
+        CompletableFuture.runAsync(() -> source.complete("v"), pool).join();
+
+        assertEquals("v:acme", tenant.join());
+    }
+
+    @Test
+    public void whenPoolThreadsAreReused_thenContextDoesNotLeak() {
+        Executor executor = ContextExecutor.wrap(pool);
+        try (Context.Scope ignored = Context.current().with(TRACE_ID, "t-2").attach()) {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> { }, executor),
+                    CompletableFuture.runAsync(() -> { }, executor)).join();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertNull(CompletableFuture.supplyAsync(() -> MDC.get("traceId"), pool).join());
+            assertSame(Context.ROOT, CompletableFuture.supplyAsync(Context::current, pool).join());
+        }
+    }
+
+    @Test
+    public void whenKeyIsOverridden_thenInnermostValueWins() {
+        Context outer = Context.ROOT.with(TRACE_ID, "outer");
+        Context inner = outer.with(TRACE_ID, "inner");
+
+        try (Context.Scope ignored = inner.attach()) {
+            assertEquals("inner", MDC.get("traceId"));
+            try (Context.Scope ignored2 = outer.attach()) {
+                assertEquals("outer", MDC.get("traceId"));
+            }
+            assertEquals("inner", MDC.get("traceId"));
+        }
+        assertEquals("outer", outer.get(TRACE_ID));
+        assertNull(MDC.get("traceId"));
+    }
+
+    @Test
+    public void whenStageFails_thenExceptionallySeesContext() {
+        String result;
+        try (Context.Scope ignored = Context.current().with(TENANT, "acme").attach()) {
+            result = ContextFuture.<String>supplyAsync(() -> {
+                        throw new IllegalStateException("boom");
+                    }, pool)
+                    .thenApplyAsync(value -> "unreachable", pool)
+                    .exceptionally(ex -> Context.current().get(TENANT) + ":" + ex.getCause().getMessage())
+                    .join();
+        }
+
+        assertEquals("acme:boom", result);
+    }
+}
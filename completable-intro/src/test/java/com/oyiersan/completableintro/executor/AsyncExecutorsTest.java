@@ -0,0 +1,70 @@
+package com.oyiersan.completableintro.executor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncExecutorsTest {
+
+    @Test
+    public void whenPoolAndQueueAreFull_thenAbortPolicyRejects() throws InterruptedException {
+        AsyncExecutorProperties properties = new AsyncExecutorProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        properties.setQueueCapacity(1);
+        properties.setRejectionPolicy(AsyncExecutorProperties.RejectionPolicy.ABORT);
+        ThreadPoolTaskExecutor executor = AsyncExecutors.boundedExecutor(properties);
+        executor.initialize();
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture.runAsync(() -> await(release), executor);
+            CompletableFuture.runAsync(() -> await(release), executor);
+
+            assertThrows(RejectedExecutionException.class,
+                    () -> CompletableFuture.runAsync(() -> { }, executor));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void whenCallerRunsPolicy_thenOverflowRunsOnSubmitter() {
+        AsyncExecutorProperties properties = new AsyncExecutorProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        properties.setQueueCapacity(1);
+        ThreadPoolTaskExecutor executor = AsyncExecutors.boundedExecutor(properties);
+        executor.initialize();
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture.runAsync(() -> await(release), executor);
+            CompletableFuture.runAsync(() -> await(release), executor);
+
+            Thread caller = Thread.currentThread();
+            Thread runner = CompletableFuture.supplyAsync(Thread::currentThread, executor).join();
+            assertEquals(caller, runner);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.getThreadPoolExecutor().isShutdown());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.oyiersan.completableintro.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockingTaskExecutorTest {
+
+    @Test
+    public void whenPlatformMode_thenTasksRunOnFallbackPool() {
+        ExecutorService platform = Executors.newSingleThreadExecutor(r -> new Thread(r, "platform-fallback"));
+        BlockingTaskExecutor executor = new BlockingTaskExecutor(ExecutionMode.PLATFORM, platform);
+
+        String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).join();
+
+        assertEquals(ExecutionMode.PLATFORM, executor.getMode());
+        assertEquals("platform-fallback", threadName);
+        executor.destroy();
+        // 回退的线程池不归 BlockingTaskExecutor 管理
+        assertFalse(platform.isShutdown());
+        platform.shutdown();
+    }
+
+    @Test
+    public void whenVirtualMode_thenUsesVirtualThreadsOrFallsBack() {
+        ExecutorService platform = Executors.newSingleThreadExecutor();
+        BlockingTaskExecutor executor = new BlockingTaskExecutor(ExecutionMode.VIRTUAL, platform);
+
+        CompletableFuture.runAsync(() -> { }, executor).join();
+
+        assertEquals(VirtualThreads.isSupported() ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM, executor.getMode());
+        executor.destroy();
+        platform.shutdown();
+        assertTrue(platform.isShutdown());
+    }
+}
@@ -0,0 +1,111 @@
+package com.oyiersan.completableintro.future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncLoopTest {
+
+    private static final int MILLION = 1_000_000;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenMillionStepsCompleteSynchronously_thenStackStaysFlat() {
+        AtomicInteger maxDepth = new AtomicInteger();
+        int baseDepth = Thread.currentThread().getStackTrace().length;
+
+        int result = Futures.iterate(0, i -> i < MILLION, i -> {
+            if (i % 100_000 == 0) {
+                maxDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+            }
+            return CompletableFuture.completedFuture(i + 1);
+        }).join();
+
+        assertEquals(MILLION, result);
+        assertTrue(maxDepth.get() - baseDepth < 20, "stack grew by " + (maxDepth.get() - baseDepth));
+    }
+
+    @Test
+    public void whenMillionStepsHopThreads_thenStackStaysFlat() {
+        AtomicInteger maxDepth = new AtomicInteger();
+
+        int result = Futures.iterate(0, i -> i < MILLION, i -> {
+            if (i % 100_000 == 0) {
+                maxDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+            }
+            // 一半同步完成、一半在线程池上完成，覆盖两种路径交替的情况
+            return i % 2 == 0
+                    ? CompletableFuture.completedFuture(i + 1)
+                    : CompletableFuture.supplyAsync(() -> i + 1, executor);
+        }).join();
+
+        assertEquals(MILLION, result);
+        assertTrue(maxDepth.get() < 100, "stack depth " + maxDepth.get());
+    }
+
+    @Test
+    public void whenPolling_thenAsyncWhileStopsOnFalse() {
+        AtomicLong polls = new AtomicLong();
+
+        Futures.asyncWhile(() -> CompletableFuture.supplyAsync(() -> polls.incrementAndGet() < MILLION, executor))
+                .join();
+
+        assertEquals(MILLION, polls.get());
+    }
+
+    @Test
+    public void whenPaging_thenStateIsThreadedThroughSteps() {
+        // 翻页：state 为 {下一页页码, 已累计条数}
+        long[] total = Futures.iterate(new long[]{0, 0}, page -> page[0] >= 0, page ->
+                CompletableFuture.supplyAsync(() -> {
+                    long next = page[0] + 1 < 1000 ? page[0] + 1 : -1;
+                    return new long[]{next, page[1] + 50};
+                }, executor)).join();
+
+        assertEquals(50_000L, total[1]);
+    }
+
+    @Test
+    public void whenStepFails_thenLoopFailsWithCause() {
+        CompletionException ex = assertThrows(CompletionException.class, () ->
+                Futures.iterate(0, i -> true, i -> {
+                    if (i == 500_000) {
+                        throw new IllegalStateException("page " + i);
+                    }
+                    return CompletableFuture.completedFuture(i + 1);
+                }).join());
+
+        assertEquals("page 500000", ex.getCause().getMessage());
+
+        ex = assertThrows(CompletionException.class, () ->
+                Futures.iterate(0, i -> true, i -> CompletableFuture.supplyAsync(() -> {
+                    if (i == 1000) {
+                        throw new IllegalArgumentException("async " + i);
+                    }
+                    return i + 1;
+                }, executor)).join());
+        assertTrue(ex.getCause() instanceof IllegalArgumentException);
+    }
+}
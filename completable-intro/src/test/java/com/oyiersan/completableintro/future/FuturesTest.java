@@ -0,0 +1,92 @@
+package com.oyiersan.completableintro.future;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FuturesTest {
+
+    @Test
+    public void whenAllComplete_thenResultsKeepInputOrder() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> third = new CompletableFuture<>();
+
+        CompletableFuture<List<String>> all = Futures.allAsList(Arrays.asList(first, second, third));
+        third.complete("World");
+        first.complete("Hello");
+        assertFalse(all.isDone());
+        second.complete("Beautiful");
+
+        assertEquals(Arrays.asList("Hello", "Beautiful", "World"), all.join());
+    }
+
+    @Test
+    public void whenOneFails_thenAllAsListFailsWithoutWaitingForOthers() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> failed = new CompletableFuture<>();
+
+        CompletableFuture<List<String>> all = Futures.allAsList(Arrays.asList(pending, failed));
+        failed.completeExceptionally(new IllegalStateException("boom"));
+
+        CompletionException ex = assertThrows(CompletionException.class, all::join);
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertFalse(pending.isDone());
+    }
+
+    @Test
+    public void whenEmpty_thenCompletesImmediately() {
+        assertEquals(Collections.emptyList(), Futures.allAsList(Collections.<CompletableFuture<String>>emptyList()).join());
+        assertTrue(Futures.inCompletionOrder(Collections.<CompletableFuture<String>>emptyList(), v -> { }).isDone());
+    }
+
+    @Test
+    public void whenResultsArrive_thenConsumerSeesCompletionOrder() {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> fast = new CompletableFuture<>();
+        List<String> seen = new ArrayList<>();
+
+        CompletableFuture<Void> done = Futures.inCompletionOrder(Arrays.asList(slow, fast), seen::add);
+        fast.complete("fast");
+        // 慢的还没完成，快的结果已经交付
+        assertEquals(Collections.singletonList("fast"), seen);
+        slow.complete("slow");
+
+        done.join();
+        assertEquals(Arrays.asList("fast", "slow"), seen);
+    }
+
+    @Test
+    public void whenCompletedConcurrently_thenConsumerIsNeverCalledConcurrently() {
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 1000)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> i))
+                .collect(Collectors.toList());
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        int[] active = new int[1];
+        boolean[] overlapped = new boolean[1];
+
+        Futures.inCompletionOrder(futures, v -> {
+            if (++active[0] > 1) {
+                overlapped[0] = true;
+            }
+            seen.add(v);
+            active[0]--;
+        }).join();
+
+        assertFalse(overlapped[0]);
+        assertEquals(1000, seen.size());
+    }
+}
@@ -0,0 +1,134 @@
+package com.oyiersan.completableintro.graph;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaskGraphTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void initExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenInputsComplete_thenDependentReceivesValuesDirectly() {
+        TaskGraph graph = TaskGraph.builder(executor)
+                .node("cf1", in -> "result1")
+                .node("cf2", in -> "result2")
+                .node("cf3", Arrays.asList("cf1"), in -> in.<String>get("cf1") + "->result3")
+                .node("cf4", Arrays.asList("cf1", "cf2"), in -> "result4")
+                .node("cf5", Arrays.asList("cf2"), in -> "result5")
+                .node("result", Arrays.asList("cf3", "cf4", "cf5"),
+                        in -> in.get("cf3") + "," + in.get("cf4") + "," + in.get("cf5"))
+                .build();
+
+        GraphResult result = graph.execute().join();
+
+        assertEquals("result1->result3,result4,result5", result.get("result"));
+        assertEquals(6, result.getTimings().size());
+    }
+
+    @Test
+    public void whenBranchesAreIndependent_thenTheyRunInParallelAndCriticalPathIsTheLongest() {
+        TaskGraph graph = TaskGraph.builder(executor)
+                .node("fast", in -> sleep(50))
+                .node("slow", in -> sleep(300))
+                .node("afterFast", Arrays.asList("fast"), in -> sleep(50))
+                .node("join", Arrays.asList("afterFast", "slow"), in -> "done")
+                .build();
+
+        GraphResult result = graph.execute().join();
+
+        List<String> path = result.getCriticalPath().stream().map(NodeTiming::getKey).collect(Collectors.toList());
+        assertEquals(Arrays.asList("slow", "join"), path);
+        // 串行执行至少 400ms，并行后应接近最长链 300ms
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(result.getTotalNanos()) < 400);
+    }
+
+    @Test
+    public void whenAsyncNode_thenStageResultIsPassedDownstream() {
+        TaskGraph graph = TaskGraph.builder(executor)
+                .asyncNode("remote", Collections.emptyList(), in -> CompletableFuture.supplyAsync(() -> 41, executor))
+                .node("plusOne", Arrays.asList("remote"), in -> in.<Integer>get("remote") + 1)
+                .build();
+
+        assertEquals(Integer.valueOf(42), graph.execute().join().get("plusOne"));
+        // 同一个图可以重复执行
+        assertEquals(Integer.valueOf(42), graph.execute().join().get("plusOne"));
+    }
+
+    @Test
+    public void whenNodeFails_thenRunFailsAndDependentsAreSkipped() {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        TaskGraph graph = TaskGraph.builder(executor)
+                .node("broken", in -> 1 / 0)
+                .node("dependent", Arrays.asList("broken"), in -> dependentRan.getAndSet(true))
+                .build();
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> graph.execute().join());
+
+        assertTrue(ex.getCause() instanceof TaskGraphException);
+        assertEquals("broken", ((TaskGraphException) ex.getCause()).getNodeKey());
+        assertTrue(ex.getCause().getCause() instanceof ArithmeticException);
+        assertFalse(dependentRan.get());
+    }
+
+    @Test
+    public void whenNodeReadsUndeclaredInput_thenFails() {
+        TaskGraph graph = TaskGraph.builder(executor)
+                .node("a", in -> 1)
+                .node("b", in -> 2)
+                .node("c", Arrays.asList("a"), in -> in.get("b"))
+                .build();
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> graph.execute().join());
+        assertTrue(ex.getCause().getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void whenGraphIsInvalid_thenBuildFails() {
+        assertThrows(IllegalArgumentException.class, () -> TaskGraph.builder(executor)
+                .node("a", Arrays.asList("missing"), in -> 1)
+                .build());
+        assertThrows(IllegalStateException.class, () -> TaskGraph.builder(executor)
+                .node("a", Arrays.asList("b"), in -> 1)
+                .node("b", Arrays.asList("a"), in -> 2)
+                .build());
+        assertThrows(IllegalArgumentException.class, () -> TaskGraph.builder(executor)
+                .node("a", in -> 1)
+                .node("a", in -> 2));
+    }
+
+    private static String sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slept " + millis;
+    }
+}
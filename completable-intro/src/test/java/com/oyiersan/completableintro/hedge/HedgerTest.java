@@ -0,0 +1,149 @@
+package com.oyiersan.completableintro.hedge;
+
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgerTest {
+
+    private static HashedWheelTimer timer;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        timer = new HashedWheelTimer("hedger-test", 1, TimeUnit.MILLISECONDS, 256);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenPrimaryIsSlow_thenHedgeWinsAndPrimaryIsCancelled() {
+        Hedger hedger = new Hedger(timer, new LatencyTracker(128, 0.95), new HedgeBudget(1.0, 10), 20,
+                TimeUnit.MILLISECONDS, executor);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<CompletableFuture<String>> primary = new AtomicReference<>();
+        AtomicReference<String> hedgeThread = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        String result = hedger.call(() -> {
+            if (attempts.getAndIncrement() == 0) {
+                // 主请求永远不返回
+                primary.set(new CompletableFuture<>());
+                return primary.get();
+            }
+            hedgeThread.set(Thread.currentThread().getName());
+            return CompletableFuture.supplyAsync(() -> "hedged", executor);
+        }).join();
+
+        assertEquals("hedged", result);
+        // 对冲请求不在时间轮线程上发起
+        assertNotEquals("hedger-test", hedgeThread.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        // 输掉的主请求在结果交付后被取消
+        assertThrows(CancellationException.class, () -> primary.get().join());
+        assertEquals(1, hedger.getHedges());
+        assertEquals(1, hedger.getHedgeWins());
+    }
+
+    @Test
+    public void whenPrimaryIsFast_thenNoHedgeIsSent() {
+        Hedger hedger = new Hedger(timer, new LatencyTracker(128, 0.95), new HedgeBudget(1.0, 10), 200,
+                TimeUnit.MILLISECONDS, executor);
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", hedger.call(() -> {
+                attempts.incrementAndGet();
+                return CompletableFuture.completedFuture("fast");
+            }).join());
+        }
+
+        assertEquals(10, attempts.get());
+        assertEquals(0, hedger.getHedges());
+    }
+
+    @Test
+    public void whenBudgetIsExhausted_thenSlowRequestsAreNotHedged() {
+        // 5% 的额度，20 个请求才攒够 1 次对冲
+        Hedger hedger = new Hedger(timer, new LatencyTracker(128, 0.95), new HedgeBudget(0.05, 1), 5,
+                TimeUnit.MILLISECONDS, executor);
+        int calls = 40;
+        CompletableFuture<?>[] results = new CompletableFuture[calls];
+        for (int i = 0; i < calls; i++) {
+            results[i] = hedger.call(() -> CompletableFuture.supplyAsync(() -> {
+                sleep(30);
+                return "slow";
+            }, executor));
+        }
+        CompletableFuture.allOf(results).join();
+
+        assertTrue(hedger.getHedges() <= 2, "hedges " + hedger.getHedges());
+    }
+
+    @Test
+    public void whenDelayIsLearned_thenPercentileOfObservedLatencyIsUsed() {
+        LatencyTracker tracker = new LatencyTracker(100, 0.9);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Hedger hedger = new Hedger(timer, tracker, new HedgeBudget(0.05, 10), 1, TimeUnit.SECONDS, executor);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(90), hedger.hedgeDelayNanos());
+    }
+
+    @Test
+    public void whenPrimaryFailsBeforeHedge_thenFailsImmediately() {
+        Hedger hedger = new Hedger(timer, new LatencyTracker(128, 0.95), new HedgeBudget(1.0, 10), 1,
+                TimeUnit.SECONDS, executor);
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("down"));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> hedger.call(() -> failed).join());
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertEquals(0, hedger.getHedges());
+    }
+
+    @Test
+    public void whenPrimaryIsCancelledBeforeHedge_thenResultIsCancelled() {
+        Hedger hedger = new Hedger(timer, new LatencyTracker(128, 0.95), new HedgeBudget(1.0, 10), 1,
+                TimeUnit.SECONDS, executor);
+        CompletableFuture<String> primary = new CompletableFuture<>();
+
+        CompletableFuture<String> result = hedger.call(() -> primary);
+        primary.cancel(true);
+
+        // 不等对冲延迟，立即以 CancellationException 结束
+        assertTrue(result.isDone());
+        assertThrows(CancellationException.class, result::join);
+        assertEquals(0, hedger.getHedges());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
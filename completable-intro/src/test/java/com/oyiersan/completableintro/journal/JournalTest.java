@@ -0,0 +1,262 @@
+package com.oyiersan.completableintro.journal;
+
+import com.oyiersan.completableintro.account.AccountPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<JournalRecord> replay(Journal journal) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(records::add);
+        return records;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(Journal.SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void whenAppendCompletes_thenRecordSurvivesReopen() throws IOException {
+        try (Journal journal = Journal.builder(dir).open()) {
+            assertEquals(1L, journal.append("account-1", "created").join());
+            assertEquals(2L, journal.append("account-2", "created").join());
+        }
+
+        try (Journal journal = Journal.builder(dir).open()) {
+            List<JournalRecord> records = replay(journal);
+            assertEquals(2, records.size());
+            assertEquals("account-1", records.get(0).getKey());
+            assertEquals("created", records.get(0).getValueAsString());
+            assertEquals(2, records.get(1).getSequence());
+            // sequence 接着上次继续
+            assertEquals(3L, journal.append("account-3", "created").join());
+        }
+    }
+
+    @Test
+    public void whenAppendsAreConcurrent_thenTheyShareOneFsync() throws IOException {
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        try (Journal journal = Journal.builder(dir).open()) {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                String key = "account-" + i;
+                futures.add(CompletableFuture.supplyAsync(() -> journal.append(key, "created"), producers)
+                        .thenCompose(f -> f));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            assertEquals(2000, journal.getAppended());
+            assertEquals(2000, futures.stream().map(CompletableFuture::join).distinct().count());
+            assertTrue(journal.getCommits() < journal.getAppended(),
+                    journal.getCommits() + " fsyncs for " + journal.getAppended() + " appends");
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenSegmentIsFull_thenRollsToNewSegment() throws IOException {
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            for (int i = 0; i < 20; i++) {
+                journal.append("account-" + i, "created").join();
+            }
+            assertTrue(journal.getSegmentCount() > 1);
+            assertEquals(journal.getSegmentCount(), segmentFiles().size());
+            for (Path segment : segmentFiles()) {
+                assertTrue(Files.size(segment) <= 256, segment + " is " + Files.size(segment) + " bytes");
+            }
+        }
+
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            List<JournalRecord> records = replay(journal);
+            assertEquals(20, records.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i + 1, records.get(i).getSequence());
+            }
+        }
+    }
+
+    @Test
+    public void whenTailIsTorn_thenItIsTruncatedOnOpen() throws IOException {
+        try (Journal journal = Journal.builder(dir).open()) {
+            journal.append("account-1", "created").join();
+            journal.append("account-2", "created").join();
+        }
+        Path segment = segmentFiles().get(0);
+        long intact = Files.size(segment);
+        // 模拟写到一半时崩溃：最后一条记录只有一部分
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 3);
+        }
+
+        try (Journal journal = Journal.builder(dir).open()) {
+            List<JournalRecord> records = replay(journal);
+            assertEquals(1, records.size());
+            assertEquals("account-1", records.get(0).getKey());
+            assertEquals(2L, journal.append("account-2", "created").join());
+        }
+        try (Journal journal = Journal.builder(dir).open()) {
+            assertEquals(2, replay(journal).size());
+        }
+    }
+
+    @Test
+    public void whenCompacted_thenOnlyLatestValuePerKeyIsKept() throws IOException {
+        Map<String, String> expected = new HashMap<>();
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            for (int i = 0; i < 40; i++) {
+                String key = "account-" + (i % 4);
+                String value = "v" + i;
+                journal.append(key, value).join();
+                expected.put(key, value);
+            }
+            int before = journal.getSegmentCount();
+
+            journal.compact().join();
+
+            assertTrue(journal.getSegmentCount() < before);
+            assertEquals(1, journal.getCompactions());
+            assertEquals(journal.getSegmentCount(), segmentFiles().size());
+        }
+
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            Map<String, String> replayed = new HashMap<>();
+            List<JournalRecord> records = replay(journal);
+            records.forEach(record -> replayed.put(record.getKey(), record.getValueAsString()));
+            assertEquals(expected, replayed);
+            assertTrue(records.size() < 40);
+            assertEquals(41L, journal.append("account-0", "v40").join());
+        }
+    }
+
+    @Test
+    public void whenCrashLeavesSealedSegmentAfterCompaction_thenReplayKeepsLatestValues() throws IOException {
+        Map<String, String> expected = new HashMap<>();
+        Map<Path, byte[]> before = new HashMap<>();
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            for (int i = 0; i < 40; i++) {
+                String key = "account-" + (i % 4);
+                journal.append(key, "v" + i).join();
+                expected.put(key, "v" + i);
+            }
+            // 让当前段只有其他 key，上面这些 key 的最新值都在封存段里
+            for (int i = 0; i < 20; i++) {
+                journal.append("filler", "f" + i).join();
+            }
+            expected.put("filler", "f19");
+            for (Path segment : segmentFiles()) {
+                before.put(segment, Files.readAllBytes(segment));
+            }
+
+            journal.compact().join();
+        }
+        // 模拟原子替换之后、删完其余段之前崩溃：第一个被删掉的段又回来了
+        List<Path> after = segmentFiles();
+        Path leftover = before.keySet().stream().filter(path -> !after.contains(path)).sorted()
+                .findFirst().orElseThrow(IllegalStateException::new);
+        Files.write(leftover, before.get(leftover));
+
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).open()) {
+            Map<String, String> replayed = new HashMap<>();
+            replay(journal).forEach(record -> replayed.put(record.getKey(), record.getValueAsString()));
+            assertEquals(expected, replayed);
+            assertEquals(61L, journal.append("account-0", "v40").join());
+        }
+    }
+
+    @Test
+    public void whenSealedSegmentsReachThreshold_thenCompactsAutomatically() throws IOException {
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).compactThreshold(3).open()) {
+            for (int i = 0; i < 100; i++) {
+                journal.append("account-" + (i % 2), "v" + i).join();
+            }
+            assertTrue(journal.getCompactions() > 0);
+            assertTrue(journal.getSegmentCount() <= 4, journal.getSegmentCount() + " segments");
+            List<JournalRecord> records = replay(journal);
+            assertEquals("v99", records.get(records.size() - 1).getValueAsString());
+        }
+    }
+
+    @Test
+    public void whenAutomaticCompactionFails_thenAppendsStillSucceed() throws IOException {
+        try (Journal journal = Journal.builder(dir).segmentBytes(256).compactThreshold(2).open()) {
+            // 临时文件的位置被目录占住，压缩无法写入
+            Files.createDirectory(dir.resolve(Journal.COMPACT_TEMP));
+            for (int i = 0; i < 40; i++) {
+                assertEquals(i + 1L, journal.append("account-" + (i % 2), "v" + i).join());
+            }
+
+            assertEquals(0, journal.getCompactions());
+            assertTrue(journal.getSegmentCount() > 2);
+            assertEquals(40, replay(journal).size());
+        }
+    }
+
+    @Test
+    public void whenClosed_thenAppendFails() throws IOException {
+        Journal journal = Journal.builder(dir).open();
+        journal.append("account-1", "created").join();
+        journal.close();
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> journal.append("account-2", "created").join());
+        assertTrue(ex.getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void whenPipelineHasJournal_thenBalancesAreDurableBeforeCompletion() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (Journal journal = Journal.builder(dir).open()) {
+            AccountPipeline pipeline = AccountPipeline.builder(executor)
+                    .stageLatency(1, TimeUnit.MILLISECONDS)
+                    .journal(journal)
+                    .build();
+            List<CompletableFuture<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pipeline.process());
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+            assertEquals(8, journal.getAppended());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (Journal journal = Journal.builder(dir).open()) {
+            List<JournalRecord> records = replay(journal);
+            assertEquals(8, records.size());
+            assertEquals("account-1.0", records.get(0).getKey());
+            assertEquals("2.0", records.get(0).getValueAsString());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.oyiersan.completableintro.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void whenLimitReached_thenFailsFastWithRejectedFuture() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("findAccountNumber",
+                new AimdLimit(2, 1, 10, 0.5, 1, TimeUnit.SECONDS));
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+
+        limiter.call(() -> first);
+        limiter.call(() -> second);
+        CompletableFuture<String> third = limiter.call(CompletableFuture::new);
+
+        assertTrue(third.isCompletedExceptionally());
+        CompletionException ex = assertThrows(CompletionException.class, third::join);
+        assertTrue(ex.getCause() instanceof LimitExceededException);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        first.complete("done");
+        assertEquals(1, limiter.getInFlight());
+        assertEquals("ok", limiter.call(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    public void whenCallsSucceedUnderLoad_thenAimdIncreasesLimit() {
+        AimdLimit limit = new AimdLimit(4, 1, 100, 0.5, 1, TimeUnit.SECONDS);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("notifyBalance", limit);
+
+        for (int round = 0; round < 5; round++) {
+            List<CompletableFuture<String>> pending = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                pending.add(future);
+                limiter.call(() -> future);
+            }
+            pending.forEach(f -> f.complete("ok"));
+        }
+
+        assertTrue(limiter.getLimit() > 4, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    public void whenCallsTimeOut_thenAimdBacksOff() {
+        AimdLimit limit = new AimdLimit(20, 1, 100, 0.5, 1, TimeUnit.SECONDS);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("notifyByEmail", limit);
+
+        CompletableFuture<String> timedOut = new CompletableFuture<>();
+        limiter.call(() -> timedOut);
+        timedOut.completeExceptionally(new TimeoutException());
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void whenBusinessErrorOccurs_thenLimitIsNotReduced() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("calculateBalance",
+                new AimdLimit(20, 1, 100, 0.5, 1, TimeUnit.SECONDS));
+
+        assertThrows(CompletionException.class, () -> limiter.supplyAsync(() -> 1 / 0, Runnable::run).join());
+
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void whenLatencyRises_thenGradientLimitShrinks() {
+        GradientLimit limit = new GradientLimit(50, 5, 200, 0.2, 100);
+        long baseline = TimeUnit.MILLISECONDS.toNanos(10);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(baseline, 50, false);
+        }
+        int steady = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(baseline * 5, steady, false);
+        }
+
+        assertTrue(limit.getLimit() < steady, limit.getLimit() + " >= " + steady);
+    }
+
+    @Test
+    public void whenCallReturnsNull_thenSlotIsReleased() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("findAccountNumber",
+                new AimdLimit(1, 1, 10, 0.5, 1, TimeUnit.SECONDS));
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> limiter.call(() -> (CompletableFuture<String>) null).join());
+
+        assertTrue(ex.getCause() instanceof NullPointerException);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("ok", limiter.call(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    public void whenGradientSmoothingIsOutOfRange_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(10, 1, 100, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(10, 1, 100, 1.5, 100));
+        new GradientLimit(10, 1, 100, 1, 100);
+    }
+}
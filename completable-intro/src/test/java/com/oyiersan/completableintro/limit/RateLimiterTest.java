@@ -0,0 +1,206 @@
+package com.oyiersan.completableintro.limit;
+
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.timer.Deadline;
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import com.oyiersan.completableintro.timer.VirtualTimeScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimiterTest {
+
+    private static long millis(VirtualTimeScheduler clock) {
+        return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime());
+    }
+
+    @Test
+    public void whenBurstIsUsedUp_thenPermitsAreSpacedAtTheRate() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(10).burst(3).build();
+
+        List<CompletableFuture<Void>> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            permits.add(limiter.acquire());
+        }
+
+        assertTrue(permits.get(2).isDone());
+        assertFalse(permits.get(3).isDone());
+        assertEquals(2, limiter.getWaiting());
+        clock.join(permits.get(3));
+        assertEquals(100, millis(clock));
+        assertFalse(permits.get(4).isDone());
+        clock.join(permits.get(4));
+        assertEquals(200, millis(clock));
+        assertEquals(5, limiter.getAcquired());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    @Test
+    public void whenManyWaiters_thenLongRunRateIsExact() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(100).burst(10).build();
+
+        List<CompletableFuture<Void>> permits = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            permits.add(limiter.acquire());
+        }
+        clock.join(CompletableFuture.allOf(permits.toArray(new CompletableFuture[0])));
+
+        // 前 10 个是突发，其余 990 个每 10ms 一个
+        assertEquals(9900, millis(clock));
+    }
+
+    @Test
+    public void whenWaitQueueIsFull_thenRejectsImmediately() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(1).maxWaiting(2).build();
+
+        limiter.acquire();
+        CompletableFuture<Void> first = limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> rejected = limiter.acquire();
+
+        CompletionException ex = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(ex.getCause() instanceof RateLimitExceededException);
+        assertEquals(1, limiter.getRejected());
+
+        // 排在前面的请求拿到许可后又有空位
+        clock.join(first);
+        assertFalse(limiter.acquire().isCompletedExceptionally());
+    }
+
+    @Test
+    public void whenWaitWouldExceedMaxWait_thenRejects() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock)
+                .permitsPerSecond(1)
+                .maxWait(1500, TimeUnit.MILLISECONDS)
+                .build();
+
+        assertTrue(limiter.acquire().isDone());
+        assertFalse(limiter.acquire().isDone());
+        assertTrue(limiter.acquire().isCompletedExceptionally());
+        assertEquals(1, limiter.getWaiting());
+    }
+
+    @Test
+    public void whenWaitWouldExceedCallerMaxWait_thenRejectsWithoutReserving() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(1).build();
+
+        assertTrue(limiter.acquire().isDone());
+        // 下一个许可在 1s 后，调用方只愿意等 500ms
+        assertTrue(limiter.acquire(1, 500, TimeUnit.MILLISECONDS).isCompletedExceptionally());
+        assertEquals(0, limiter.getWaiting());
+        assertEquals(1, limiter.getRejected());
+
+        CompletableFuture<Void> next = limiter.acquire(1, 1, TimeUnit.SECONDS);
+        clock.join(next);
+        assertEquals(1000, millis(clock));
+    }
+
+    @Test
+    public void whenPipelineDeadlineIsShorterThanPermitWait_thenQuotaIsNotConsumed() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(1).build();
+        AccountPipeline pipeline = AccountPipeline.builder(Runnable::run)
+                .stageLatency(0, TimeUnit.MILLISECONDS)
+                .emailLimiter(limiter)
+                .build();
+
+        assertEquals(2D, pipeline.process(Deadline.after(clock, 500, TimeUnit.MILLISECONDS)).join());
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> pipeline.process(Deadline.after(clock, 500, TimeUnit.MILLISECONDS)).join());
+
+        assertTrue(ex.getCause() instanceof RateLimitExceededException);
+        assertEquals(0, limiter.getWaiting());
+        // 被拒绝的请求没有预约，下一个许可仍在 1s 时
+        CompletableFuture<Void> next = limiter.acquire();
+        clock.join(next);
+        assertEquals(1000, millis(clock));
+    }
+
+    @Test
+    public void whenWaiterIsCancelled_thenItsPermitIsReturned() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(1).build();
+        limiter.acquire();
+        CompletableFuture<Void> cancelled = limiter.acquire();
+
+        cancelled.cancel(false);
+        CompletableFuture<Void> next = limiter.acquire();
+        clock.join(next);
+
+        assertEquals(1000, millis(clock));
+        assertEquals(0, limiter.getWaiting());
+        assertEquals(2, limiter.getAcquired());
+    }
+
+    @Test
+    public void whenTryAcquire_thenNeverWaits() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        RateLimiter limiter = RateLimiter.builder(clock).permitsPerSecond(2).burst(2).build();
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        clock.advanceBy(500, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void whenKeyed_thenEachKeyHasItsOwnLimit() {
+        VirtualTimeScheduler clock = new VirtualTimeScheduler();
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(provider -> RateLimiter.builder(clock)
+                .name("email-" + provider)
+                .permitsPerSecond("smtp".equals(provider) ? 1 : 10)
+                .build(), Duration.ofMinutes(10));
+
+        assertTrue(limiter.tryAcquire("smtp"));
+        assertTrue(limiter.tryAcquire("ses"));
+        assertFalse(limiter.tryAcquire("smtp"));
+        clock.advanceBy(100, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.tryAcquire("ses"));
+        assertFalse(limiter.tryAcquire("smtp"));
+
+        assertSame(limiter.limiter("smtp"), limiter.limiter("smtp"));
+        assertEquals(2, limiter.estimatedSize());
+        clock.join(limiter.acquire("smtp"));
+        assertEquals(1000, millis(clock));
+    }
+
+    @Test
+    public void whenWaiting_thenCallerIsNotBlocked() {
+        HashedWheelTimer timer = new HashedWheelTimer("rate-limiter-test", 1, TimeUnit.MILLISECONDS, 256);
+        try {
+            RateLimiter limiter = RateLimiter.builder(timer).permitsPerSecond(100).build();
+            List<CompletableFuture<Void>> permits = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 30; i++) {
+                permits.add(limiter.acquire());
+            }
+            long submitted = System.nanoTime() - start;
+
+            CompletableFuture.allOf(permits.toArray(new CompletableFuture[0])).join();
+            long elapsed = System.nanoTime() - start;
+
+            assertTrue(submitted < TimeUnit.MILLISECONDS.toNanos(50), "acquire blocked for " + submitted + "ns");
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(290), "finished after " + elapsed + "ns");
+        } finally {
+            timer.stop();
+        }
+    }
+}
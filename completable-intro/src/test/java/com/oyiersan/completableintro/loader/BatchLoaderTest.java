@@ -0,0 +1,146 @@
+package com.oyiersan.completableintro.loader;
+
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchLoaderTest {
+
+    private static HashedWheelTimer timer;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        timer = new HashedWheelTimer("loader-test", 1, TimeUnit.MILLISECONDS, 64);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenLoadsArriveWithinWindow_thenOneBatchCallIsMade() {
+        List<List<Integer>> calls = new CopyOnWriteArrayList<>();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> {
+            calls.add(keys);
+            return CompletableFuture.completedFuture(keys.stream().map(k -> "Allof" + k).collect(Collectors.toList()));
+        }, timer, 20, TimeUnit.MILLISECONDS, 100, executor);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        IntStream.range(0, 3).forEach(num -> futures.add(loader.load(num)));
+
+        assertEquals("Allof0Allof1Allof2", futures.stream().map(CompletableFuture::join).collect(Collectors.joining()));
+        assertEquals(1, calls.size());
+        assertEquals(Arrays.asList(0, 1, 2), calls.get(0));
+    }
+
+    @Test
+    public void whenBatchIsFull_thenItIsDispatchedWithoutWaitingForWindow() {
+        List<List<Integer>> calls = new CopyOnWriteArrayList<>();
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys -> {
+            calls.add(keys);
+            return CompletableFuture.completedFuture(keys);
+        }, timer, 10, TimeUnit.SECONDS, 10, executor);
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Integer>> all = loader.loadMany(IntStream.range(0, 25).boxed().collect(Collectors.toList()));
+        // 前两批满 10 个立即发出，剩下 5 个手动发出
+        loader.dispatchNow();
+        List<Integer> values = all.join();
+
+        assertEquals(25, values.size());
+        assertEquals(3, calls.size());
+        assertEquals(10, calls.get(0).size());
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    @Test
+    public void whenSameKeyIsLoadedTwiceInBatch_thenItIsRequestedOnce() {
+        BatchLoader<String, String> loader = new BatchLoader<>(keys ->
+                CompletableFuture.completedFuture(keys.stream().map(String::toUpperCase).collect(Collectors.toList())),
+                timer, 10, TimeUnit.MILLISECONDS, 100, executor);
+
+        CompletableFuture<String> first = loader.load("a");
+        CompletableFuture<String> second = loader.load("a");
+
+        assertEquals("A", first.join());
+        assertEquals("A", second.join());
+        assertEquals(1, loader.getKeyCount());
+    }
+
+    @Test
+    public void whenBatchFunctionFails_thenEveryCallerFails() {
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys -> {
+            CompletableFuture<List<Integer>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("backend down"));
+            return failed;
+        }, timer, 5, TimeUnit.MILLISECONDS, 100, executor);
+
+        CompletableFuture<Integer> a = loader.load(1);
+        CompletableFuture<Integer> b = loader.load(2);
+
+        CompletionException ex = assertThrows(CompletionException.class, a::join);
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertThrows(CompletionException.class, b::join);
+    }
+
+    @Test
+    public void whenBatchFunctionReturnsWrongSize_thenCallersFail() {
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys ->
+                CompletableFuture.completedFuture(Arrays.asList(1)), timer, 5, TimeUnit.MILLISECONDS, 100, executor);
+
+        CompletableFuture<Integer> a = loader.load(1);
+        CompletableFuture<Integer> b = loader.load(2);
+
+        CompletionException ex = assertThrows(CompletionException.class, b::join);
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertThrows(CompletionException.class, a::join);
+    }
+
+    @Test
+    public void whenManyConcurrentLoads_thenBackendCallsDropByOrderOfMagnitude() {
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys ->
+                CompletableFuture.completedFuture(keys), timer, 5, TimeUnit.MILLISECONDS, 256, executor);
+
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 10_000)
+                .parallel()
+                .mapToObj(loader::load)
+                .collect(Collectors.toList());
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(10_000, loader.getKeyCount());
+        assertTrue(loader.getBatchCount() <= 1_000, "batches " + loader.getBatchCount());
+    }
+
+    @Test
+    public void whenTimerIsStopped_thenBatchIsDispatchedImmediately() {
+        HashedWheelTimer stopped = new HashedWheelTimer("loader-stopped", 1, TimeUnit.MILLISECONDS, 64);
+        stopped.stop();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> CompletableFuture.completedFuture(
+                keys.stream().map(k -> "v" + k).collect(Collectors.toList())), stopped, 1, TimeUnit.HOURS, 100, executor);
+
+        assertEquals("v7", loader.load(7).join());
+        assertEquals(1, loader.getBatchCount());
+    }
+}
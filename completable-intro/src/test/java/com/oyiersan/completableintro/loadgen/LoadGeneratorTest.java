@@ -0,0 +1,152 @@
+package com.oyiersan.completableintro.loadgen;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadGeneratorTest {
+
+    private static ScheduledExecutorService scheduler;
+
+    @BeforeAll
+    public static void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static CompletableFuture<Void> delayed(long millis) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(null), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void whenOpenLoop_thenSendsAtFixedRate() {
+        LoadResult result = new LoadGenerator(() -> delayed(5)).openLoop(200, 1, TimeUnit.SECONDS);
+
+        assertEquals(LoadResult.Mode.OPEN, result.getMode());
+        assertEquals(200, result.getCompleted());
+        assertEquals(0, result.getFailed());
+        assertEquals(0, result.getIncomplete());
+        assertTrue(result.getThroughput() > 150 && result.getThroughput() <= 210, "throughput " + result.getThroughput());
+        assertTrue(result.latency(50, TimeUnit.MILLISECONDS) >= 5);
+    }
+
+    @Test
+    public void whenOpenLoopSenderStalls_thenStallIsChargedToDelayedRequests() {
+        AtomicInteger count = new AtomicInteger();
+        LoadResult result = new LoadGenerator(() -> {
+            if (count.incrementAndGet() == 50) {
+                sleep(300);
+            }
+            return CompletableFuture.completedFuture(null);
+        }).openLoop(100, 1, TimeUnit.SECONDS);
+
+        assertEquals(100, result.getCompleted());
+        // 停顿期间本该发出的约 30 个请求都按计划发送时间计算延迟
+        assertTrue(result.latency(90, TimeUnit.MILLISECONDS) >= 100,
+                "corrected p90 " + result.latency(90, TimeUnit.MILLISECONDS));
+        assertTrue(result.uncorrectedLatency(90, TimeUnit.MILLISECONDS) < 50,
+                "uncorrected p90 " + result.uncorrectedLatency(90, TimeUnit.MILLISECONDS));
+        assertTrue(result.latency(100, TimeUnit.MILLISECONDS) >= 300);
+    }
+
+    @Test
+    public void whenClosedLoop_thenThroughputIsBoundedByConcurrency() {
+        LoadResult result = new LoadGenerator(() -> delayed(10)).closedLoop(4, 1, TimeUnit.SECONDS);
+
+        assertEquals(LoadResult.Mode.CLOSED, result.getMode());
+        assertEquals(0, result.getIncomplete());
+        // 4 个用户，每个请求至少 10ms，最多约 400 个/秒
+        assertTrue(result.getCompleted() > 100 && result.getCompleted() <= 404, "completed " + result.getCompleted());
+        assertTrue(result.uncorrectedLatency(50, TimeUnit.MILLISECONDS) >= 10);
+    }
+
+    @Test
+    public void whenClosedLoopStalls_thenMissingSamplesAreBackfilled() {
+        AtomicInteger count = new AtomicInteger();
+        LoadResult result = new LoadGenerator(() -> {
+            sleep(count.incrementAndGet() == 100 ? 300 : 1);
+            return CompletableFuture.completedFuture(null);
+        }).closedLoop(1, 1, TimeUnit.SECONDS);
+
+        // 未修正时只有一个 300ms 的样本，修正后补齐了停顿期间缺失的样本
+        assertTrue(result.uncorrectedLatency(90, TimeUnit.MILLISECONDS) < 20,
+                "uncorrected p90 " + result.uncorrectedLatency(90, TimeUnit.MILLISECONDS));
+        assertTrue(result.latency(90, TimeUnit.MILLISECONDS) >= 20,
+                "corrected p90 " + result.latency(90, TimeUnit.MILLISECONDS));
+        assertTrue(result.getLatencyHistogram().getTotalCount() > result.getCompleted());
+    }
+
+    @Test
+    public void whenOperationFails_thenCountedAsFailed() {
+        AtomicInteger count = new AtomicInteger();
+        LoadResult result = new LoadGenerator(() -> {
+            if (count.incrementAndGet() % 2 == 0) {
+                throw new IllegalStateException("sync failure");
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("async failure"));
+            return future;
+        }).openLoop(100, 200, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, result.getCompleted());
+        assertEquals(20, result.getFailed());
+    }
+
+    @Test
+    public void whenDrainTimesOut_thenPendingRequestsAreIncomplete() {
+        LoadResult result = new LoadGenerator(CompletableFuture::new, 50, TimeUnit.MILLISECONDS)
+                .openLoop(100, 100, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, result.getCompleted());
+        assertEquals(10, result.getIncomplete());
+    }
+
+    @Test
+    public void whenAppendTo_thenEachRunIsOneJsonLine(@TempDir Path dir) throws IOException {
+        LoadResult result = new LoadGenerator(() -> delayed(1)).openLoop(100, 100, TimeUnit.MILLISECONDS);
+        Path file = dir.resolve("results/loadgen.jsonl");
+
+        result.appendTo(file, Collections.singletonMap("label", "a \"quoted\" run"));
+        result.appendTo(file, Collections.singletonMap("corePoolSize", 8));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"timestamp\":"));
+        assertTrue(lines.get(0).contains("\"config\":{\"label\":\"a \\\"quoted\\\" run\"}"));
+        assertTrue(lines.get(1).contains("\"config\":{\"corePoolSize\":8}"));
+        assertTrue(lines.get(1).contains("\"mode\":\"OPEN\",\"target\":100,"));
+        assertTrue(lines.get(1).contains("\"completed\":10,"));
+        assertTrue(lines.get(1).contains("\"latencyMs\":{\"p50\":"));
+        assertTrue(lines.get(1).contains("\"p999\":"));
+    }
+}
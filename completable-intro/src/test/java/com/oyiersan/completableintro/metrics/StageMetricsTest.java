@@ -0,0 +1,132 @@
+package com.oyiersan.completableintro.metrics;
+
+import com.oyiersan.completableintro.account.AccountPipeline;
+import com.oyiersan.completableintro.executor.AsyncExecutorProperties;
+import com.oyiersan.completableintro.executor.AsyncExecutors;
+import com.oyiersan.completableintro.timer.Deadline;
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StageMetricsTest {
+
+    @Test
+    public void whenStagesRun_thenQueueAndRunTimesAreRecordedPerStage() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StageMetrics metrics = new StageMetrics(registry);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Integer> first = metrics.supplyAsync("first", () -> {
+                sleep(20);
+                return 1;
+            }, executor);
+            CompletableFuture<Integer> second = metrics.thenApplyAsync(first, "second", value -> value + 1, executor);
+            // 单线程执行器上第二个任务要排队等待第一个完成
+            CompletableFuture<Integer> queued = metrics.supplyAsync("queued", () -> 0, executor);
+
+            assertEquals(2, second.join());
+            queued.join();
+
+            Timer run = registry.get(StageMetrics.RUN_METRIC).tags("stage", "first", "outcome", "success").timer();
+            assertEquals(1, run.count());
+            assertTrue(run.totalTime(TimeUnit.MILLISECONDS) >= 20);
+            assertEquals(1, registry.get(StageMetrics.RUN_METRIC).tags("stage", "second").timer().count());
+            Timer queueWait = registry.get(StageMetrics.QUEUE_METRIC).tags("stage", "queued").timer();
+            assertTrue(queueWait.totalTime(TimeUnit.MILLISECONDS) >= 10);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenStageFails_thenFailureOutcomeIsRecorded() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StageMetrics metrics = new StageMetrics(registry);
+
+        assertThrows(CompletionException.class, () -> metrics.supplyAsync("broken", () -> {
+            throw new IllegalStateException("boom");
+        }, Runnable::run).join());
+
+        assertEquals(1, registry.get(StageMetrics.RUN_METRIC).tags("stage", "broken", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void whenExecutorRejects_thenRejectionIsCounted() throws InterruptedException {
+        AsyncExecutorProperties properties = new AsyncExecutorProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        properties.setQueueCapacity(1);
+        ThreadPoolTaskExecutor executor = AsyncExecutors.boundedExecutor(properties);
+        executor.initialize();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new ExecutorMetrics("test", executor).bindTo(registry);
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture.runAsync(() -> await(release), executor);
+            CompletableFuture.runAsync(() -> await(release), executor);
+            // CALLER_RUNS：第三个任务在当前线程执行，同时计一次拒绝
+            CompletableFuture.runAsync(() -> { }, executor).join();
+
+            assertEquals(1, registry.get("async.executor.active").tag("name", "test").gauge().value());
+            assertEquals(1, registry.get("async.executor.queued").gauge().value());
+            assertEquals(1, registry.get("async.executor.rejected").functionCounter().count());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void whenPipelineRunsWithDeadline_thenStagesAreRecorded() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        HashedWheelTimer timer = new HashedWheelTimer("stage-metrics-test", 1, TimeUnit.MILLISECONDS, 64);
+        try {
+            AccountPipeline pipeline = AccountPipeline.builder(executor)
+                    .stageLatency(1, TimeUnit.MILLISECONDS)
+                    .metrics(new StageMetrics(registry))
+                    .build();
+
+            assertEquals(2D, pipeline.process(Deadline.after(timer, 5, TimeUnit.SECONDS)).join());
+
+            for (String stage : new String[]{"findAccountNumber", "calculateBalance", "notifyBalance", "notifyByEmail"}) {
+                assertEquals(1, registry.get(StageMetrics.RUN_METRIC).tags("stage", stage, "outcome", "success").timer().count());
+                assertEquals(1, registry.get(StageMetrics.QUEUE_METRIC).tags("stage", stage).timer().count());
+            }
+        } finally {
+            timer.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
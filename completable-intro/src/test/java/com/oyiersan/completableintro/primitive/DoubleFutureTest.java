@@ -0,0 +1,154 @@
+package com.oyiersan.completableintro.primitive;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DoubleFutureTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenBalancePipelineRunsUnboxed_thenResultMatches() {
+        // findAccountNumber -> calculateBalance -> notifyBalance
+        double balance = DoubleFuture.supplyAsync(() -> 1D, executor)
+                .thenApplyAsync(accountNumber -> 1D + accountNumber, executor)
+                .thenApply(value -> value)
+                .join();
+
+        assertEquals(2D, balance);
+    }
+
+    @Test
+    public void whenConvertingBetweenFamilies_thenValuesArePreserved() {
+        DoubleFuture cents = LongFuture.completed(12345L).thenApplyToDouble(value -> value / 100D);
+        LongFuture rounded = cents.thenApplyToLong(Math::round);
+
+        assertEquals(123.45, cents.join());
+        assertEquals(123L, rounded.join());
+        assertEquals(Double.valueOf(123.45), cents.toCompletableFuture().join());
+        assertEquals("123", rounded.thenApplyToObj(Long::toString).join());
+    }
+
+    @Test
+    public void whenStageFails_thenExceptionSkipsStagesUntilRecovered() {
+        IllegalStateException boom = new IllegalStateException("boom");
+        AtomicLong calls = new AtomicLong();
+        DoubleFuture failed = DoubleFuture.supplyAsync(() -> {
+            throw boom;
+        }, executor);
+        DoubleFuture skipped = failed.thenApply(value -> {
+            calls.incrementAndGet();
+            return value;
+        });
+
+        CompletionException ex = assertThrows(CompletionException.class, skipped::join);
+        // 原始异常直接传到下游，不在每个 stage 多包一层
+        assertSame(boom, ex.getCause());
+        assertEquals(0, calls.get());
+        assertEquals(-1D, skipped.exceptionally(t -> -1D).join());
+        assertTrue(skipped.isCompletedExceptionally());
+        assertThrows(CompletionException.class, () -> skipped.toCompletableFuture().join());
+    }
+
+    @Test
+    public void whenCancelled_thenJoinThrowsCancellation() {
+        LongFuture future = new LongFuture();
+        LongFuture dependent = future.thenApply(value -> value + 1);
+
+        assertTrue(future.cancel());
+        assertFalse(future.complete(1L));
+        assertThrows(CancellationException.class, dependent::join);
+    }
+
+    @Test
+    public void whenJoinBeforeCompletion_thenBlocksUntilCompleted() {
+        DoubleFuture future = new DoubleFuture();
+        executor.execute(() -> {
+            sleep(50);
+            future.complete(42D);
+        });
+
+        assertEquals(-1D, future.getNow(-1D));
+        assertEquals(42D, future.join());
+        assertEquals(42D, future.getNow(-1D));
+    }
+
+    @Test
+    public void whenManyDependentsRaceWithCompletion_thenEachFiresExactlyOnce() throws InterruptedException {
+        AtomicLong fired = new AtomicLong();
+        int rounds = 2_000;
+        int dependents = 8;
+        for (int round = 0; round < rounds; round++) {
+            LongFuture source = new LongFuture();
+            CountDownLatch start = new CountDownLatch(1);
+            List<LongFuture> results = new ArrayList<>();
+            CountDownLatch registered = new CountDownLatch(2);
+            for (int t = 0; t < 2; t++) {
+                executor.execute(() -> {
+                    await(start);
+                    List<LongFuture> local = new ArrayList<>();
+                    for (int i = 0; i < dependents / 2; i++) {
+                        local.add(source.thenApply(value -> {
+                            fired.incrementAndGet();
+                            return value * 2;
+                        }));
+                    }
+                    synchronized (results) {
+                        results.addAll(local);
+                    }
+                    registered.countDown();
+                });
+            }
+            start.countDown();
+            source.complete(21L);
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+            for (LongFuture result : results) {
+                assertEquals(42L, result.join());
+            }
+        }
+        assertEquals((long) rounds * dependents, fired.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
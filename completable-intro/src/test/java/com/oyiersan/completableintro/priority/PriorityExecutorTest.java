@@ -0,0 +1,223 @@
+package com.oyiersan.completableintro.priority;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriorityExecutorTest {
+
+    private ExecutorService delegate;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 先占住唯一的名额，后续提交全部排队，释放后按策略出队
+     */
+    private static CountDownLatch occupy(PriorityExecutor executor) {
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.executor(Priority.CRITICAL).execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return gate;
+    }
+
+    private static CompletableFuture<Void> record(PriorityExecutor executor, Priority priority,
+                                                  List<String> order, String name) {
+        return CompletableFuture.runAsync(() -> order.add(name), executor.executor(priority));
+    }
+
+    @Test
+    public void whenStrict_thenHigherClassesAlwaysGoFirst() {
+        PriorityExecutor executor = PriorityExecutor.builder(delegate)
+                .maxConcurrency(1)
+                .policy(PriorityExecutor.Policy.STRICT)
+                .maxStarvation(0, TimeUnit.MILLISECONDS)
+                .build();
+        CountDownLatch gate = occupy(executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(record(executor, Priority.BACKGROUND, order, "b1"));
+        futures.add(record(executor, Priority.NORMAL, order, "n1"));
+        futures.add(record(executor, Priority.CRITICAL, order, "c1"));
+        futures.add(record(executor, Priority.BACKGROUND, order, "b2"));
+        futures.add(record(executor, Priority.CRITICAL, order, "c2"));
+        assertEquals(2, executor.getQueued(Priority.CRITICAL));
+
+        gate.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertEquals(Arrays.asList("c1", "c2", "n1", "b1", "b2"), order);
+        assertEquals(2, executor.getExecuted(Priority.BACKGROUND));
+    }
+
+    @Test
+    public void whenWeighted_thenEachClassGetsItsShare() {
+        PriorityExecutor executor = PriorityExecutor.builder(delegate)
+                .maxConcurrency(1)
+                .maxStarvation(0, TimeUnit.MILLISECONDS)
+                .build();
+        CountDownLatch gate = occupy(executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            futures.add(record(executor, Priority.BACKGROUND, order, "b"));
+            futures.add(record(executor, Priority.CRITICAL, order, "c"));
+        }
+
+        gate.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // 8:1，每 9 个名额里后台任务恰好 1 个
+        assertEquals(1, Collections.frequency(order.subList(0, 9), "b"));
+        assertEquals(2, Collections.frequency(order.subList(0, 18), "b"));
+    }
+
+    @Test
+    public void whenLowClassWaitsTooLong_thenItIsGrantedASlot() {
+        PriorityExecutor executor = PriorityExecutor.builder(delegate)
+                .maxConcurrency(1)
+                .policy(PriorityExecutor.Policy.STRICT)
+                .maxStarvation(50, TimeUnit.MILLISECONDS)
+                .build();
+        CountDownLatch gate = occupy(executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(record(executor, Priority.BACKGROUND, order, "b"));
+        for (int i = 0; i < 20; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                sleep(20);
+                order.add("c");
+            }, executor.executor(Priority.CRITICAL)));
+        }
+
+        gate.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // 没有防饥饿时后台任务排在 20 个 CRITICAL 之后
+        assertTrue(order.indexOf("b") <= 5, "background ran at " + order.indexOf("b"));
+        assertEquals(1, executor.getStarvationGrants());
+    }
+
+    @Test
+    public void whenBackgroundBurst_thenCriticalQueueTimeStaysLow() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PriorityExecutor executor = PriorityExecutor.builder(delegate)
+                .name("pipeline")
+                .maxConcurrency(2)
+                .meterRegistry(registry)
+                .build();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(CompletableFuture.runAsync(() -> sleep(10), executor.executor(Priority.BACKGROUND)));
+        }
+        for (int i = 0; i < 4; i++) {
+            futures.add(CompletableFuture.runAsync(() -> sleep(10), executor.executor(Priority.CRITICAL)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        Timer critical = registry.get(PriorityExecutor.QUEUE_METRIC).tag("class", "CRITICAL").timer();
+        Timer background = registry.get(PriorityExecutor.QUEUE_METRIC).tag("class", "BACKGROUND").timer();
+        assertEquals(4, critical.count());
+        assertEquals(50, background.count());
+        // 50 个后台任务需要约 250ms 才能跑完，CRITICAL 只需等前面的 CRITICAL 和下一个空出的名额
+        assertTrue(executor.getMaxQueueTime(Priority.CRITICAL, TimeUnit.MILLISECONDS) < 100,
+                "critical waited " + executor.getMaxQueueTime(Priority.CRITICAL, TimeUnit.MILLISECONDS) + "ms");
+        assertTrue(executor.getMaxQueueTime(Priority.BACKGROUND, TimeUnit.MILLISECONDS) >= 200);
+        assertTrue(critical.max(TimeUnit.MILLISECONDS) < background.max(TimeUnit.MILLISECONDS));
+        assertEquals(0, registry.get(PriorityExecutor.QUEUED_METRIC).tag("class", "BACKGROUND").gauge().value());
+    }
+
+    @Test
+    public void whenClassQueueIsFull_thenRejects() {
+        PriorityExecutor executor = PriorityExecutor.builder(delegate)
+                .maxConcurrency(1)
+                .queueCapacity(2)
+                .build();
+        CountDownLatch gate = occupy(executor);
+        try {
+            executor.executor(Priority.BACKGROUND).execute(() -> { });
+            executor.executor(Priority.BACKGROUND).execute(() -> { });
+
+            assertThrows(RejectedExecutionException.class, () -> executor.executor(Priority.BACKGROUND).execute(() -> { }));
+            executor.executor(Priority.CRITICAL).execute(() -> { });
+            assertEquals(2, executor.getQueued(Priority.BACKGROUND));
+        } finally {
+            gate.countDown();
+        }
+    }
+
+    @Test
+    public void whenDelegateRejects_thenSubmitterRunsTheTask() {
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        PriorityExecutor executor = PriorityExecutor.builder(stopped).maxConcurrency(1).build();
+
+        Thread runner = CompletableFuture.supplyAsync(Thread::currentThread, executor).join();
+
+        assertEquals(Thread.currentThread(), runner);
+        assertEquals(1, executor.getCallerRuns());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    public void whenCallerRunTaskThrows_thenLaterTasksAreStillDispatched() throws Exception {
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        PriorityExecutor executor = PriorityExecutor.builder(stopped).maxConcurrency(1).build();
+        List<Throwable> uncaught = new ArrayList<>();
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler previous = current.getUncaughtExceptionHandler();
+        current.setUncaughtExceptionHandler((thread, ex) -> uncaught.add(ex));
+        try {
+            executor.executor(Priority.CRITICAL).execute(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            // 抛出的异常不能让出队循环卡住
+            assertEquals("ok", CompletableFuture.supplyAsync(() -> "ok", executor).get(1, TimeUnit.SECONDS));
+        } finally {
+            current.setUncaughtExceptionHandler(previous);
+        }
+        assertEquals(1, uncaught.size());
+        assertEquals("boom", uncaught.get(0).getMessage());
+        assertEquals(2, executor.getCallerRuns());
+        assertEquals(0, executor.getInFlight());
+    }
+}
@@ -0,0 +1,176 @@
+package com.oyiersan.completableintro.retry;
+
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetrierTest {
+
+    private static HashedWheelTimer timer;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        timer = new HashedWheelTimer("retrier-test", 1, TimeUnit.MILLISECONDS, 256);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    private static RetryPolicy.Builder fastPolicy() {
+        return RetryPolicy.builder().backoff(1, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void whenTransientFailures_thenRetriesUntilSuccess() {
+        Retrier retrier = new Retrier("flaky", fastPolicy().maxAttempts(5).build(), timer, null, executor);
+        List<AttemptEvent> events = new CopyOnWriteArrayList<>();
+        retrier.addListener(events::add);
+        AtomicInteger count = new AtomicInteger();
+
+        String result = retrier.supplyAsync(() -> {
+            if (count.incrementAndGet() < 3) {
+                throw new IllegalStateException("transient");
+            }
+            return "ok";
+        }).join();
+
+        assertEquals("ok", result);
+        assertEquals(3, retrier.getAttempts());
+        assertEquals(2, retrier.getRetries());
+        assertEquals(AttemptEvent.Outcome.RETRY, events.get(0).getOutcome());
+        assertEquals(AttemptEvent.Outcome.SUCCESS, events.get(2).getOutcome());
+        assertEquals(3, events.get(2).getAttempt());
+    }
+
+    @Test
+    public void whenExceptionNotRetryable_thenFailsImmediately() {
+        Retrier retrier = new Retrier("strict", fastPolicy().retryOn(TimeoutException.class).build(), timer, null, executor);
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> retrier.supplyAsync(() -> {
+                    throw new IllegalArgumentException("bad input");
+                }).join());
+
+        assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        assertEquals(1, retrier.getAttempts());
+        assertEquals(0, retrier.getRetries());
+    }
+
+    @Test
+    public void whenAttemptsExhausted_thenLastFailureIsReported() {
+        Retrier retrier = new Retrier("down", fastPolicy().maxAttempts(3).build(), timer, null, executor);
+        AtomicInteger count = new AtomicInteger();
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> retrier.supplyAsync(() -> {
+                    throw new IllegalStateException("attempt " + count.incrementAndGet());
+                }).join());
+
+        assertEquals("attempt 3", ex.getCause().getMessage());
+        assertEquals(3, retrier.getAttempts());
+    }
+
+    @Test
+    public void whenExecutorRejectsRetry_thenResultFails() {
+        // 已关闭的线程池：退避结束后在时间轮线程上提交重试被拒绝
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        Retrier retrier = new Retrier("rejected", fastPolicy().maxAttempts(3).build(), timer, null, stopped);
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("down"));
+
+        CompletableFuture<String> result = retrier.call(() -> failed);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, retrier.getAttempts());
+    }
+
+    @Test
+    public void whenBudgetExhausted_thenStopsRetrying() {
+        // 每秒只允许 1 次重试，突发 2 次
+        RetryBudget budget = new RetryBudget(timer, 1, 2);
+        Retrier retrier = new Retrier("budgeted", fastPolicy().maxAttempts(10).build(), timer, budget, executor);
+
+        CompletableFuture<Object> future = retrier.supplyAsync(() -> {
+            throw new IllegalStateException("down");
+        });
+
+        assertThrows(CompletionException.class, future::join);
+        assertEquals(2, retrier.getRetries());
+        assertEquals(1, retrier.getBudgetExhausted());
+    }
+
+    @Test
+    public void whenRetryBackoff_thenNoThreadIsBlocked() {
+        // 退避期间不占用线程：单线程执行器也能同时推进多个调用
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            Retrier retrier = new Retrier("single", RetryPolicy.builder().maxAttempts(3)
+                    .backoff(50, 50, TimeUnit.MILLISECONDS).build(), timer, null, single);
+            AtomicInteger count = new AtomicInteger();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[20];
+            long start = System.nanoTime();
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = retrier.supplyAsync(() -> {
+                    if (count.incrementAndGet() <= 20) {
+                        throw new IllegalStateException("first try");
+                    }
+                    return "ok";
+                });
+            }
+            CompletableFuture.allOf(futures).join();
+
+            // 若退避是 sleep，20 个调用串行至少需要 20 * 25ms 左右
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenMaxElapsedExceeded_thenNoFurtherRetry() {
+        Retrier retrier = new Retrier("deadline", RetryPolicy.builder().maxAttempts(100)
+                .backoff(20, 20, TimeUnit.MILLISECONDS).maxElapsed(100, TimeUnit.MILLISECONDS).build(),
+                timer, null, executor);
+
+        assertThrows(CompletionException.class, () -> retrier.supplyAsync(() -> {
+            throw new IllegalStateException("down");
+        }).join());
+
+        assertFalse(retrier.getAttempts() >= 100);
+    }
+
+    @Test
+    public void backoffIsCappedAndJittered() {
+        RetryPolicy policy = RetryPolicy.builder().backoff(10, 100, TimeUnit.MILLISECONDS).build();
+        for (int i = 0; i < 1000; i++) {
+            long nanos = policy.backoffNanos(10);
+            assertTrue(nanos >= 0 && nanos < TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.oyiersan.completableintro.scope;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaskScopeTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenAllSucceed_thenJoinReturnsAndResultsAreAvailable() {
+        try (TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(executor)) {
+            Subtask<String> name = scope.fork(() -> sleepThen(20, "name"));
+            Subtask<String> address = scope.fork(() -> sleepThen(10, "address"));
+            scope.join();
+
+            assertEquals("name address", name.get() + " " + address.get());
+            assertEquals(Subtask.State.SUCCESS, name.state());
+        }
+    }
+
+    @Test
+    public void whenSiblingFails_thenSlowSiblingIsInterruptedAndJoinFailsFast() throws InterruptedException {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Subtask<String> slow;
+        try (TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(executor)) {
+            slow = scope.fork(() -> {
+                started.countDown();
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return "Beautiful";
+            });
+            // 确保慢任务已经占用线程，再让兄弟任务失败
+            started.await();
+            scope.fork(() -> {
+                throw new IllegalStateException("findAddress failed");
+            });
+
+            CompletionException ex = assertThrows(CompletionException.class, scope::join);
+            assertEquals("findAddress failed", ex.getCause().getMessage());
+            assertTrue(scope.isShutdown());
+        }
+
+        // close 返回时慢任务的线程已经被中断并退出
+        assertTrue(interrupted.get());
+        assertEquals(Subtask.State.UNAVAILABLE, slow.state());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    public void whenFirstSuccess_thenResultReturnedAndOthersCancelled() throws InterruptedException {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        try (TaskScope.ShutdownOnSuccess<String> scope = new TaskScope.ShutdownOnSuccess<>(executor)) {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return "slow replica";
+            });
+            started.await();
+            scope.fork(() -> {
+                throw new IllegalStateException("broken replica");
+            });
+            scope.fork(() -> sleepThen(50, "fast replica"));
+
+            assertEquals("fast replica", scope.result().join());
+        }
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void whenAllFail_thenFirstSuccessScopeFails() {
+        try (TaskScope.ShutdownOnSuccess<String> scope = new TaskScope.ShutdownOnSuccess<>(executor)) {
+            scope.fork(() -> {
+                throw new IllegalStateException("first");
+            });
+            scope.fork(() -> {
+                sleepThen(50, "");
+                throw new IllegalStateException("second");
+            });
+
+            CompletionException ex = assertThrows(CompletionException.class, () -> scope.result().join());
+            assertEquals("first", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void whenScopeCloses_thenSubtasksCannotOutliveIt() {
+        AtomicInteger finished = new AtomicInteger();
+        TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(executor);
+        scope.fork(() -> {
+            // 忽略中断的任务：close 必须等它真正结束
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            return finished.incrementAndGet();
+        });
+        sleepThen(20, null);
+
+        scope.close();
+
+        assertEquals(1, finished.get());
+        assertThrows(IllegalStateException.class, () -> scope.fork(() -> "late"));
+    }
+
+    @Test
+    public void whenForkedAfterShutdown_thenTaskNeverRuns() {
+        AtomicBoolean ran = new AtomicBoolean();
+        try (TaskScope.ShutdownOnFailure scope = new TaskScope.ShutdownOnFailure(executor)) {
+            scope.shutdown();
+            Subtask<Boolean> subtask = scope.fork(() -> {
+                ran.set(true);
+                return true;
+            });
+            scope.join();
+
+            assertEquals(Subtask.State.UNAVAILABLE, subtask.state());
+        }
+        assertFalse(ran.get());
+    }
+
+    private static <T> T sleepThen(long millis, T value) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,272 @@
+package com.oyiersan.completableintro.stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncStreamTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void whenMillionIds_thenInFlightAndReadAheadStayBounded() {
+        int parallelism = 16;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicLong produced = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong maxReadAhead = new AtomicLong();
+        Iterator<Integer> ids = counting(IntStream.range(0, 1_000_000).iterator(), produced);
+
+        long sum = AsyncStream.fromIterator(ids)
+                .mapAsync(parallelism, id -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return CompletableFuture.supplyAsync(() -> {
+                        inFlight.decrementAndGet();
+                        return (long) id;
+                    }, executor);
+                })
+                .reduce(0L, (acc, id) -> {
+                    maxReadAhead.accumulateAndGet(produced.get() - consumed.incrementAndGet(), Math::max);
+                    return acc + id;
+                })
+                .join();
+
+        assertEquals(999_999L * 1_000_000L / 2, sum);
+        assertTrue(maxInFlight.get() <= parallelism, "in flight " + maxInFlight.get());
+        // 源头最多比消费者多读一个窗口
+        assertTrue(maxReadAhead.get() <= parallelism + 1, "read ahead " + maxReadAhead.get());
+    }
+
+    @Test
+    public void whenMapperCompletesWithNull_thenNullFlowsDownstream() throws Exception {
+        List<String> result = AsyncStream.fromIterator(IntStream.range(0, 6).iterator())
+                .mapAsync(2, id -> CompletableFuture.supplyAsync(() -> id % 2 == 0 ? null : "v" + id, executor))
+                .mapAsyncUnordered(2, value -> CompletableFuture.completedFuture(value == null ? "null" : value))
+                .toList()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(6, result.size());
+        assertEquals(3, result.stream().filter("null"::equals).count());
+    }
+
+    @Test
+    public void whenEverythingCompletesSynchronously_thenNoStackOverflow() {
+        long count = AsyncStream.fromIterator(IntStream.range(0, 1_000_000).iterator())
+                .filter(id -> id % 2 == 0)
+                .mapAsync(4, CompletableFuture::completedFuture)
+                .map(id -> id + 1)
+                .count()
+                .join();
+
+        assertEquals(500_000L, count);
+    }
+
+    @Test
+    public void whenOrdered_thenResultsFollowInputOrder() {
+        List<Integer> result = AsyncStream.fromIterable(Arrays.asList(5, 1, 4, 2, 3))
+                .mapAsync(5, delay -> CompletableFuture.supplyAsync(() -> {
+                    sleep(delay * 10L);
+                    return delay;
+                }, executor))
+                .toList()
+                .join();
+
+        assertEquals(Arrays.asList(5, 1, 4, 2, 3), result);
+    }
+
+    @Test
+    public void whenUnordered_thenFastResultsAreNotBlockedBySlowOnes() {
+        List<Integer> result = AsyncStream.fromIterable(Arrays.asList(50, 1, 2, 3))
+                .mapAsyncUnordered(4, delay -> CompletableFuture.supplyAsync(() -> {
+                    sleep(delay * 10L);
+                    return delay;
+                }, executor))
+                .toList()
+                .join();
+
+        assertEquals(50, result.get(3));
+        assertEquals(4, result.size());
+    }
+
+    @Test
+    public void whenFilterBatchReduce_thenStagesCompose() {
+        List<List<Integer>> batches = AsyncStream.fromIterator(IntStream.range(0, 10).iterator())
+                .filter(num -> num % 2 == 0)
+                .batch(2)
+                .toList()
+                .join();
+
+        assertEquals(Arrays.asList(Arrays.asList(0, 2), Arrays.asList(4, 6), Arrays.asList(8)), batches);
+
+        String joined = AsyncStream.fromIterable(Arrays.asList("a", "b", "c"))
+                .reduce("", String::concat)
+                .join();
+        assertEquals("abc", joined);
+    }
+
+    @Test
+    public void whenMappingFails_thenTerminalFails() {
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> AsyncStream.fromIterator(IntStream.range(0, 100).iterator())
+                        .mapAsync(4, num -> CompletableFuture.supplyAsync(() -> {
+                            if (num == 42) {
+                                throw new IllegalStateException("bad " + num);
+                            }
+                            return num;
+                        }, executor))
+                        .count()
+                        .join());
+
+        assertEquals("bad 42", ex.getCause().getMessage());
+    }
+
+    @Test
+    public void whenSourceIsPublisher_thenDemandNeverExceedsOne() {
+        RangePublisher publisher = new RangePublisher(10_000);
+
+        List<Integer> squares = AsyncStream.fromPublisher(publisher)
+                .mapAsync(8, num -> CompletableFuture.supplyAsync(() -> num * num, executor))
+                .filter(square -> square % 1000 == 0)
+                .toList()
+                .join();
+
+        assertEquals(IntStream.range(0, 10_000).map(num -> num * num).filter(square -> square % 1000 == 0)
+                .boxed().collect(Collectors.toList()), squares);
+        assertEquals(1, publisher.maxOutstanding);
+    }
+
+    @Test
+    public void whenPublisherSendsWithoutDemand_thenSubscriptionIsCancelledAndNextPullFails() {
+        AtomicInteger cancelled = new AtomicInteger();
+        // 每次 request(1) 都发送两个元素
+        Publisher<Integer> overEager = subscriber -> subscriber.onSubscribe(new Subscription() {
+
+            private int next;
+
+            @Override
+            public void request(long n) {
+                subscriber.onNext(next++);
+                subscriber.onNext(next++);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.incrementAndGet();
+            }
+        });
+        PublisherSource<Integer> source = new PublisherSource<>(overEager);
+
+        assertEquals(0, source.pull().join());
+        assertEquals(1, cancelled.get());
+        CompletionException ex = assertThrows(CompletionException.class, () -> source.pull().join());
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+
+    private static Iterator<Integer> counting(PrimitiveIterator.OfInt delegate, AtomicLong produced) {
+        return new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                produced.incrementAndGet();
+                return delegate.next();
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按需发送 0..count-1 的 Publisher，记录最大未满足需求
+     */
+    private static final class RangePublisher implements Publisher<Integer> {
+
+        private final int count;
+
+        private volatile long maxOutstanding;
+
+        RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+
+                private int next;
+
+                private long demand;
+
+                private boolean emitting;
+
+                private boolean completed;
+
+                @Override
+                public synchronized void request(long n) {
+                    demand += n;
+                    maxOutstanding = Math.max(maxOutstanding, demand);
+                    // 在 onNext 中再次 request 时由外层循环继续发送
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < count) {
+                        demand--;
+                        subscriber.onNext(next++);
+                    }
+                    if (next == count && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel() {
+                    next = count;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.oyiersan.completableintro.timer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeadlineTest {
+
+    private static HashedWheelTimer timer;
+
+    @BeforeAll
+    public static void initTimer() {
+        timer = new HashedWheelTimer("deadline-test", 5, TimeUnit.MILLISECONDS, 128);
+    }
+
+    @AfterAll
+    public static void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    public void whenStageFinishesInTime_thenResultPassesThrough() {
+        Deadline deadline = Deadline.after(timer, 1, TimeUnit.SECONDS);
+
+        assertEquals("ok", deadline.bound(CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    public void whenDeadlinePasses_thenBoundStageFailsWithTimeout() {
+        Deadline deadline = Deadline.after(timer, 50, TimeUnit.MILLISECONDS);
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> deadline.bound(new CompletableFuture<String>()).join());
+        assertTrue(ex.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    public void whenDeadlinePassesWithFallback_thenFallbackIsUsed() {
+        Deadline deadline = Deadline.after(timer, 50, TimeUnit.MILLISECONDS);
+
+        assertEquals("fallback", deadline.bound(new CompletableFuture<>(), "fallback").join());
+    }
+
+    @Test
+    public void whenDeadlineAlreadyExpired_thenLaterStagesDoNotRun() throws InterruptedException {
+        Deadline deadline = Deadline.after(timer, 20, TimeUnit.MILLISECONDS);
+        TimeUnit.MILLISECONDS.sleep(40);
+        AtomicBoolean applied = new AtomicBoolean();
+        AtomicBoolean composed = new AtomicBoolean();
+
+        CompletableFuture<String> chain = CompletableFuture.completedFuture("start")
+                .thenApply(deadline.guard(s -> {
+                    applied.set(true);
+                    return s;
+                }))
+                .thenCompose(deadline.compose(s -> {
+                    composed.set(true);
+                    return CompletableFuture.completedFuture(s);
+                }));
+
+        CompletionException ex = assertThrows(CompletionException.class, chain::join);
+        assertTrue(ex.getCause() instanceof TimeoutException);
+        assertFalse(applied.get());
+        assertFalse(composed.get());
+        assertTrue(deadline.isExpired());
+    }
+
+    @Test
+    public void whenComposing_thenInnerStageOnlyGetsRemainingTime() {
+        Deadline deadline = Deadline.after(timer, 200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+
+        CompletableFuture<String> chain = CompletableFuture.supplyAsync(() -> {
+            sleep(120);
+            return "first";
+        }).thenCompose(deadline.compose(s -> new CompletableFuture<String>()));
+
+        assertThrows(CompletionException.class, chain::join);
+        // 内层 future 永远不会完成，只能依靠剩余约 80ms 的截止时间结束
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 200 && elapsed < 1000, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void whenDeadlinePassesWhileComposing_thenInnerStageIsCancelled() {
+        Deadline deadline = Deadline.after(timer, 50, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> inner = new CompletableFuture<>();
+
+        CompletableFuture<String> chain = CompletableFuture.completedFuture("start")
+                .thenCompose(deadline.compose(s -> inner));
+
+        assertThrows(CompletionException.class, chain::join);
+        assertTrue(inner.isCancelled());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
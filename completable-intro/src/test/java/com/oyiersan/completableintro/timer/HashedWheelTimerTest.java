@@ -0,0 +1,157 @@
+package com.oyiersan.completableintro.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @BeforeEach
+    public void setUp() {
+        timer = new HashedWheelTimer("test-timer", 5, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void whenDelayElapses_thenTaskRunsNoEarlierThanDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void whenDelayIsLongerThanOneRevolution_thenTaskWaitsForRemainingRounds() throws InterruptedException {
+        // 64 个槽位 * 5ms = 320ms 一圈
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(latch::countDown, 700, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 700);
+    }
+
+    @Test
+    public void whenCancelled_thenTaskNeverRuns() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        Timeout timeout = timer.newTimeout(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertEquals(0, fired.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void whenManyTimeoutsPending_thenAllFire() throws InterruptedException {
+        int count = 200_000;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            timer.newTimeout(latch::countDown, i % 500, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void whenMaxPendingExceeded_thenRejects() {
+        try (HashedWheelTimer bounded = new HashedWheelTimer("bounded", 10, TimeUnit.MILLISECONDS, 8, 2, Runnable::run)) {
+            List<Timeout> timeouts = new ArrayList<>();
+            timeouts.add(bounded.newTimeout(() -> { }, 1, TimeUnit.SECONDS));
+            timeouts.add(bounded.newTimeout(() -> { }, 1, TimeUnit.SECONDS));
+            assertThrows(RejectedExecutionException.class, () -> bounded.newTimeout(() -> { }, 1, TimeUnit.SECONDS));
+
+            timeouts.get(0).cancel();
+            bounded.newTimeout(() -> { }, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void whenStopped_thenRejectsNewTimeouts() {
+        timer.stop();
+        assertThrows(RejectedExecutionException.class, () -> timer.newTimeout(() -> { }, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenStopped_thenPendingTimeoutsAreCancelledAndReturned() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        Timeout queued = timer.newTimeout(fired::incrementAndGet, 1, TimeUnit.SECONDS);
+        // 等它从队列转移到槽位
+        TimeUnit.MILLISECONDS.sleep(50);
+        Timeout justAdded = timer.newTimeout(fired::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        Set<Timeout> unprocessed = timer.stop();
+
+        assertEquals(2, unprocessed.size());
+        assertTrue(unprocessed.contains(queued));
+        assertTrue(unprocessed.contains(justAdded));
+        assertTrue(queued.isCancelled());
+        assertTrue(justAdded.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+        assertEquals(0, fired.get());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void whenNewTimeoutRacesWithStop_thenNoTimeoutIsLeftPending() throws InterruptedException {
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        List<Timeout> accepted = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                producers.execute(() -> {
+                    started.countDown();
+                    try {
+                        for (; ; ) {
+                            accepted.add(timer.newTimeout(() -> { }, 1, TimeUnit.SECONDS));
+                        }
+                    } catch (RejectedExecutionException expected) {
+                        // 停止之后只会被拒绝
+                    }
+                });
+            }
+            started.await();
+            TimeUnit.MILLISECONDS.sleep(20);
+            Set<Timeout> unprocessed = timer.stop();
+            producers.shutdown();
+            assertTrue(producers.awaitTermination(5, TimeUnit.SECONDS));
+
+            // 每个被接受的超时要么被 stop() 取消并返回，要么已经执行，不会留在没人处理的队列里
+            for (Timeout timeout : accepted) {
+                assertTrue(timeout.isCancelled() || timeout.isExpired());
+            }
+            assertEquals(accepted.size(), unprocessed.size());
+            assertEquals(0, timer.pendingTimeouts());
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+}
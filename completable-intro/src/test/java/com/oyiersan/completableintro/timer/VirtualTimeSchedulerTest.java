@@ -0,0 +1,153 @@
+package com.oyiersan.completableintro.timer;
+
+import com.oyiersan.completableintro.retry.Retrier;
+import com.oyiersan.completableintro.retry.RetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualTimeSchedulerTest {
+
+    @Test
+    public void whenAdvanceBy_thenDueTasksRunInDeadlineThenSubmissionOrder() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        List<String> order = new ArrayList<>();
+        scheduler.newTimeout(() -> order.add("c"), 30, TimeUnit.SECONDS);
+        scheduler.newTimeout(() -> order.add("a1"), 10, TimeUnit.SECONDS);
+        scheduler.newTimeout(() -> order.add("a2"), 10, TimeUnit.SECONDS);
+        scheduler.newTimeout(() -> order.add("b"), 20, TimeUnit.SECONDS);
+        scheduler.execute(() -> order.add("now"));
+
+        scheduler.advanceBy(25, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("now", "a1", "a2", "b"), order);
+        assertEquals(TimeUnit.SECONDS.toNanos(25), scheduler.nanoTime());
+        assertEquals(1, scheduler.pendingTimeouts());
+    }
+
+    @Test
+    public void whenTaskSchedulesAnother_thenItSeesTheAdvancedClock() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        List<Long> seen = new ArrayList<>();
+        scheduler.newTimeout(() -> {
+            seen.add(scheduler.nanoTime());
+            scheduler.newTimeout(() -> seen.add(scheduler.nanoTime()), 5, TimeUnit.SECONDS);
+        }, 5, TimeUnit.SECONDS);
+
+        scheduler.advanceBy(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(10)), seen);
+    }
+
+    @Test
+    public void whenCancelled_thenTaskNeverRuns() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        AtomicInteger runs = new AtomicInteger();
+        Timeout timeout = scheduler.newTimeout(runs::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        assertTrue(timeout.cancel());
+        scheduler.advanceBy(1, TimeUnit.HOURS);
+
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertEquals(0, scheduler.pendingTimeouts());
+    }
+
+    @Test
+    public void whenJoin_thenClockJumpsToTheTimeout() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        long start = System.nanoTime();
+
+        CompletableFuture<String> bounded = Timeouts.orTimeout(new CompletableFuture<>(), scheduler, 10, TimeUnit.SECONDS);
+        CompletionException ex = assertThrows(CompletionException.class, () -> scheduler.join(bounded));
+
+        assertTrue(ex.getCause() instanceof TimeoutException);
+        assertEquals(TimeUnit.SECONDS.toNanos(10), scheduler.nanoTime());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void whenFutureCanNeverComplete_thenJoinFailsInsteadOfHanging() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        scheduler.newTimeout(() -> { }, 1, TimeUnit.SECONDS);
+
+        assertThrows(IllegalStateException.class, () -> scheduler.join(new CompletableFuture<>()));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), scheduler.nanoTime());
+    }
+
+    @Test
+    public void whenSameScenarioRunsTwice_thenInterleavingIsIdentical() {
+        assertEquals(interleave(), interleave());
+    }
+
+    private static List<String> interleave() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        List<String> events = new ArrayList<>();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "w" + i;
+            long period = 3 + i;
+            workers.add(CompletableFuture.runAsync(() -> events.add(name + "@0"), scheduler)
+                    .thenCompose(ignored -> scheduler.delay(period, TimeUnit.SECONDS))
+                    .thenRun(() -> events.add(name + "@" + TimeUnit.NANOSECONDS.toSeconds(scheduler.nanoTime())))
+                    .thenCompose(ignored -> scheduler.delay(period, TimeUnit.SECONDS))
+                    .thenRun(() -> events.add(name + "@" + TimeUnit.NANOSECONDS.toSeconds(scheduler.nanoTime()))));
+        }
+        scheduler.join(CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])));
+        assertEquals(Arrays.asList("w0@0", "w1@0", "w2@0", "w0@3", "w1@4", "w2@5", "w0@6", "w1@8", "w2@10"), events);
+        return events;
+    }
+
+    @Test
+    public void whenRetrierRunsOnVirtualTime_thenBackoffDoesNotSleep() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        RetryPolicy policy = RetryPolicy.builder()
+                .maxAttempts(5)
+                .backoff(1, 30, TimeUnit.SECONDS)
+                .build();
+        Retrier retrier = new Retrier("virtual", policy, scheduler, null, scheduler);
+        AtomicInteger count = new AtomicInteger();
+        long start = System.nanoTime();
+
+        String result = scheduler.join(retrier.supplyAsync(() -> {
+            if (count.incrementAndGet() < 5) {
+                throw new IllegalStateException("transient");
+            }
+            return "ok";
+        }));
+
+        assertEquals("ok", result);
+        assertEquals(5, count.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void whenAutoAdvance_thenBlockingGetReturnsWithoutRealDelay() throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        try (VirtualTimeScheduler scheduler = new VirtualTimeScheduler()) {
+            scheduler.startAutoAdvance(1, TimeUnit.MILLISECONDS);
+
+            CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> "Hello",
+                    scheduler.delayedExecutor(10, TimeUnit.SECONDS));
+
+            assertEquals("Hello", future.get());
+            assertEquals(TimeUnit.SECONDS.toNanos(10), scheduler.nanoTime());
+            assertThrows(IllegalStateException.class, scheduler::runUntilIdle);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+}
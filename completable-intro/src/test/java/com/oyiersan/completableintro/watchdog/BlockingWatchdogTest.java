@@ -0,0 +1,190 @@
+package com.oyiersan.completableintro.watchdog;
+
+import com.oyiersan.completableintro.timer.HashedWheelTimer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockingWatchdogTest {
+
+    private static HashedWheelTimer timer;
+
+    @BeforeAll
+    public static void setUp() {
+        timer = new HashedWheelTimer("watchdog-test", 5, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void whenTaskRunsPastThreshold_thenReportsStageAndCallSite() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BlockingWatchdog watchdog = BlockingWatchdog.builder(timer).pool(pool)
+                .threshold(50, TimeUnit.MILLISECONDS).sampleInterval(10, TimeUnit.MILLISECONDS).build();
+        List<BlockedTaskReport> reports = new CopyOnWriteArrayList<>();
+        List<String> samplerThreads = new CopyOnWriteArrayList<>();
+        watchdog.addBlockedTaskListener(report -> {
+            reports.add(report);
+            samplerThreads.add(Thread.currentThread().getName());
+        });
+        watchdog.start();
+        try {
+            watchdog.supplyAsync("slowLookup", () -> sleep(200)).join();
+            watchdog.supplyAsync("fastLookup", () -> sleep(0)).join();
+
+            assertEquals(1, reports.size());
+            BlockedTaskReport report = reports.get(0);
+            assertEquals("slowLookup", report.getStage());
+            assertEquals(BlockingWatchdogTest.class.getName(), report.getCallSite().getClassName());
+            assertEquals(Thread.State.TIMED_WAITING, report.getThreadState());
+            assertTrue(report.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            // 读取调用栈不占用共享的时间轮线程
+            assertEquals("blocking-watchdog", samplerThreads.get(0));
+        } finally {
+            watchdog.stop();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenPlainSupplyAsyncRunsPastThreshold_thenReportsTaskEntry() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BlockingWatchdog watchdog = BlockingWatchdog.builder(timer).pool(pool)
+                .threshold(50, TimeUnit.MILLISECONDS).sampleInterval(10, TimeUnit.MILLISECONDS).build();
+        List<BlockedTaskReport> reports = new CopyOnWriteArrayList<>();
+        watchdog.addBlockedTaskListener(reports::add);
+        watchdog.start();
+        try {
+            // 没有经过看门狗提交
+            CompletableFuture.supplyAsync(() -> sleep(200), pool).join();
+            CompletableFuture.supplyAsync(() -> sleep(0), pool).join();
+
+            assertEquals(1, reports.size());
+            BlockedTaskReport report = reports.get(0);
+            assertEquals(BlockingWatchdog.UNTRACKED_STAGE, report.getStage());
+            assertEquals(BlockingWatchdogTest.class.getName(), report.getCallSite().getClassName());
+            assertTrue(report.getCallSite().getMethodName().startsWith("lambda$whenPlainSupplyAsyncRunsPastThreshold"));
+        } finally {
+            watchdog.stop();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenAllWorkersBlockAndQueueGrows_thenReportsStarvation() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BlockingWatchdog watchdog = BlockingWatchdog.builder(timer).pool(pool).build();
+        List<StarvationReport> reports = new CopyOnWriteArrayList<>();
+        watchdog.addStarvationListener(reports::add);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // 不经过看门狗、直接 supplyAsync 到池子里的阻塞任务也能发现
+            for (int i = 0; i < 6; i++) {
+                CompletableFuture.runAsync(() -> await(release), pool);
+            }
+            waitUntil(() -> pool.getActiveThreadCount() == 2);
+            // 等两个工作线程都进入 await
+            TimeUnit.MILLISECONDS.sleep(50);
+            watchdog.sample();
+
+            assertEquals(1, reports.size());
+            StarvationReport report = reports.get(0);
+            assertEquals(2, report.getBlockedWorkers());
+            // ForkJoinPool 的队列长度是估计值
+            assertTrue(report.getQueued() >= 4);
+            assertTrue(report.isGrowing());
+            assertEquals(BlockingWatchdogTest.class.getName(), report.getBlockedAt().get(0).getClassName());
+
+            // 队列没有继续增长，不再报告
+            watchdog.sample();
+            assertEquals(1, reports.size());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenPoolIsIdle_thenNoStarvationIsReported() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BlockingWatchdog watchdog = BlockingWatchdog.builder(timer).pool(pool).build();
+        List<StarvationReport> reports = new CopyOnWriteArrayList<>();
+        watchdog.addStarvationListener(reports::add);
+        try {
+            CompletableFuture.runAsync(() -> { }, pool).join();
+            watchdog.sample();
+
+            assertTrue(reports.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenStageWasBlocking_thenLaterCallsAreRedirected() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ExecutorService blocking = Executors.newCachedThreadPool();
+        BlockingWatchdog watchdog = BlockingWatchdog.builder(timer).pool(pool).redirectTo(blocking)
+                .threshold(30, TimeUnit.MILLISECONDS).sampleInterval(10, TimeUnit.MILLISECONDS).build();
+        watchdog.start();
+        try {
+            Thread first = watchdog.supplyAsync("remoteCall", () -> {
+                sleep(100);
+                return Thread.currentThread();
+            }).join();
+            assertTrue(first instanceof ForkJoinWorkerThread);
+            assertTrue(watchdog.isBlocking("remoteCall"));
+
+            Thread second = watchdog.supplyAsync("remoteCall", Thread::currentThread).join();
+            assertFalse(second instanceof ForkJoinWorkerThread);
+            // 其他 stage 仍在 ForkJoinPool 上执行
+            assertTrue(watchdog.supplyAsync("compute", Thread::currentThread).join() instanceof ForkJoinWorkerThread);
+        } finally {
+            watchdog.stop();
+            pool.shutdownNow();
+            blocking.shutdownNow();
+        }
+    }
+
+    private static Integer sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+}